@@ -6,11 +6,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Class loading asterisms from a stream
@@ -22,26 +18,28 @@ public enum AsterismLoader implements StarCatalogue.Loader {
     INSTANCE;
 
     /**
-     * Maps stars to their respective hipparcos ID if the latter is non-zero
+     * Maps the hipparcos ID of the stars of the given table to their row, if the ID is non-zero. The stars are not
+     * created.
      *
-     * @param stars collection of stars
+     * @param stars table of stars
      *
-     * @return unmodifiable map between the provided stars and their ID
+     * @return map between the ID of the stars and their row in the table, giving -1 for unknown IDs
      */
-    private static Map<Integer, Star> mapHipparcosIds(Collection<Star> stars) {
-        Map<Integer, Star> map = new HashMap<>();
-        for (Star star : stars) {
-            int id = star.hipparcosId();
+    private static IntIntMap mapHipparcosIds(StarTable stars) {
+        IntIntMap map = new IntIntMap(stars.size(), -1);
+        for (int row = 0; row < stars.size(); ++row) {
+            int id = stars.hipparcosId(row);
             if (id != 0) {  // ignore stars with an ID of 0
-                map.put(id, star);
+                map.put(id, row);
             }
         }
-        return Collections.unmodifiableMap(map);
+        return map;
     }
 
     /**
      * Creates new asterisms from the data in the given stream and adds them to the given {@code StarCatalogue.Builder}
-     * All the stars from the catalogue must be loaded before calling this method.
+     * All the stars from the catalogue must be loaded before calling this method. The stars rejected by a filter when
+     * they were loaded are added back to the catalogue if an asterism contains them.
      *
      * @param inputStream stream containing the hipparcos IDs of the stars in each asterism
      * @param builder     builder to which to add the created asterisms
@@ -50,7 +48,8 @@ public enum AsterismLoader implements StarCatalogue.Loader {
      */
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
-        Map<Integer, Star> idMap = mapHipparcosIds(builder.stars());  // assume the stars were loaded before
+        StarTable stars = builder.starTable();
+        IntIntMap idMap = mapHipparcosIds(stars);  // assume the stars were loaded before
         try (BufferedReader reader =
                      new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII))) {
             String line;
@@ -58,12 +57,21 @@ public enum AsterismLoader implements StarCatalogue.Loader {
                 String[] columns = line.split(",");
                 // read the hipparcos IDs from the line
                 List<Star> asterismStars = new ArrayList<>(columns.length);
-                for (String column : columns) {
-                    int id = Integer.parseInt(column);
-                    asterismStars.add(idMap.get(id));
+                int[] rows = new int[columns.length];
+                for (int i = 0; i < columns.length; ++i) {
+                    int id = Integer.parseInt(columns[i]);
+                    int row = idMap.get(id);
+                    if (row < 0 && builder.addReservedStar(id) != null) {  // the star was rejected by a filter
+                        row = stars.size() - 1;
+                        idMap.put(id, row);
+                    }
+                    // only the stars of the asterisms are created, an unknown star makes the asterism invalid
+                    asterismStars.add(row < 0 ? null : stars.star(row));
+                    rows[i] = row;
                 }
 
-                builder.addAsterism(new Asterism(asterismStars));
+                // the rows are given to the builder, so that the stars do not have to be searched again
+                builder.addAsterism(new Asterism(asterismStars), rows);
             }
         }
     }
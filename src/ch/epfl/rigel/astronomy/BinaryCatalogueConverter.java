@@ -0,0 +1,119 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Converts star catalogues to the binary format read by {@link BinaryCatalogueLoader}
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class BinaryCatalogueConverter {
+    /**
+     * This class is not meant to be instantiated
+     */
+    private BinaryCatalogueConverter() {
+    }
+
+    /**
+     * Converts the HYG database given as argument to a binary catalogue.
+     * <p>
+     * Usage: {@code BinaryCatalogueConverter <hyg database (.csv)> <binary catalogue>}
+     *
+     * @param args path of the HYG database followed by the path of the binary catalogue to write
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryCatalogueConverter <hyg database (.csv)> <binary catalogue>");
+            System.exit(1);
+        }
+
+        try (InputStream inputStream = Files.newInputStream(Path.of(args[0]));
+             OutputStream outputStream = Files.newOutputStream(Path.of(args[1]))) {
+            convert(inputStream, outputStream);
+        }
+    }
+
+    /**
+     * Reads the HYG database provided by the given stream and writes it in the binary format to the given stream
+     *
+     * @param hygStream    stream providing the HYG database
+     * @param outputStream stream to which to write the binary catalogue
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static void convert(InputStream hygStream, OutputStream outputStream) throws IOException {
+        StarTable stars = new StarCatalogue.Builder()
+                .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                .starTable();
+        write(stars, outputStream);
+    }
+
+    /**
+     * Writes the given stars in the binary format to the given stream. The stream is flushed but not closed.
+     *
+     * @param stars        stars to write
+     * @param outputStream stream to which to write the binary catalogue
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(List<Star> stars, OutputStream outputStream) throws IOException {
+        StarTable table = new StarTable(stars.size());
+        for (Star star : stars) table.add(star);
+        write(table, outputStream);
+    }
+
+    /**
+     * Writes the stars of the given table in the binary format to the given stream, without creating them. The stream
+     * is flushed but not closed.
+     *
+     * @param stars        table of the stars to write
+     * @param outputStream stream to which to write the binary catalogue
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    static void write(StarTable stars, OutputStream outputStream) throws IOException {
+        int count = stars.size();
+
+        // the name table is built beforehand since its size is part of the header
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        int[] nameOffsets = new int[count + 1];
+        for (int i = 0; i < count; ++i) {
+            names.writeBytes(stars.name(i).getBytes(StandardCharsets.UTF_8));
+            nameOffsets[i + 1] = names.size();
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(BinaryCatalogueLoader.MAGIC);
+        out.writeInt(BinaryCatalogueLoader.VERSION);
+        out.writeInt(count);
+        out.writeInt(names.size());
+
+        // the arrays of the table may be longer than the table
+        int[] hipparcosIds = stars.hipparcosIds();
+        double[] ra = stars.ra();
+        double[] dec = stars.dec();
+        float[] magnitudes = stars.magnitudes();
+        float[] colorIndices = stars.colorIndices();
+        for (int i = 0; i < count; ++i) out.writeInt(hipparcosIds[i]);
+        for (int i = 0; i < count; ++i) out.writeDouble(ra[i]);
+        for (int i = 0; i < count; ++i) out.writeDouble(dec[i]);
+        for (int i = 0; i < count; ++i) out.writeFloat(magnitudes[i]);
+        for (int i = 0; i < count; ++i) out.writeFloat(colorIndices[i]);
+        for (int offset : nameOffsets) out.writeInt(offset);
+        names.writeTo(out);
+
+        out.flush();
+    }
+}
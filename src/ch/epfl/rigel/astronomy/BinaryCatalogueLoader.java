@@ -0,0 +1,171 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class loading stars from a binary catalogue, as written by {@link BinaryCatalogueConverter}. Contrary to the
+ * textual HYG database, the binary catalogue is stored column by column with fixed-width values, so that it can be
+ * read with bulk copies instead of being parsed.
+ * <p>
+ * Layout of the file (big-endian):
+ * <pre>
+ * header      : magic number, version, star count n, size in bytes of the name table (4 ints)
+ * hipparcosId : n ints
+ * ra          : n doubles (radians)
+ * dec         : n doubles (radians)
+ * magnitude   : n floats
+ * colorIndex  : n floats
+ * nameOffsets : n + 1 ints, offset in the name table of the first byte of each name
+ * names       : name table, UTF-8 encoded names stored one after the other
+ * </pre>
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public enum BinaryCatalogueLoader implements StarCatalogue.Loader {
+    INSTANCE;
+
+    static final int MAGIC = 0x52474C43;  // "RGLC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+    static final int BYTES_PER_STAR = Integer.BYTES + 2 * Double.BYTES + 2 * Float.BYTES + Integer.BYTES;
+
+    /**
+     * Creates new stars with the data from the given stream and adds them to the given builder
+     *
+     * @param inputStream stream providing the binary catalogue
+     * @param builder     builder to which to add the stars
+     *
+     * @throws IOException if an I/O error occurs or if the stream does not contain a valid binary catalogue
+     */
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+        load(inputStream, builder, StarFilter.ALL);
+    }
+
+    /**
+     * Creates new stars with the data from the given stream and adds the ones accepted by the given filter to the
+     * given builder. The rejected stars having a hipparcos ID are reserved in the builder without being created.
+     *
+     * @param inputStream stream providing the binary catalogue
+     * @param builder     builder to which to add the stars
+     * @param filter      filter selecting the stars to add
+     *
+     * @throws IOException if an I/O error occurs or if the stream does not contain a valid binary catalogue
+     */
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder, StarFilter filter) throws IOException {
+        read(ByteBuffer.wrap(inputStream.readAllBytes()), builder, filter);
+    }
+
+    /**
+     * Creates new stars with the data from the given file and adds them to the given builder. The file is memory
+     * mapped instead of being read through a stream.
+     *
+     * @param path    path of the binary catalogue
+     * @param builder builder to which to add the stars
+     *
+     * @throws IOException if an I/O error occurs or if the file does not contain a valid binary catalogue
+     */
+    @Override
+    public void load(Path path, StarCatalogue.Builder builder) throws IOException {
+        load(path, builder, StarFilter.ALL);
+    }
+
+    /**
+     * Creates new stars with the data from the given file and adds the ones accepted by the given filter to the given
+     * builder. The file is memory mapped instead of being read through a stream.
+     *
+     * @param path    path of the binary catalogue
+     * @param builder builder to which to add the stars
+     * @param filter  filter selecting the stars to add
+     *
+     * @throws IOException if an I/O error occurs or if the file does not contain a valid binary catalogue
+     */
+    @Override
+    public void load(Path path, StarCatalogue.Builder builder, StarFilter filter) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), builder, filter);
+        }
+    }
+
+    /**
+     * Reads the binary catalogue stored in the given buffer, starting at its current position. The buffer is left
+     * positioned right after the catalogue.
+     *
+     * @param buffer  buffer containing the binary catalogue
+     * @param builder builder to which to add the stars
+     * @param filter  filter selecting the stars to add
+     *
+     * @throws IOException if the buffer does not contain a valid binary catalogue
+     */
+    static void read(ByteBuffer buffer, StarCatalogue.Builder builder, StarFilter filter)
+            throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a binary star catalogue");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported binary catalogue version: " + version);
+
+            int count = buffer.getInt();
+            int namesSize = buffer.getInt();
+            if (count < 0 || namesSize < 0 ||
+                buffer.remaining() < (long) count * BYTES_PER_STAR + Integer.BYTES + namesSize) {
+                throw new IOException("Truncated binary catalogue");
+            }
+
+            int[] hipparcosIds = new int[count];
+            buffer.asIntBuffer().get(hipparcosIds);
+            skip(buffer, count * Integer.BYTES);
+
+            double[] ra = new double[count];
+            buffer.asDoubleBuffer().get(ra);
+            skip(buffer, count * Double.BYTES);
+
+            double[] dec = new double[count];
+            buffer.asDoubleBuffer().get(dec);
+            skip(buffer, count * Double.BYTES);
+
+            float[] magnitudes = new float[count];
+            buffer.asFloatBuffer().get(magnitudes);
+            skip(buffer, count * Float.BYTES);
+
+            float[] colorIndices = new float[count];
+            buffer.asFloatBuffer().get(colorIndices);
+            skip(buffer, count * Float.BYTES);
+
+            int[] nameOffsets = new int[count + 1];
+            buffer.asIntBuffer().get(nameOffsets);
+            skip(buffer, (count + 1) * Integer.BYTES);
+
+            byte[] names = new byte[namesSize];
+            buffer.get(names);
+
+            for (int i = 0; i < count; ++i) {
+                boolean accepted = filter.accepts(dec[i], magnitudes[i]);
+                if (!accepted && hipparcosIds[i] == 0) continue;  // no asterism can refer to the star
+
+                int nameLength = nameOffsets[i + 1] - nameOffsets[i];
+                String name = new String(names, nameOffsets[i], nameLength, StandardCharsets.UTF_8);
+                if (accepted) {
+                    builder.addStar(hipparcosIds[i], name, ra[i], dec[i], magnitudes[i], colorIndices[i]);
+                } else {
+                    builder.reserveStar(hipparcosIds[i], name, ra[i], dec[i], magnitudes[i], colorIndices[i]);
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException exception) {
+            // an invalid star, such as one of invalid coordinates, is rejected by the builder
+            throw new IOException("Corrupted binary catalogue", exception);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int byteCount) {
+        buffer.position(buffer.position() + byteCount);
+    }
+}
@@ -62,6 +62,15 @@ public abstract class CelestialObject {
         return name.get();
     }
 
+    /**
+     * Gives the translations of the name of the instance
+     *
+     * @return translations of the name
+     */
+    Translation translatedName() {
+        return name;
+    }
+
     /**
      * Gives the object type
      *
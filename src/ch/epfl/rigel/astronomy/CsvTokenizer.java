@@ -0,0 +1,302 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level tokenizer reading comma-separated rows. Each row is scanned once to locate its fields, whose content is
+ * then only converted on demand, directly from the underlying bytes. Unused columns therefore cost nothing and numbers
+ * are parsed without creating intermediate strings.
+ *
+ * @implNote Quoted fields are not supported, as they do not appear in the files read by this program.
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class CsvTokenizer {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_FAST_FLOAT_MANTISSA = 1 << 24;
+    private static final long MAX_FAST_DOUBLE_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;  // any 18-digit number fits in a long
+    private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};  // all exactly representable
+
+    private final InputStream inputStream;  // null when reading a fixed region
+    private byte[] buffer;
+    private int position;  // index of the first byte of the next row
+    private int limit;     // index following the last valid byte of the buffer
+    private boolean endOfInput;
+
+    private final int[] fieldStarts;
+    private final int[] fieldEnds;
+    private int fieldCount;
+
+    // state of the last number scanned by scanNumber
+    private long mantissa;
+    private int fractionDigits;
+    private boolean negative;
+
+    /**
+     * Creates a tokenizer reading the rows provided by the given stream. The stream is not closed by the tokenizer.
+     *
+     * @param inputStream stream providing the rows
+     * @param maxFields   number of fields to locate in each row, the following ones are ignored
+     */
+    CsvTokenizer(InputStream inputStream, int maxFields) {
+        this(inputStream, maxFields, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a tokenizer reading the rows provided by the given stream, using an initial buffer of the given size.
+     * The buffer grows if a row does not fit in it.
+     *
+     * @param inputStream stream providing the rows
+     * @param maxFields   number of fields to locate in each row, the following ones are ignored
+     * @param bufferSize  initial size of the buffer
+     */
+    CsvTokenizer(InputStream inputStream, int maxFields, int bufferSize) {
+        Preconditions.checkArgument(maxFields > 0 && bufferSize > 0);
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+        this.position = 0;
+        this.limit = 0;
+        this.endOfInput = false;
+        this.fieldStarts = new int[maxFields];
+        this.fieldEnds = new int[maxFields];
+    }
+
+    /**
+     * Creates a tokenizer reading the rows contained in the given region of an array. The array is not copied.
+     *
+     * @param data      array containing the rows
+     * @param from      index of the first byte of the region (inclusive)
+     * @param to        index following the last byte of the region (exclusive)
+     * @param maxFields number of fields to locate in each row, the following ones are ignored
+     */
+    CsvTokenizer(byte[] data, int from, int to, int maxFields) {
+        Preconditions.checkArgument(maxFields > 0 && 0 <= from && from <= to && to <= data.length);
+        this.inputStream = null;
+        this.buffer = data;
+        this.position = from;
+        this.limit = to;
+        this.endOfInput = true;
+        this.fieldStarts = new int[maxFields];
+        this.fieldEnds = new int[maxFields];
+    }
+
+    /**
+     * Moves to the next row and locates its fields
+     *
+     * @return {@code true} if a row was read, {@code false} if the end of the input was reached
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    boolean nextRow() throws IOException {
+        int lineEnd;
+        int searchFrom = position;
+        while ((lineEnd = indexOfNewLine(searchFrom)) < 0) {
+            if (endOfInput) {
+                if (position == limit) return false;
+                lineEnd = limit;  // last row is not terminated by a new line
+                break;
+            }
+            int scanned = limit - position;
+            fill();
+            searchFrom = position + scanned;  // do not scan the same bytes twice
+        }
+
+        int rowEnd = lineEnd > position && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+        splitFields(position, rowEnd);
+        position = Math.min(lineEnd + 1, limit);
+        return true;
+    }
+
+    private int indexOfNewLine(int from) {
+        for (int i = from; i < limit; ++i) {
+            if (buffer[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the pending bytes to the beginning of the buffer, grows the buffer if it is full and reads more bytes
+     */
+    private void fill() throws IOException {
+        int pending = limit - position;
+        if (pending == buffer.length) buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        System.arraycopy(buffer, position, buffer, 0, pending);
+        position = 0;
+        limit = pending;
+
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read < 0) endOfInput = true;
+        else limit += read;
+    }
+
+    private void splitFields(int from, int to) {
+        int count = 0;
+        int start = from;
+        for (int i = from; i < to && count < fieldStarts.length; ++i) {
+            if (buffer[i] == ',') {
+                fieldStarts[count] = start;
+                fieldEnds[count] = i;
+                ++count;
+                start = i + 1;
+            }
+        }
+        if (count < fieldStarts.length) {
+            fieldStarts[count] = start;
+            fieldEnds[count] = to;
+            ++count;
+        }
+        fieldCount = count;
+    }
+
+    /**
+     * Gives the number of fields located in the current row
+     *
+     * @return number of fields located in the current row
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Informs whether the given field of the current row is empty. Missing fields are considered empty.
+     *
+     * @param field index of the field
+     *
+     * @return {@code true} if the field is empty or missing
+     */
+    boolean isEmpty(int field) {
+        return field >= fieldCount || fieldStarts[field] == fieldEnds[field];
+    }
+
+    /**
+     * Gives the content of the given field of the current row as a string. Missing fields are considered empty.
+     *
+     * @param field index of the field
+     *
+     * @return content of the field
+     */
+    String string(int field) {
+        if (isEmpty(field)) return "";
+        int start = fieldStarts[field];
+        return new String(buffer, start, fieldEnds[field] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the given field of the current row as an {@code int}
+     *
+     * @param field index of the field
+     *
+     * @return value of the field
+     *
+     * @throws NumberFormatException if the field does not contain an integer
+     */
+    int parseInt(int field) {
+        if (!scanNumber(field) || fractionDigits != 0 || mantissa > Integer.MAX_VALUE) {
+            return Integer.parseInt(string(field));  // unusual format, let the JDK report errors
+        }
+        return (int) (negative ? -mantissa : mantissa);
+    }
+
+    /**
+     * Parses the given field of the current row as a {@code float}. The result is identical to the one of
+     * {@link Float#parseFloat(String)}.
+     *
+     * @param field index of the field
+     *
+     * @return value of the field
+     *
+     * @throws NumberFormatException if the field does not contain a number
+     */
+    float parseFloat(int field) {
+        if (!scanNumber(field) || mantissa > MAX_FAST_FLOAT_MANTISSA
+            || fractionDigits >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(string(field));
+        }
+        // both operands are exact, hence the division is correctly rounded
+        float value = mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the given field of the current row as a {@code double}. The result is identical to the one of
+     * {@link Double#parseDouble(String)} for all the numbers of at most 18 significant digits.
+     *
+     * @param field index of the field
+     *
+     * @return value of the field
+     *
+     * @throws NumberFormatException if the field does not contain a number
+     */
+    double parseDouble(int field) {
+        if (!scanNumber(field) || fractionDigits >= DOUBLE_POWERS_OF_TEN.length) {
+            return Double.parseDouble(string(field));
+        }
+        double powerOfTen = DOUBLE_POWERS_OF_TEN[fractionDigits];
+        double value;
+        if (mantissa <= MAX_FAST_DOUBLE_MANTISSA) {
+            value = mantissa / powerOfTen;  // both operands are exact, hence the division is correctly rounded
+        } else {
+            // the mantissa is split in two exact parts, the remainder of the first division is computed exactly
+            // using a fused multiply-add and is then used to correct the quotient
+            double high = mantissa & ~0x7FFL;  // at most 53 significant bits
+            double low = mantissa & 0x7FFL;
+            double quotient = high / powerOfTen;
+            double remainder = Math.fma(-quotient, powerOfTen, high) + low;
+            value = quotient + remainder / powerOfTen;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Scans the given field as a decimal number without exponent, storing its digits in {@code mantissa}, the number
+     * of digits after the decimal point in {@code fractionDigits} and its sign in {@code negative}.
+     *
+     * @param field index of the field
+     *
+     * @return {@code true} if the field could be scanned, {@code false} if its format is not supported (in which case
+     * the number must be parsed by other means)
+     */
+    private boolean scanNumber(int field) {
+        if (isEmpty(field)) return false;
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+
+        negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') ++i;
+        if (i == end) return false;
+
+        long digits = 0;
+        int digitCount = 0;  // significant digits only
+        int decimals = -1;   // -1 until the decimal point is found
+        boolean hasDigit = false;
+        for (; i < end; ++i) {
+            byte b = buffer[i];
+            if (b == '.') {
+                if (decimals >= 0) return false;
+                decimals = 0;
+            } else if (b >= '0' && b <= '9') {
+                hasDigit = true;
+                if (digits != 0 || b != '0') ++digitCount;
+                if (digitCount > MAX_MANTISSA_DIGITS) return false;
+                digits = 10 * digits + (b - '0');
+                if (decimals >= 0) ++decimals;
+            } else {
+                return false;  // exponent or invalid character
+            }
+        }
+        if (!hasDigit) return false;
+
+        mantissa = digits;
+        fractionDigits = Math.max(decimals, 0);
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.List;
+
+/**
+ * View acting as if it were the concatenation of multiple arrays of pairs of {@code double}, such as the arrays of the
+ * positions of the objects where even positions represent x-coordinates and odd ones represent y-coordinates. Contrary
+ * to a {@code ListConcatenation<CartesianCoordinates>}, reading a pair does not create any object. For performance
+ * reasons, this class stores its underlying arrays without copying them.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ * @see ListConcatenation
+ */
+public final class DoublePairConcatenation {
+    private final double[][] arrays;
+    private final int[] starts;  // index of the first pair of each array, followed by the number of pairs
+
+    /**
+     * Creates a concatenation of the provided arrays of pairs
+     *
+     * @param arrays the arrays to concatenate, each of them containing pairs of values
+     * @throws IllegalArgumentException if one of the arrays has an odd length
+     */
+    public DoublePairConcatenation(List<double[]> arrays) {
+        this.arrays = arrays.toArray(new double[0][]);
+        this.starts = new int[this.arrays.length + 1];
+        for (int k = 0; k < this.arrays.length; ++k) {
+            Preconditions.checkArgument(this.arrays[k].length % 2 == 0);
+            starts[k + 1] = starts[k] + this.arrays[k].length / 2;
+        }
+    }
+
+    /**
+     * Gives the number of pairs of the concatenation
+     *
+     * @return the sum of the numbers of pairs of the underlying arrays
+     */
+    public int size() {
+        return starts[arrays.length];
+    }
+
+    /**
+     * Gives the first value of the pair at the given index
+     *
+     * @param i the index the pair would have if the underlying arrays were concatenated
+     * @return the first value of the pair, the x-coordinate for a position
+     * @throws IndexOutOfBoundsException if the index is not in [0, size()[
+     * @implNote this method runs in O(log n), where n is the number of arrays that are concatenated
+     */
+    public double x(int i) {
+        int k = ListConcatenation.listIndex(starts, arrays.length, i);
+        return arrays[k][2 * (i - starts[k])];
+    }
+
+    /**
+     * Gives the second value of the pair at the given index
+     *
+     * @param i the index the pair would have if the underlying arrays were concatenated
+     * @return the second value of the pair, the y-coordinate for a position
+     * @throws IndexOutOfBoundsException if the index is not in [0, size()[
+     * @implNote this method runs in O(log n), where n is the number of arrays that are concatenated
+     */
+    public double y(int i) {
+        int k = ListConcatenation.listIndex(starts, arrays.length, i);
+        return arrays[k][2 * (i - starts[k]) + 1];
+    }
+}
@@ -35,6 +35,17 @@ public enum Epoch {
         return milliseconds / MILLISECONDS_PER_DAY;
     }
 
+    /**
+     * Gives the moment separated from this epoch by the given number of days, to the millisecond
+     *
+     * @param days number of days separating the moment from this epoch
+     *
+     * @return the moment the given number of days after this epoch, in UTC
+     */
+    public ZonedDateTime plusDays(double days) {
+        return zonedDateTime.plus(Math.round(days * MILLISECONDS_PER_DAY), ChronoUnit.MILLIS);
+    }
+
     /**
      * Computes the number of julian centuries separating the provided moment in time from this epoch
      *
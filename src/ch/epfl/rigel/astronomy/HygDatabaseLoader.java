@@ -1,13 +1,15 @@
 package ch.epfl.rigel.astronomy;
 
-import ch.epfl.rigel.coordinates.EquatorialCoordinates;
-import ch.epfl.rigel.internationalization.Translation;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.function.Function;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Class loading stars from a stream
@@ -16,7 +18,38 @@ import java.util.function.Function;
  * @author Alexis Horner (315780)
  */
 public enum HygDatabaseLoader implements StarCatalogue.Loader {
-    INSTANCE;
+    /**
+     * Loader parsing the stream sequentially, while it is read
+     */
+    INSTANCE {
+        @Override
+        public void load(InputStream inputStream, StarCatalogue.Builder builder, StarFilter filter)
+                throws IOException {
+            StarSink sink = sinkOf(builder);
+            try (inputStream) {
+                CsvTokenizer row = new CsvTokenizer(inputStream, Column.COUNT);
+                row.nextRow();  // skip the first line
+                while (row.nextRow()) {  // read lines one by one
+                    addStar(row, sink, filter);
+                }
+            }
+        }
+    },
+
+    /**
+     * Loader reading the whole stream, then parsing it in chunks on the common fork/join pool. The stars are added to
+     * the builder in the order of the stream, exactly as with {@link #INSTANCE}.
+     */
+    PARALLEL {
+        @Override
+        public void load(InputStream inputStream, StarCatalogue.Builder builder, StarFilter filter)
+                throws IOException {
+            loadInParallel(inputStream, builder, filter);
+        }
+    };
+
+    private static final int MIN_CHUNK_SIZE = 1 << 16;  // in bytes
+    private static final int CHUNKS_PER_THREAD = 4;     // allows balancing the load between threads
 
     /**
      * Creates new stars with the data from the given stream and adds them to the given builder
@@ -28,109 +61,284 @@ public enum HygDatabaseLoader implements StarCatalogue.Loader {
      */
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            String line;
-            reader.readLine(); // skip the first line
-            while ((line = reader.readLine()) != null) {  // read lines one by one
-                String[] elements = line.split(",");
-
-                // extract ID (default = 0)
-                int hipparcosId = extractValue(elements, Column.HIP, Integer::parseInt, 0);
-
-                String constellation = elements[Column.CON.ordinal()];
-
-                // function used to generate the default name for the star in case the `name column` is empty
-                // returns `bayer column` ("?" if absent) + " " + `constellation column`
-                Function<String[], String> defaultNameConstructor =
-                        (values) -> extractValue(values, Column.BAYER, "?") + " " + constellation;
+        load(inputStream, builder, StarFilter.ALL);
+    }
 
-                String name = extractValue(elements, Column.PROPER, defaultNameConstructor);
+    /**
+     * Creates new stars with the data from the given stream and adds the ones accepted by the given filter to the
+     * given builder. The filter is applied before the names of the stars are decoded, and the rejected stars having a
+     * hipparcos ID are reserved in the builder without being created.
+     *
+     * @param inputStream stream providing the data to construct the stars
+     * @param builder     builder to which to add the stars
+     * @param filter      filter selecting the stars to add
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public abstract void load(InputStream inputStream, StarCatalogue.Builder builder, StarFilter filter)
+            throws IOException;
 
-                double ra = Double.parseDouble(elements[Column.RARAD.ordinal()]);
-                double dec = Double.parseDouble(elements[Column.DECRAD.ordinal()]);
+    /**
+     * Reads the whole stream, splits it at line boundaries into chunks and parses them in parallel. Only the parsing
+     * is done in parallel: the stars are added to the builder on the calling thread, in the order of the stream.
+     *
+     * @param inputStream stream providing the data to construct the stars
+     * @param builder     builder to which to add the stars
+     * @param filter      filter selecting the stars to add
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void loadInParallel(InputStream inputStream, StarCatalogue.Builder builder, StarFilter filter)
+            throws IOException {
+        byte[] data;
+        try (inputStream) {
+            data = inputStream.readAllBytes();
+        }
 
-                // extract magnitude (default = 0)
-                float magnitude = extractValue(elements, Column.MAG, Float::parseFloat, 0.f);
+        int start = nextLineStart(data, 0);  // skip the first line
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunkCount = Math.max(1, Math.min(CHUNKS_PER_THREAD * pool.getParallelism(),
+                                              (data.length - start) / MIN_CHUNK_SIZE));
 
-                // extract B-V color index (default = 0)
-                float colorIndex = extractValue(elements, Column.CI, Float::parseFloat, 0.f);
+        List<Callable<ParsedChunk>> tasks = new ArrayList<>(chunkCount);
+        int chunkStart = start;
+        for (int i = 1; i <= chunkCount; ++i) {
+            int chunkEnd = i == chunkCount ?
+                           data.length :
+                           nextLineStart(data, start + (int) ((long) (data.length - start) * i / chunkCount));
+            chunkEnd = Math.max(chunkEnd, chunkStart);
+            int from = chunkStart;
+            int to = chunkEnd;
+            tasks.add(() -> ParsedChunk.parse(data, from, to, filter));
+            chunkStart = chunkEnd;
+        }
 
-                EquatorialCoordinates coordinates = EquatorialCoordinates.of(ra, dec);
-                Star star = new Star(hipparcosId, Translation.constant(name), coordinates, magnitude, colorIndex);
+        // the futures are given in the order of the tasks, hence in the order of the stream
+        StarSink sink = sinkOf(builder);
+        for (Future<ParsedChunk> future : pool.invokeAll(tasks)) {
+            chunkResult(future).addTo(sink);
+        }
+    }
 
-                builder.addStar(star);
-            }
+    /**
+     * Gives the index of the first byte of the line following the given index
+     *
+     * @param data  array containing the lines
+     * @param index index of a byte in the array
+     *
+     * @return index following the first new line character at or after {@code index}, or the length of the array if
+     * there is none
+     */
+    private static int nextLineStart(byte[] data, int index) {
+        for (int i = index; i < data.length; ++i) {
+            if (data[i] == '\n') return i + 1;
         }
+        return data.length;
     }
 
     /**
-     * Extracts a value of the given type located at the given column in the given list. The provided list must
-     * represent the entries of the star catalogue's associated .csv file.
+     * Waits for the given parsing task to complete and gives its result, rethrowing the exception it threw if any
+     *
+     * @param future future of the parsing task
      *
-     * @param elements              list storing the entries of a line of the .csv file containing the stars
-     * @param column                enum value representing the column in which the entry of interest is located
-     * @param converter             function converting the entry from {@code String} to the given type
-     * @param defaultValueGenerator function constructing the default value in case the entry is empty
-     * @param <T>                   type of the value to extract
+     * @return the parsed chunk
      *
-     * @return data stored at the given column converted to the given type or a default value constructed using the
-     * given function
+     * @throws IOException if the thread is interrupted or the task threw an {@code IOException}
      */
-    private <T> T extractValue(String[] elements, Column column, Function<String, T> converter,
-                               Function<String[], T> defaultValueGenerator) {
-        String element = elements[column.ordinal()];
-        if (element.isEmpty()) return defaultValueGenerator.apply(elements);
-        return converter.apply(element);
+    private static ParsedChunk chunkResult(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
     }
 
     /**
-     * Extracts a value of the given type located at the given column in the given list. The provided list must
-     * represent the entries of the star catalogue's associated .csv file.
+     * Gives the sink adding the accepted stars to the given builder and reserving the other ones in it
+     *
+     * @param builder builder to which to add the stars
      *
-     * @param elements     list storing the entries of a line of the .csv file containing the stars
-     * @param column       enum value representing the column in which the entry of interest is located
-     * @param converter    function converting the entry from {@code String} to the given type
-     * @param defaultValue value to use in case the entry is empty
-     * @param <T>          type of the value to extract
+     * @return sink of the stars of the builder
+     */
+    private static StarSink sinkOf(StarCatalogue.Builder builder) {
+        return (accepted, hipparcosId, name, ra, dec, magnitude, colorIndex) -> {
+            if (accepted) {
+                builder.addStar(hipparcosId, name, ra, dec, magnitude, colorIndex);
+            } else {
+                builder.reserveStar(hipparcosId, name, ra, dec, magnitude, colorIndex);
+            }
+        };
+    }
+
+    /**
+     * Gives the star described by the current row of the given tokenizer to the given sink, telling whether it is
+     * accepted by the given filter. Only the columns used by the star are converted, and the name is not decoded if
+     * the star is simply discarded.
      *
-     * @return data stored at the given column converted to the given type or the given default value
+     * @param row    tokenizer positioned on a row of the .csv file containing the stars
+     * @param sink   sink to which to give the star
+     * @param filter filter selecting the stars to add
      */
-    private <T> T extractValue(String[] elements, Column column, Function<String, T> converter, T defaultValue) {
-        return extractValue(elements, column, converter, (Function<String[], T>) foo -> defaultValue);
+    private static void addStar(CsvTokenizer row, StarSink sink, StarFilter filter) {
+        // extract ID (default = 0)
+        int hipparcosId = row.isEmpty(Column.HIP.ordinal()) ? 0 : row.parseInt(Column.HIP.ordinal());
+
+        double dec = row.parseDouble(Column.DECRAD.ordinal());
+        // extract magnitude (default = 0)
+        float magnitude = row.isEmpty(Column.MAG.ordinal()) ? 0f : row.parseFloat(Column.MAG.ordinal());
+
+        boolean accepted = filter.accepts(dec, magnitude);
+        if (!accepted && hipparcosId == 0) return;  // no asterism can refer to the star
+
+        String name = name(row);
+        double ra = row.parseDouble(Column.RARAD.ordinal());
+        // extract B-V color index (default = 0)
+        float colorIndex = row.isEmpty(Column.CI.ordinal()) ? 0f : row.parseFloat(Column.CI.ordinal());
+
+        sink.add(accepted, hipparcosId, name, ra, dec, magnitude, colorIndex);
     }
 
     /**
-     * Extracts a string located at the given column in the given list. The provided list must represent the entries of
-     * the star catalogue's associated .csv file.
+     * Gives the name of the star described by the current row of the given tokenizer
      *
-     * @param elements              list storing the entries of a line of the .csv file containing the stars
-     * @param column                enum value representing the column in which the entry of interest is located
-     * @param defaultValueGenerator function constructing the default value in case the entry is empty
+     * @param row tokenizer positioned on a row of the .csv file containing the stars
      *
-     * @return data stored at the given column or a default value constructed using the given function
+     * @return the `name column`, or the default name if it is empty
      */
-    private String extractValue(String[] elements, Column column, Function<String[], String> defaultValueGenerator) {
-        return extractValue(elements, column, Function.identity(), defaultValueGenerator);
+    private static String name(CsvTokenizer row) {
+        // if the `name column` is empty, the name is `bayer column` ("?" if absent) + " " + `constellation column`
+        return row.isEmpty(Column.PROPER.ordinal()) ?
+               defaultName(row) :
+               row.string(Column.PROPER.ordinal());
     }
 
     /**
-     * Extracts a string located at the given column in the given list. The provided list must represent the entries of
-     * the star catalogue's associated .csv file.
+     * Constructs the name of a star whose `name column` is empty
      *
-     * @param elements     list storing the entries of a line of the .csv file containing the stars
-     * @param column       enum value representing the column in which the entry of interest is located
-     * @param defaultValue value to use in case the entry is empty
+     * @param row tokenizer positioned on a row of the .csv file containing the stars
      *
-     * @return data stored at the given column or the given default value
+     * @return `bayer column` ("?" if absent) + " " + `constellation column`
+     */
+    private static String defaultName(CsvTokenizer row) {
+        String bayer = row.isEmpty(Column.BAYER.ordinal()) ? "?" : row.string(Column.BAYER.ordinal());
+        return bayer + " " + row.string(Column.CON.ordinal());
+    }
+
+    /**
+     * Receiver of the stars read from the .csv file which are not simply discarded
      */
-    private String extractValue(String[] elements, Column column, String defaultValue) {
-        return extractValue(elements, column, Function.identity(), defaultValue);
+    @FunctionalInterface
+    private interface StarSink {
+        /**
+         * Receives a star with the given characteristics
+         *
+         * @param accepted    whether the star is accepted by the filter, or must be reserved otherwise
+         * @param hipparcosId hipparcos identification number of the star
+         * @param name        name of the star
+         * @param ra          right ascension of the star, in radians
+         * @param dec         declination of the star, in radians
+         * @param magnitude   apparent magnitude of the star
+         * @param colorIndex  color index of the star
+         */
+        void add(boolean accepted, int hipparcosId, String name, double ra, double dec, float magnitude,
+                 float colorIndex);
+    }
+
+    /**
+     * Values of the stars of a chunk of the .csv file, stored column by column
+     */
+    private static final class ParsedChunk implements StarSink {
+        private static final int ESTIMATED_ROW_SIZE = 160;  // in bytes
+
+        private int count = 0;
+        private boolean[] accepted;  // false for the stars to reserve
+        private int[] hipparcosIds;
+        private String[] names;
+        private double[] ra, dec;
+        private float[] magnitudes, colorIndices;
+
+        private ParsedChunk(int capacity) {
+            accepted = new boolean[capacity];
+            hipparcosIds = new int[capacity];
+            names = new String[capacity];
+            ra = new double[capacity];
+            dec = new double[capacity];
+            magnitudes = new float[capacity];
+            colorIndices = new float[capacity];
+        }
+
+        /**
+         * Parses the rows contained in the given region of the given array, discarding the stars rejected by the
+         * given filter that cannot be referred to by an asterism
+         *
+         * @param data   array containing the .csv file
+         * @param from   index of the first byte of the first row of the chunk
+         * @param to     index following the last byte of the last row of the chunk
+         * @param filter filter selecting the stars to add
+         *
+         * @return the values of the stars of the chunk
+         *
+         * @throws IOException never thrown since the data is already in memory
+         */
+        private static ParsedChunk parse(byte[] data, int from, int to, StarFilter filter) throws IOException {
+            ParsedChunk chunk = new ParsedChunk((to - from) / ESTIMATED_ROW_SIZE + 1);
+            CsvTokenizer row = new CsvTokenizer(data, from, to, Column.COUNT);
+            while (row.nextRow()) addStar(row, chunk, filter);
+            return chunk;
+        }
+
+        @Override
+        public void add(boolean starAccepted, int hipparcosId, String name, double starRa, double starDec,
+                        float magnitude, float colorIndex) {
+            if (count == hipparcosIds.length) grow();
+            accepted[count] = starAccepted;
+            hipparcosIds[count] = hipparcosId;
+            names[count] = name;
+            ra[count] = starRa;
+            dec[count] = starDec;
+            magnitudes[count] = magnitude;
+            colorIndices[count] = colorIndex;
+            ++count;
+        }
+
+        private void grow() {
+            int capacity = 2 * hipparcosIds.length;
+            accepted = Arrays.copyOf(accepted, capacity);
+            hipparcosIds = Arrays.copyOf(hipparcosIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            ra = Arrays.copyOf(ra, capacity);
+            dec = Arrays.copyOf(dec, capacity);
+            magnitudes = Arrays.copyOf(magnitudes, capacity);
+            colorIndices = Arrays.copyOf(colorIndices, capacity);
+        }
+
+        /**
+         * Gives the stars of the chunk to the given sink, in the order of the chunk
+         *
+         * @param sink sink to which to give the stars
+         */
+        private void addTo(StarSink sink) {
+            for (int i = 0; i < count; ++i) {
+                sink.add(accepted[i], hipparcosIds[i], names[i], ra[i], dec[i], magnitudes[i], colorIndices[i]);
+            }
+        }
     }
 
     private enum Column {
         ID, HIP, HD, HR, GL, BF, PROPER, RA, DEC, DIST, PMRA, PMDEC,
         RV, MAG, ABSMAG, SPECT, CI, X, Y, Z, VX, VY, VZ,
         RARAD, DECRAD, PMRARAD, PMDECRAD, BAYER, FLAM, CON,
-        COMP, COMP_PRIMARY, BASE, LUM, VAR, VAR_MIN, VAR_MAX
+        COMP, COMP_PRIMARY, BASE, LUM, VAR, VAR_MIN, VAR_MAX;
+
+        // the columns following the constellation are never used, so they are not located by the tokenizer
+        private static final int COUNT = CON.ordinal() + 1;
     }
 }
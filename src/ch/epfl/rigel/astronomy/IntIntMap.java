@@ -0,0 +1,171 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+/**
+ * Map from {@code int} keys to {@code int} values, using open addressing with linear probing. Contrary to a
+ * {@code HashMap<Integer, Integer>}, neither the keys nor the values are boxed and no object is allocated per entry.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class IntIntMap {
+    private static final int MIN_CAPACITY = 8;
+    // 2^32 divided by the golden ratio; the high bits of the product of a key by this number depend on all the bits
+    // of the key, hence they spread over the table the keys differing only by their high bits
+    private static final int INT_PHI = 0x9E3779B9;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int shift;  // 32 minus the base-2 logarithm of the capacity, the slot of a key being in the high bits
+    private int size;
+
+    /**
+     * Constructs an empty map
+     *
+     * @param expectedSize number of entries the map can contain without growing
+     * @param missingValue value returned when a key is not in the map
+     */
+    IntIntMap(int expectedSize, int missingValue) {
+        Preconditions.checkArgument(expectedSize >= 0);
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        // the load factor is kept at most 1/2, so that the probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, 2 * size) - 1) << 1;
+        Preconditions.checkArgument(capacity > 0);
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int slot(int key) {
+        return (key * INT_PHI) >>> shift;
+    }
+
+    /**
+     * Gives the index of the slot containing the given key, or of the free slot where it would be inserted
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (used[i] && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Gives the number of entries in the map
+     *
+     * @return number of entries in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gives the value associated to the given key
+     *
+     * @param key key of the entry
+     *
+     * @return value associated to the key, or the missing value if the key is not in the map
+     */
+    int get(int key) {
+        int i = find(key);
+        return used[i] ? values[i] : missingValue;
+    }
+
+    /**
+     * Informs whether the given key is in the map
+     *
+     * @param key key of the entry
+     *
+     * @return {@code true} if the key is in the map
+     */
+    boolean containsKey(int key) {
+        return used[find(key)];
+    }
+
+    /**
+     * Associates the given value to the given key, replacing the previous value if any
+     *
+     * @param key   key of the entry
+     * @param value value to associate to the key
+     */
+    void put(int key, int value) {
+        int i = find(key);
+        if (!used[i]) {
+            if (2 * (size + 1) > keys.length) {
+                rehash(2 * keys.length);
+                i = find(key);
+            }
+            used[i] = true;
+            keys[i] = key;
+            ++size;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Associates the given value to the given key if the key is not in the map yet
+     *
+     * @param key   key of the entry
+     * @param value value to associate to the key
+     */
+    void putIfAbsent(int key, int value) {
+        if (!containsKey(key)) put(key, value);
+    }
+
+    /**
+     * Removes the entry with the given key
+     *
+     * @param key key of the entry
+     *
+     * @return value that was associated to the key, or the missing value if the key was not in the map
+     */
+    int remove(int key) {
+        int i = find(key);
+        if (!used[i]) return missingValue;
+        int value = values[i];
+
+        // the following entries of the probe sequence are shifted back, so that no tombstone is needed
+        int mask = keys.length - 1;
+        int hole = i;
+        for (int j = (i + 1) & mask; used[j]; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // the entry can fill the hole only if its home slot is not cyclically in ]hole, j]
+            boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+            if (movable) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        used[hole] = false;
+        --size;
+        return value;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldUsed[i]) {
+                int j = find(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EclipticCoordinates;
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static java.lang.Math.asin;
+import static java.lang.Math.atan2;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+
+/**
+ * Model evaluating another one at sparse keyframes only, and interpolating the characteristics of the object between
+ * them. The keyframes are placed so that the interpolation error at the middle of each interval, where it is the
+ * largest for smooth motions, is bounded: the angles (positions, angular sizes, ...) differ from the exact ones by at
+ * most a maximal angular error, and the other values (phase, magnitude) by at most a maximal value error.
+ * <p>
+ * When the time goes past the keyframes, several intervals are computed at once in that direction, so that the
+ * following times are interpolated. The keyframes behind are dropped. At a keyframe, the object of the underlying
+ * model is returned as is. Each keyframe is computed with the conversion to equatorial coordinates of its own time,
+ * hence the conversion given to {@link #at(double, EclipticToEquatorialConversion)} is ignored.
+ *
+ * @param <O> type of the celestial object to model
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class InterpolatingModel<O extends CelestialObject> implements CelestialObjectModel<O> {
+    private static final double MIN_STEP = 1.0 / 86_400;  // one second, in days
+    private static final int REFILL_INTERVALS = 8;
+    private static final int MAX_KEYFRAMES = 64;
+
+    // maximal interval between keyframes, in days
+    private static final double SUN_MAX_STEP = 8;
+    private static final double MOON_MAX_STEP = 0.5;
+    private static final double PLANET_MAX_STEP = 4;
+
+    private final CelestialObjectModel<O> model;
+    private final Interpolator<O> interpolator;
+    private final double maxStep;
+    private final double maxAngularError;
+    private final double maxValueError;
+
+    private final NavigableMap<Double, O> keyframes = new TreeMap<>();
+    private double step;  // length of the next interval to try
+    private double lastDaysSinceJ2010 = Double.NaN;
+
+    private InterpolatingModel(CelestialObjectModel<O> model, Interpolator<O> interpolator, double maxStep,
+                               double maxAngularError, double maxValueError) {
+        Preconditions.checkArgument(maxAngularError > 0 && maxValueError > 0);
+        this.model = Objects.requireNonNull(model);
+        this.interpolator = interpolator;
+        this.maxStep = maxStep;
+        this.maxAngularError = maxAngularError;
+        this.maxValueError = maxValueError;
+    }
+
+    /**
+     * Constructs an interpolating model of the sun
+     *
+     * @param maxAngularError maximal error of the position, of the angular size and of the ecliptic position, in
+     *                        radians
+     * @param maxValueError   maximal error of the other values
+     *
+     * @return interpolating model of the sun
+     *
+     * @throws IllegalArgumentException if one of the errors is not strictly positive
+     */
+    public static InterpolatingModel<Sun> ofSun(double maxAngularError, double maxValueError) {
+        return new InterpolatingModel<>(SunModel.SUN, new SunInterpolator(), SUN_MAX_STEP,
+                                        maxAngularError, maxValueError);
+    }
+
+    /**
+     * Constructs an interpolating model of the moon
+     *
+     * @param maxAngularError maximal error of the position and of the angular size, in radians
+     * @param maxValueError   maximal error of the phase
+     *
+     * @return interpolating model of the moon
+     *
+     * @throws IllegalArgumentException if one of the errors is not strictly positive
+     */
+    public static InterpolatingModel<Moon> ofMoon(double maxAngularError, double maxValueError) {
+        return new InterpolatingModel<>(MoonModel.MOON, new MoonInterpolator(), MOON_MAX_STEP,
+                                        maxAngularError, maxValueError);
+    }
+
+    /**
+     * Constructs an interpolating model of the given planet
+     *
+     * @param planetModel     model of the planet
+     * @param maxAngularError maximal error of the position and of the angular size, in radians
+     * @param maxValueError   maximal error of the magnitude
+     *
+     * @return interpolating model of the planet
+     *
+     * @throws IllegalArgumentException if one of the errors is not strictly positive
+     */
+    public static InterpolatingModel<Planet> ofPlanet(PlanetModel planetModel, double maxAngularError,
+                                                      double maxValueError) {
+        return new InterpolatingModel<>(planetModel, new PlanetInterpolator(), PLANET_MAX_STEP,
+                                        maxAngularError, maxValueError);
+    }
+
+    /**
+     * Gives the object at the given time, interpolated between the two keyframes surrounding it
+     *
+     * @param daysSinceJ2010                 time at which the object is observed, in days since the J2010 epoch
+     * @param eclipticToEquatorialConversion ignored, each keyframe using the conversion of its own time
+     *
+     * @return celestial object
+     */
+    @Override
+    public synchronized O at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion) {
+        if (keyframes.isEmpty()
+            || daysSinceJ2010 < keyframes.firstKey() - REFILL_INTERVALS * maxStep
+            || daysSinceJ2010 > keyframes.lastKey() + REFILL_INTERVALS * maxStep) {
+            // the time jumped too far from the keyframes, they are computed again from it
+            keyframes.clear();
+            keyframes.put(daysSinceJ2010, exact(daysSinceJ2010));
+            step = maxStep;
+        }
+
+        // the keyframes are refilled ahead of the time, and dropped behind it
+        if (daysSinceJ2010 > keyframes.lastKey()) {
+            refill(daysSinceJ2010, 1);
+        } else if (daysSinceJ2010 < keyframes.firstKey()) {
+            refill(daysSinceJ2010, -1);
+        }
+        boolean forward = !(daysSinceJ2010 < lastDaysSinceJ2010);
+        lastDaysSinceJ2010 = daysSinceJ2010;
+        while (keyframes.size() > MAX_KEYFRAMES) {
+            if (forward) keyframes.pollFirstEntry();
+            else keyframes.pollLastEntry();
+        }
+
+        Map.Entry<Double, O> before = keyframes.floorEntry(daysSinceJ2010);
+        if (before.getKey() == daysSinceJ2010) return before.getValue();
+        Map.Entry<Double, O> after = keyframes.ceilingEntry(daysSinceJ2010);
+        double fraction = (daysSinceJ2010 - before.getKey()) / (after.getKey() - before.getKey());
+        return interpolator.interpolate(before.getValue(), after.getValue(), fraction);
+    }
+
+    /**
+     * Adds keyframes in the given direction until the given time is covered, plus a few more intervals
+     */
+    private void refill(double daysSinceJ2010, int direction) {
+        while (direction > 0 ? keyframes.lastKey() < daysSinceJ2010 : keyframes.firstKey() > daysSinceJ2010) {
+            addInterval(direction);
+        }
+        for (int i = 0; i < REFILL_INTERVALS; ++i) addInterval(direction);
+    }
+
+    /**
+     * Adds a keyframe after the last one or before the first one, halving the interval until the object interpolated
+     * at its middle is close enough to the exact one
+     */
+    private void addInterval(int direction) {
+        double start = direction > 0 ? keyframes.lastKey() : keyframes.firstKey();
+        O startObject = keyframes.get(start);
+
+        double length = step;
+        O endObject = exact(start + direction * length);
+        while (length > MIN_STEP) {
+            O middleObject = exact(start + direction * (length / 2));
+            if (isClose(interpolator.interpolate(startObject, endObject, 0.5), middleObject)) break;
+            length /= 2;
+            endObject = middleObject;
+        }
+        keyframes.put(start + direction * length, endObject);
+        step = Math.min(2 * length, maxStep);
+    }
+
+    private O exact(double daysSinceJ2010) {
+        return model.at(daysSinceJ2010, new EclipticToEquatorialConversion(Epoch.J2010.plusDays(daysSinceJ2010)));
+    }
+
+    private boolean isClose(O interpolated, O exact) {
+        return angularDistance(interpolated.equatorialPos().ra(), interpolated.equatorialPos().dec(),
+                               exact.equatorialPos().ra(), exact.equatorialPos().dec()) <= maxAngularError
+               && Math.abs(interpolated.angularSize() - exact.angularSize()) <= maxAngularError
+               && interpolator.isClose(interpolated, exact, maxAngularError, maxValueError);
+    }
+
+    /**
+     * Computes the angle between two directions given by their spherical coordinates
+     */
+    private static double angularDistance(double lon1, double lat1, double lon2, double lat2) {
+        double dx = cos(lat1) * cos(lon1) - cos(lat2) * cos(lon2);
+        double dy = cos(lat1) * sin(lon1) - cos(lat2) * sin(lon2);
+        double dz = sin(lat1) - sin(lat2);
+        double chord = sqrt(dx * dx + dy * dy + dz * dz);
+        return 2 * asin(Math.min(1, chord / 2));
+    }
+
+    /**
+     * Interpolates linearly between two directions given by their spherical coordinates, along their unit vectors
+     *
+     * @return the longitude, in [0, 2pi[, and the latitude of the interpolated direction
+     */
+    private static double[] interpolateDirection(double lon1, double lat1, double lon2, double lat2,
+                                                 double fraction) {
+        double x = (1 - fraction) * cos(lat1) * cos(lon1) + fraction * cos(lat2) * cos(lon2);
+        double y = (1 - fraction) * cos(lat1) * sin(lon1) + fraction * cos(lat2) * sin(lon2);
+        double z = (1 - fraction) * sin(lat1) + fraction * sin(lat2);
+        double lon = Angle.normalizePositive(atan2(y, x));
+        double lat = atan2(z, sqrt(x * x + y * y));
+        return new double[]{lon < Angle.TAU ? lon : 0, lat};  // rounding may give a full turn
+    }
+
+    private static EquatorialCoordinates interpolatePosition(CelestialObject a, CelestialObject b, double fraction) {
+        double[] direction = interpolateDirection(a.equatorialPos().ra(), a.equatorialPos().dec(),
+                                                  b.equatorialPos().ra(), b.equatorialPos().dec(), fraction);
+        return EquatorialCoordinates.of(direction[0], direction[1]);
+    }
+
+    private static float interpolateValue(double a, double b, double fraction) {
+        return (float) (a + fraction * (b - a));
+    }
+
+    /**
+     * Creates objects whose characteristics are interpolated between the ones of two objects
+     */
+    private interface Interpolator<O extends CelestialObject> {
+        /**
+         * Creates an object between the two given ones
+         *
+         * @param a        first object
+         * @param b        second object
+         * @param fraction position between the first (0) and the second (1) object
+         *
+         * @return the interpolated object
+         */
+        O interpolate(O a, O b, double fraction);
+
+        /**
+         * Checks whether the characteristics specific to the type of the objects are close enough, the position and
+         * the angular size being checked by the model
+         *
+         * @param interpolated    interpolated object
+         * @param exact           exact object
+         * @param maxAngularError maximal error of the angles
+         * @param maxValueError   maximal error of the other values
+         *
+         * @return true if the characteristics are close enough
+         */
+        boolean isClose(O interpolated, O exact, double maxAngularError, double maxValueError);
+    }
+
+    private static final class SunInterpolator implements Interpolator<Sun> {
+        @Override
+        public Sun interpolate(Sun a, Sun b, double fraction) {
+            double[] ecliptic = interpolateDirection(a.eclipticPos().lon(), a.eclipticPos().lat(),
+                                                     b.eclipticPos().lon(), b.eclipticPos().lat(), fraction);
+            return new Sun(EclipticCoordinates.of(ecliptic[0], ecliptic[1]), interpolatePosition(a, b, fraction),
+                           interpolateValue(a.angularSize(), b.angularSize(), fraction),
+                           interpolateValue(a.meanAnomaly(), b.meanAnomaly(), fraction));
+        }
+
+        @Override
+        public boolean isClose(Sun interpolated, Sun exact, double maxAngularError, double maxValueError) {
+            // the mean anomaly increases linearly with time, its interpolation is only affected by rounding errors
+            return angularDistance(interpolated.eclipticPos().lon(), interpolated.eclipticPos().lat(),
+                                   exact.eclipticPos().lon(), exact.eclipticPos().lat()) <= maxAngularError;
+        }
+    }
+
+    private static final class MoonInterpolator implements Interpolator<Moon> {
+        @Override
+        public Moon interpolate(Moon a, Moon b, double fraction) {
+            return new Moon(interpolatePosition(a, b, fraction),
+                            interpolateValue(a.angularSize(), b.angularSize(), fraction),
+                            interpolateValue(phase(a), phase(b), fraction));
+        }
+
+        @Override
+        public boolean isClose(Moon interpolated, Moon exact, double maxAngularError, double maxValueError) {
+            return Math.abs(phase(interpolated) - phase(exact)) <= maxValueError;
+        }
+
+        private static float phase(Moon moon) {
+            return moon.getAttribute(FloatAttribute.Type.PHASE).value();
+        }
+    }
+
+    private static final class PlanetInterpolator implements Interpolator<Planet> {
+        @Override
+        public Planet interpolate(Planet a, Planet b, double fraction) {
+            return new Planet(a.translatedName(), a.identifier(), interpolatePosition(a, b, fraction),
+                              interpolateValue(a.angularSize(), b.angularSize(), fraction),
+                              interpolateValue(a.magnitude(), b.magnitude(), fraction));
+        }
+
+        @Override
+        public boolean isClose(Planet interpolated, Planet exact, double maxAngularError, double maxValueError) {
+            return Math.abs(interpolated.magnitude() - exact.magnitude()) <= maxValueError;
+        }
+    }
+}
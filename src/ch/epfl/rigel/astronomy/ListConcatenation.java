@@ -1,5 +1,6 @@
 package ch.epfl.rigel.astronomy;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -8,22 +9,36 @@ import java.util.NoSuchElementException;
  * Iterable view acting as if it were the concatenation of multiple lists. Beside being iterable, this view allows
  * random access to its elements. For performance reasons, this class stores its underlying lists without copying them.
  *
- * @implNote because of the way this class is implemented, iteration is faster than random access when reading the
- * entire list and should be preferred when possible.
+ * @implNote random access looks for the list containing the element by a binary search in the table of the indices
+ * at which the lists start, iteration is nevertheless faster when reading the entire list.
  * @author Antonio Jimenez (314363)
  * @author Alexis Horner (315780)
  */
 public final class ListConcatenation<T> implements Iterable<T> {  /* BONUS MODIFICATION: allows us to efficiently
                                                                                          merge lists */
     private final List<List<? extends T>> lists;  // NOTE : the wildcard is necessary to allow subclass concatenation
+    private final int[] starts;  // index of the first element of each list, followed by the size of the concatenation
 
     /**
-     * Creates a concatenation of the provided lists.
+     * Creates a concatenation of the provided lists. The sizes of the lists must not change afterwards.
      *
      * @param lists the lists to concatenate
      */
     public ListConcatenation(List<List<? extends T>> lists) {
         this.lists = List.copyOf(lists);
+        this.starts = new int[this.lists.size() + 1];
+        for (int k = 0; k < this.lists.size(); ++k) {
+            starts[k + 1] = Math.addExact(starts[k], this.lists.get(k).size());
+        }
+    }
+
+    /**
+     * Gives the number of elements of the concatenation
+     *
+     * @return the sum of the sizes of the underlying lists
+     */
+    public int size() {
+        return starts[lists.size()];
     }
 
     /**
@@ -41,16 +56,33 @@ public final class ListConcatenation<T> implements Iterable<T> {  /* BONUS MODIF
      *
      * @param i the index the object would have if the underlying lists where concatenated
      * @return the object stored at the given index.
-     * @implNote this method runs in O(n), where n is the number of lists that are concatenated
+     * @throws IndexOutOfBoundsException if the index is not in [0, size()[
+     * @implNote this method runs in O(log n), where n is the number of lists that are concatenated
      */
     public T get(int i) {
-        int j = i;
-        for (List<? extends T> list : lists) {
-            int size = list.size();
-            if (j < size) return list.get(j);
-            j -= size;
+        int k = listIndex(starts, lists.size(), i);
+        return lists.get(k).get(i - starts[k]);
+    }
+
+    /**
+     * Gives the index of the list containing the element at the given index, the last one among the lists starting
+     * there, so that empty lists are skipped
+     *
+     * @param starts    indices of the first element of each list, followed by the size of the concatenation
+     * @param listCount number of lists
+     * @param i         index of the element in the concatenation
+     * @return the index of the list containing the element
+     * @throws IndexOutOfBoundsException if the index is not in [0, starts[listCount][
+     */
+    static int listIndex(int[] starts, int listCount, int i) {
+        if (i < 0 || i >= starts[listCount]) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + starts[listCount]);
         }
-        throw new IndexOutOfBoundsException("The provided index is too big");
+        int k = Arrays.binarySearch(starts, 0, listCount, i);
+        if (k < 0) return -k - 2;
+        // several lists may start at the same index if some are empty
+        while (starts[k + 1] == i) ++k;
+        return k;
     }
 
     private static class ConcatenationIterator<S> implements Iterator<S> {
@@ -75,8 +107,9 @@ public final class ListConcatenation<T> implements Iterable<T> {  /* BONUS MODIF
          */
         @Override
         public boolean hasNext() {
-            if (currentIterator == null) return false;
-            return currentIterator.hasNext() || listIndex < lists.size() - 1;
+            // the empty lists are skipped
+            while (currentIterator != null && !currentIterator.hasNext()) setListIndex(listIndex + 1);
+            return currentIterator != null;
         }
 
         /**
@@ -88,7 +121,6 @@ public final class ListConcatenation<T> implements Iterable<T> {  /* BONUS MODIF
         @Override
         public S next() {
             if (!hasNext()) throw new NoSuchElementException();
-            if (!currentIterator.hasNext()) setListIndex(listIndex + 1);
             return currentIterator.next();
         }
     }
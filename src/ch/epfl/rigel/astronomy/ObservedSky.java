@@ -2,23 +2,18 @@ package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
-import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
-import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
-import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.ClosedInterval;
+import ch.epfl.rigel.math.Trigonometry;
 
+import java.nio.DoubleBuffer;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.BiFunction;
-import java.util.function.Function;
-import java.util.function.ToDoubleFunction;
 
 
 /**
@@ -29,26 +24,42 @@ import java.util.function.ToDoubleFunction;
  * @author Alexis Horner (315780)
  */
 public class ObservedSky {
-    private final EquatorialToHorizontalConversion toHorizontal;
-    private final StereographicProjection projection;
+    // each order of the visible types is written in this base, the digits being the ordinals of the types plus one
+    private static final int TYPE_ORDER_BASE = CelestialObjectType.values().length + 1;
 
-    private final Sun sun;
-    private final CartesianCoordinates sunPosition;
+    // the two layers only depend on some of the inputs, they can be reused when the others change
+    private final StarField starField;
+    private final SolarSystem solarSystem;
+    private final VisibleStars visibleStars;
 
-    private final Moon moon;
-    private final CartesianCoordinates moonPosition;
+    private volatile ClosestObjectCandidates candidates;  // built on the first search, for the last order of the types
 
-    private final List<Planet> planets;  // excludes the earth
-    private final Map<CelestialObjectIdentifier, Planet> planetMap;
-    private final List<CartesianCoordinates> planetCoordinates;
-    private final double[] planetPositions;  // even index for x, odd index for y
-
-    private final StarCatalogue starCatalogue;
-    private final List<CartesianCoordinates> starCoordinates;
-    private final double[] starPositions;  // even index for x, odd index for y
+    /**
+     * Method used to compute the positions of the stars
+     */
+    public enum StarProjection {
+        /**
+         * Converts the coordinates of each star to horizontal coordinates, then projects them, exactly as it is done
+         * for the other celestial objects
+         */
+        TRIGONOMETRIC,
+        /**
+         * Same as {@link #TRIGONOMETRIC}, the trigonometric functions being approximated by
+         * {@link Trigonometry#FAST}, which is faster. The positions of the stars of the HYG catalogue differ from the
+         * ones of {@link #TRIGONOMETRIC} by less than 1e-11 radian on the celestial sphere, that is, two
+         * micro-arcseconds.
+         */
+        FAST_TRIGONOMETRIC,
+        /**
+         * Projects the unit vectors of the stars precomputed by the catalogue with a single matrix, which is several
+         * times faster but may differ from {@link #TRIGONOMETRIC} by rounding errors
+         */
+        ROTATION_MATRIX
+    }
 
     /**
-     * Constructs a new {@code ObservedSky} with the given time, position and catalogue
+     * Constructs a new {@code ObservedSky} with the given time, position and catalogue, the positions of the stars
+     * being computed with the {@link StarProjection#TRIGONOMETRIC} method
      *
      * @param when          Time moment
      * @param where         Geographical Coordinates of the position
@@ -57,115 +68,186 @@ public class ObservedSky {
      */
     public ObservedSky(ZonedDateTime when, GeographicCoordinates where,
                        StereographicProjection projection, StarCatalogue starCatalogue) {
-        double daysSinceJ2010 = Epoch.J2010.daysUntil(when);
-        EclipticToEquatorialConversion toEquatorial = new EclipticToEquatorialConversion(when);
-        toHorizontal = new EquatorialToHorizontalConversion(when, where);
-        this.projection = projection;
-
-        List<Star> stars = starCatalogue.stars();
-        int starCount = stars.size();
-        int planetCount = PlanetModel.ALL.size() - 1;  // -1, because the earth is excluded
-
-        // sun
-        sun = SunModel.SUN.at(daysSinceJ2010, toEquatorial);
-        sunPosition = computePosition(sun);
-
-        // moon
-        moon = MoonModel.MOON.at(daysSinceJ2010, toEquatorial);
-        moonPosition = computePosition(moon);
-
-        // planets
-        planetPositions = new double[2 * planetCount];
-        List<Planet> tmpPlanets = new ArrayList<>();
-        Map<CelestialObjectIdentifier, Planet> tmpPlanetMap = new HashMap<>();
-        List<CartesianCoordinates> tmpPlanetCoordinates = new ArrayList<>();
-        initPlanets(tmpPlanets, tmpPlanetMap, planetPositions, tmpPlanetCoordinates,
-                    daysSinceJ2010, toEquatorial, this::computePosition);
-        planets = Collections.unmodifiableList(tmpPlanets);
-        planetMap = Collections.unmodifiableMap(tmpPlanetMap);
-        planetCoordinates = Collections.unmodifiableList(tmpPlanetCoordinates);
-
-        // stars
-        this.starCatalogue = starCatalogue;
-        starPositions = new double[2 * starCount];
-        List<CartesianCoordinates> tmpStarCoordinates = new ArrayList<>();
-        initStars(stars, starPositions, tmpStarCoordinates, this::computePosition);
-        starCoordinates = Collections.unmodifiableList(tmpStarCoordinates);
-    }
-
-    /**
-     * Creates planets - earth excluded - and adds them to different lists
-     *
-     * @param planets          list where to store the planets (earth excluded)
-     * @param planetPositions  array where to store the cartesian coordinates of the planets
-     * @param daysSinceJ2010   number of days since the J2010 epoch
-     * @param toEquatorial     object to use to convert ecliptic coordinates to equatorial ones
-     * @param computePosition  function to use to compute the cartesian coordinates of the planets
-     */
-    private static void initPlanets(List<Planet> planets, Map<CelestialObjectIdentifier, Planet> planetMap,
-                                    double[] planetPositions, List<CartesianCoordinates> planetCoordinates,
-                                    double daysSinceJ2010, EclipticToEquatorialConversion toEquatorial,
-                                    Function<CelestialObject, CartesianCoordinates> computePosition) {
-        int i = 0;  // index of the planet when removing the earth
-        for (PlanetModel planetModel : PlanetModel.ALL) {
-            if (planetModel == PlanetModel.EARTH) continue;  // ignore the earth
-
-            Planet planet = planetModel.at(daysSinceJ2010, toEquatorial);
-            planets.add(planet);
-            planetMap.put(planet.identifier(), planet);
-
-            CartesianCoordinates planetPosition = computePosition.apply(planet);
-            addCoordinates(planetPosition, i, planetPositions);
-            planetCoordinates.add(planetPosition);
-
-            ++i;  // does not increment for the earth
-        }
+        this(when, where, projection, starCatalogue, StarProjection.TRIGONOMETRIC);
     }
 
     /**
-     * Adds the given coordinates at the given position in an array of the following format :<br> {@code [x0, y0, x1,
-     * y1, ..., xn-1, yn-1]}
+     * Constructs a new {@code ObservedSky} with the given time, position and catalogue
      *
-     * @param coordinates     cartesian coordinates to be added
-     * @param coordinateIndex index of the {@code CartesianCoordinates} object - i.e. the index it would have if it were
-     *                        stored in a {@code List<CartesianCoordinates>}. The index conversion is done internally
-     * @param positions       array storing all the coordinates
+     * @param when           Time moment
+     * @param where          Geographical Coordinates of the position
+     * @param projection     Performs stereographic projections on horizontal and cartesian coordinates
+     * @param starCatalogue  The star and asterism database
+     * @param starProjection The method used to compute the positions of the stars
      */
-    private static void addCoordinates(CartesianCoordinates coordinates, int coordinateIndex, double[] positions) {
-        int i = 2 * coordinateIndex;
-        positions[i] = coordinates.x();
-        positions[i + 1] = coordinates.y();
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                       StarCatalogue starCatalogue, StarProjection starProjection) {
+        this(when, where, projection, starCatalogue, starProjection, false);
     }
 
     /**
-     * Calculates the projected position of the given object
+     * Constructs a new {@code ObservedSky} with the given time, position and catalogue, possibly computing the
+     * positions of the stars in parallel. Catalogues of fewer stars than a threshold are nevertheless handled
+     * sequentially, the cost of splitting the work being higher than the gain. The positions are identical in both
+     * cases.
      *
-     * @param object the {@code CelestialObject} from which to calculate the position
+     * @param when           Time moment
+     * @param where          Geographical Coordinates of the position
+     * @param projection     Performs stereographic projections on horizontal and cartesian coordinates
+     * @param starCatalogue  The star and asterism database
+     * @param starProjection The method used to compute the positions of the stars
+     * @param parallel       Whether the positions of the stars of large catalogues are computed in parallel
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                       StarCatalogue starCatalogue, StarProjection starProjection, boolean parallel) {
+        this(new StarField(when, where, projection, starCatalogue, starProjection, parallel, null),
+             new SolarSystem(when, where, projection, SolarSystemModels.EXACT, null), null);
+    }
+
+    /**
+     * Constructs a new {@code ObservedSky} with the given time, position and catalogue, whose arrays sized by the
+     * number of stars, and the containers of the planets, are taken from the given pool. So are the ones of the skies
+     * derived from it by {@link #at(ZonedDateTime, GeographicCoordinates, StereographicProjection) at} and
+     * {@link #culled(double, ClosedInterval, ClosedInterval, double) culled}, which can then be computed without
+     * allocating any array, provided that the skies replaced are {@link StarBufferPool#recycle recycled}.
      *
-     * @return the projected position of the object
+     * @param when           Time moment
+     * @param where          Geographical Coordinates of the position
+     * @param projection     Performs stereographic projections on horizontal and cartesian coordinates
+     * @param starCatalogue  The star and asterism database
+     * @param starProjection The method used to compute the positions of the stars
+     * @param parallel       Whether the positions of the stars of large catalogues are computed in parallel
+     * @param starBufferPool Pool of the arrays of the stars, created for the given catalogue
+     *
+     * @throws IllegalArgumentException if the arrays of the pool do not have the size required by the catalogue
      */
-    public CartesianCoordinates computePosition(CelestialObject object) {
-        HorizontalCoordinates horizontalPosition = toHorizontal.apply(object.equatorialPos());
-        return projection.apply(horizontalPosition);
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                       StarCatalogue starCatalogue, StarProjection starProjection, boolean parallel,
+                       StarBufferPool starBufferPool) {
+        this(when, where, projection, starCatalogue, starProjection, parallel, starBufferPool,
+             SolarSystemModels.EXACT);
     }
 
     /**
-     * Creates stars and adds them to different lists
+     * Constructs a new {@code ObservedSky} with the given time, position and catalogue, whose arrays sized by the
+     * number of stars are taken from the given pool, and whose sun, moon and planets are computed with the given
+     * models. The skies derived from it use the same models.
+     *
+     * @param when              Time moment
+     * @param where             Geographical Coordinates of the position
+     * @param projection        Performs stereographic projections on horizontal and cartesian coordinates
+     * @param starCatalogue     The star and asterism database
+     * @param starProjection    The method used to compute the positions of the stars
+     * @param parallel          Whether the positions of the stars of large catalogues are computed in parallel
+     * @param starBufferPool    Pool of the arrays of the stars, created for the given catalogue
+     * @param solarSystemModels Models of the sun, of the moon and of the planets
      *
-     * @param stars            list where to store the stars
-     * @param starPositions    list where to store the cartesian coordinates of the stars
-     * @param computePosition  function to use to compute the cartesian coordinates of the stars
+     * @throws IllegalArgumentException if the arrays of the pool do not have the size required by the catalogue
+     * @see SolarSystemModels#interpolating(double, double)
      */
-    private static void initStars(List<Star> stars, double[] starPositions,
-                                  List<CartesianCoordinates> starCoordinates,
-                                  Function<CelestialObject, CartesianCoordinates> computePosition) {
-        for (int i = 0; i < stars.size(); ++i) {
-            Star star = stars.get(i);
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                       StarCatalogue starCatalogue, StarProjection starProjection, boolean parallel,
+                       StarBufferPool starBufferPool, SolarSystemModels solarSystemModels) {
+        this(new StarField(when, where, projection, starCatalogue, starProjection, parallel,
+                           checkPool(starBufferPool, starCatalogue)),
+             new SolarSystem(when, where, projection, Objects.requireNonNull(solarSystemModels), starBufferPool),
+             null);
+    }
 
-            CartesianCoordinates starPosition = computePosition.apply(star);
-            addCoordinates(starPosition, i, starPositions);
-            starCoordinates.add(starPosition);
-        }
+    private static StarBufferPool checkPool(StarBufferPool starBufferPool, StarCatalogue starCatalogue) {
+        Preconditions.checkArgument(starBufferPool.starCount() == starCatalogue.starCount());
+        return starBufferPool;
+    }
+
+    private ObservedSky(StarField starField, SolarSystem solarSystem, VisibleStars visibleStars) {
+        this.starField = starField;
+        this.solarSystem = solarSystem;
+        this.visibleStars = visibleStars == null ? VisibleStars.all(starField) : visibleStars;
+    }
+
+    StarField starField() {
+        return starField;
+    }
+
+    VisibleStars visibleStars() {
+        return visibleStars;
+    }
+
+    SolarSystem solarSystem() {
+        return solarSystem;
+    }
+
+    StarBufferPool starBufferPool() {
+        return starField.pool();
+    }
+
+    /**
+     * Gives the sky observed at the given time and place, with the same catalogue and method as this one. The
+     * positions of the stars are only computed again if the local sidereal time, the latitude of the observer or the
+     * projection changed, and the ones of the sun, the moon and the planets if the instant, the position of the
+     * observer or the projection changed. Hence, a change affecting only one of them does not compute the other one
+     * again. The stars are culled with the same parameters as the ones of this sky.
+     *
+     * @param when       Time moment
+     * @param where      Geographical Coordinates of the position
+     * @param projection Performs stereographic projections on horizontal and cartesian coordinates
+     *
+     * @return the sky observed at the given time and place, this one if nothing changed
+     */
+    public ObservedSky at(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection) {
+        StarField newStarField = starField.at(when, where, projection);
+        SolarSystem newSolarSystem = solarSystem.at(when, where, projection);
+        if (newStarField == starField && newSolarSystem == solarSystem) return this;
+        return new ObservedSky(newStarField, newSolarSystem, visibleStars.at(newStarField));
+    }
+
+    /**
+     * Gives the same sky, where only the stars above the horizon, up to the given margin, and whose position is in
+     * the given intervals are visible. They are the only ones iterated over by {@link #visibleStarIndex(int)} and
+     * considered by {@link #objectClosestTo(CartesianCoordinates, double, Set)}.
+     *
+     * @param altitudeMargin angle below the horizon, in radians, above which the stars are visible
+     * @param xInterval      interval of the x-coordinates of the visible part of the plane
+     * @param yInterval      interval of the y-coordinates of the visible part of the plane
+     *
+     * @return the sky where the stars out of the given region are culled, this one if they already are
+     *
+     * @throws IllegalArgumentException if the margin is not in [0, pi/2]
+     */
+    public ObservedSky culled(double altitudeMargin, ClosedInterval xInterval, ClosedInterval yInterval) {
+        return culled(altitudeMargin, xInterval, yInterval, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Gives the same sky, where only the stars above the horizon, up to the given margin, whose position is in the
+     * given intervals and which are at least as bright as the limiting magnitude are visible. Since the stars are
+     * examined from the brightest one, the fainter stars cost nothing.
+     *
+     * @param altitudeMargin    angle below the horizon, in radians, above which the stars are visible
+     * @param xInterval         interval of the x-coordinates of the visible part of the plane
+     * @param yInterval         interval of the y-coordinates of the visible part of the plane
+     * @param limitingMagnitude magnitude of the faintest visible stars
+     *
+     * @return the sky where the stars out of the given region or too faint are culled, this one if they already are
+     *
+     * @throws IllegalArgumentException if the margin is not in [0, pi/2]
+     */
+    public ObservedSky culled(double altitudeMargin, ClosedInterval xInterval, ClosedInterval yInterval,
+                              double limitingMagnitude) {
+        if (visibleStars.isCulledWith(altitudeMargin, xInterval, yInterval, limitingMagnitude)) return this;
+        return new ObservedSky(starField, solarSystem,
+                               VisibleStars.of(starField, altitudeMargin, xInterval, yInterval, limitingMagnitude));
+    }
+
+    /**
+     * Calculates the projected position of the given object
+     *
+     * @param object the {@code CelestialObject} from which to calculate the position
+     *
+     * @return the projected position of the object
+     */
+    public CartesianCoordinates computePosition(CelestialObject object) {
+        return solarSystem.computePosition(object);
     }
 
     /**
@@ -174,7 +256,7 @@ public class ObservedSky {
      * @return the Sun in the form of an instance of Sun
      */
     public Sun sun() {
-        return sun;
+        return solarSystem.sun();
     }
 
     /**
@@ -183,7 +265,7 @@ public class ObservedSky {
      * @return the cartesian coordinates of sun
      */
     public CartesianCoordinates sunPosition() {
-        return sunPosition;
+        return solarSystem.sunPosition();
     }
 
     /**
@@ -192,7 +274,7 @@ public class ObservedSky {
      * @return the moon in the form of an instance of moon
      */
     public Moon moon() {
-        return moon;
+        return solarSystem.moon();
     }
 
     /**
@@ -201,7 +283,7 @@ public class ObservedSky {
      * @return the cartesian coordinates of moon
      */
     public CartesianCoordinates moonPosition() {
-        return moonPosition;
+        return solarSystem.moonPosition();
     }
 
     /**
@@ -210,7 +292,7 @@ public class ObservedSky {
      * @return a list of planets with the exception of earth
      */
     public List<Planet> planets() {
-        return planets;
+        return solarSystem.planets();
     }
 
     /**
@@ -221,8 +303,7 @@ public class ObservedSky {
      * @throws NullPointerException if the given identifier does not designate a planet or designates the earth
      */
     public Planet planet(CelestialObjectIdentifier identifier) {    // BONUS MODIFICATION: helps finding a given planet
-        Preconditions.checkArgument(planetMap.containsKey(identifier));
-        return planetMap.get(identifier);
+        return solarSystem.planet(identifier);
     }
 
     /**
@@ -232,7 +313,17 @@ public class ObservedSky {
      * ones represent y-coordinates
      */
     public double[] planetPositions() {
-        return planetPositions.clone();
+        return solarSystem.planetPositions().clone();
+    }
+
+    /**
+     * Gives a read-only view of the positions of the planets, without copying them
+     *
+     * @return a read-only buffer of the coordinates of the planets, where even positions represent x-coordinates and
+     * odd ones represent y-coordinates
+     */
+    public DoubleBuffer planetPositionBuffer() {
+        return DoubleBuffer.wrap(solarSystem.planetPositions()).asReadOnlyBuffer();
     }
 
     /**
@@ -241,7 +332,60 @@ public class ObservedSky {
      * @return a list of stars from the catalogue
      */
     public List<Star> stars() {
-        return starCatalogue.stars();
+        return starField.catalogue().stars();
+    }
+
+    /**
+     * Gives the number of stars
+     *
+     * @return the number of stars from the catalogue
+     */
+    public int starCount() {
+        return starField.catalogue().starCount();
+    }
+
+    /**
+     * Gives the number of visible stars, which are all the stars if the sky is not {@link #culled culled}
+     *
+     * @return the number of visible stars
+     */
+    public int visibleStarCount() {
+        return visibleStars.count();
+    }
+
+    /**
+     * Gives the index in the catalogue of the visible star at the given position. The indices are increasing.
+     *
+     * @param i position of the star in the list of the visible stars
+     *
+     * @return the index of the star in the catalogue
+     *
+     * @throws IndexOutOfBoundsException if the position is not in [0, visibleStarCount()[
+     */
+    public int visibleStarIndex(int i) {
+        return visibleStars.index(i);
+    }
+
+    /**
+     * Gives the magnitude of the star with the given index, without creating the star
+     *
+     * @param index index of the star in the catalogue
+     *
+     * @return the apparent magnitude of the star
+     */
+    public double starMagnitude(int index) {
+        return starField.catalogue().starMagnitude(index);
+    }
+
+    /**
+     * Gives the color temperature of the star with the given index, without creating the star
+     *
+     * @param index index of the star in the catalogue
+     *
+     * @return the approximate color temperature of the star
+     */
+    public int starColorTemperature(int index) {
+        return starField.catalogue().starColorTemperature(index);
     }
 
     /**
@@ -251,7 +395,17 @@ public class ObservedSky {
      * ones represent y-coordinates
      */
     public double[] starPositions() {
-        return starPositions.clone();
+        return starField.positions().clone();
+    }
+
+    /**
+     * Gives a read-only view of the positions of the stars, without copying them
+     *
+     * @return a read-only buffer of the coordinates of the stars, where even positions represent x-coordinates and
+     * odd ones represent y-coordinates
+     */
+    public DoubleBuffer starPositionBuffer() {
+        return DoubleBuffer.wrap(starField.positions()).asReadOnlyBuffer();
     }
 
     /**
@@ -260,7 +414,7 @@ public class ObservedSky {
      * @return a set of the asterism from the catalogue
      */
     public Set<Asterism> asterisms() {
-        return starCatalogue.asterisms();
+        return starField.catalogue().asterisms();
     }
 
     /**
@@ -269,75 +423,50 @@ public class ObservedSky {
      * @return a list of the indices of the stars from the catalogue
      */
     public List<Integer> starIndexes(Asterism asterism) {
-        return starCatalogue.asterismIndices(asterism);
-    }
-
-    private static int findClosestObjectIndex(ToDoubleFunction<CartesianCoordinates> distanceSquared,
-                                              double maxDistance,
-                                              ListConcatenation<CartesianCoordinates> coordinates) {
-        double maxDistanceSquared = maxDistance * maxDistance;
-        // find the index of the closest object using the coordinates
-        double minDistanceSquared = distanceSquared.applyAsDouble(coordinates.get(0));
-        int closestObjectIndex = minDistanceSquared <= maxDistanceSquared ? 0 : -1;
-        int i = 0;
-        for (CartesianCoordinates coordinate : coordinates) {
-            double currentDistanceSquared = distanceSquared.applyAsDouble(coordinate);
-
-            if (currentDistanceSquared <= maxDistanceSquared && currentDistanceSquared < minDistanceSquared) {
-                minDistanceSquared = currentDistanceSquared;
-                closestObjectIndex = i;
-            }
-
-            ++i;
-        }
-        return closestObjectIndex;
+        return starField.catalogue().asterismIndices(asterism);
     }
 
-    // BONUS MODIFICATION: allows to efficiently merge lists when calculating the closest object
-    private ListConcatenation<CartesianCoordinates>
-    concatenateVisiblesCoordinates(Set<CelestialObjectType> visibleTypes) {
-        List<List<? extends CartesianCoordinates>> coordinateLists = new ArrayList<>();
-        for (CelestialObjectType type : visibleTypes) {
-            switch (type) {
-                case STAR:
-                    coordinateLists.add(starCoordinates);
-                    break;
-                case SUN:
-                    coordinateLists.add(List.of(sunPosition));
-                    break;
-                case MOON:
-                    coordinateLists.add(List.of(moonPosition));
-                    break;
-                case PLANET:
-                    coordinateLists.add(planetCoordinates);
-                    break;
-            }
-        }
+    /**
+     * Gives the number of asterisms
+     *
+     * @return the number of asterisms from the catalogue
+     * @see StarCatalogue#asterismCount()
+     */
+    public int asterismCount() {
+        return starField.catalogue().asterismCount();
+    }
 
-        return new ListConcatenation<>(coordinateLists);
+    /**
+     * Gives the position of the first star of the given asterism among the stars of all the asterisms
+     *
+     * @param asterism number of the asterism
+     * @return the position of the first star of the asterism
+     * @see StarCatalogue#asterismStart(int)
+     */
+    public int asterismStart(int asterism) {
+        return starField.catalogue().asterismStart(asterism);
     }
 
-    // BONUS MODIFICATION: allows to efficiently merge lists when calculating the closest object
-    private ListConcatenation<CelestialObject> concatenateVisibleObjects(Set<CelestialObjectType> visibleTypes) {
-        List<List<? extends CelestialObject>> objectLists = new ArrayList<>();
-        for (CelestialObjectType type : visibleTypes) {
-            switch (type) {
-                case STAR:
-                    objectLists.add(stars());
-                    break;
-                case SUN:
-                    objectLists.add(List.of(sun));
-                    break;
-                case MOON:
-                    objectLists.add(List.of(moon));
-                    break;
-                case PLANET:
-                    objectLists.add(planets);
-                    break;
-            }
-        }
+    /**
+     * Gives the position following the last star of the given asterism among the stars of all the asterisms
+     *
+     * @param asterism number of the asterism
+     * @return the position following the last star of the asterism
+     * @see StarCatalogue#asterismEnd(int)
+     */
+    public int asterismEnd(int asterism) {
+        return starField.catalogue().asterismEnd(asterism);
+    }
 
-        return new ListConcatenation<>(objectLists);
+    /**
+     * Gives the index of the star at the given position among the stars of all the asterisms
+     *
+     * @param position position of the star
+     * @return the index of the star in the catalogue
+     * @see StarCatalogue#asterismStarIndex(int)
+     */
+    public int asterismStarIndex(int position) {
+        return starField.catalogue().asterismStarIndex(position);
     }
 
     /**
@@ -354,24 +483,120 @@ public class ObservedSky {
         // since we compute the square of the distance, we must treat negative distances separately
         if (maxDistance < 0) return Optional.empty();
 
-        // function to compute the vector going from p1 to p2
-        BiFunction<CartesianCoordinates, CartesianCoordinates, CartesianCoordinates> difference =
-                (p1, p2) -> CartesianCoordinates.of(p2.x() - p1.x(), p2.y() - p1.y());
+        // the stars are searched in the grid of the visible stars, the other objects among the candidates of this
+        // order of the visible types, both without allocating anything per object
+        ClosestObjectCandidates candidates = candidates(visibleTypes);
+        DoublePairConcatenation positions = candidates.positions;
+        ClosestObjectSearch search = new ClosestObjectSearch(point, maxDistance);
+        for (int i = 0; i <= positions.size(); ++i) {
+            // the stars are considered at the rank of their type, so that ties are broken as the types are ordered
+            if (i == candidates.starRank) {
+                int star = visibleStars.grid().closestStar(point.x(), point.y(), maxDistance);
+                if (star >= 0) {
+                    double[] starPositions = starField.positions();
+                    search.consider(starPositions[2 * star], starPositions[2 * star + 1], true, star);
+                }
+            }
+            if (i < positions.size()) search.consider(positions.x(i), positions.y(i), false, i);
+        }
 
-        // function to compute the square of the norm of a vector
-        ToDoubleFunction<CartesianCoordinates> normSquared = v -> v.x() * v.x() + v.y() * v.y();
+        // if the distance is too big, return nothing
+        if (!search.found) return Optional.empty();
+        return Optional.of(search.closestIsStar ? stars().get(search.closestIndex)
+                                                : candidates.objects.get(search.closestIndex));
+    }
 
-        // function to compute the square of the distance between p and the point of interest
-        ToDoubleFunction<CartesianCoordinates> distanceSquared =
-                p -> normSquared.applyAsDouble(difference.apply(p, point));
+    /**
+     * Gives the objects other than the stars which can be the closest to a point, in the order of the given types.
+     * The ones of the last order are kept, since it rarely changes from one search to the next.
+     */
+    private ClosestObjectCandidates candidates(Set<CelestialObjectType> visibleTypes) {
+        int typeOrder = 0;
+        for (CelestialObjectType type : visibleTypes) typeOrder = typeOrder * TYPE_ORDER_BASE + type.ordinal() + 1;
 
-        // find closest object
-        ListConcatenation<CartesianCoordinates> visibleCoordinates = concatenateVisiblesCoordinates(visibleTypes);
-        int i = findClosestObjectIndex(distanceSquared, maxDistance, visibleCoordinates);
+        ClosestObjectCandidates cached = candidates;
+        if (cached != null && cached.typeOrder == typeOrder) return cached;
 
-        // if the distance is too big, return nothing
-        if (i < 0) return Optional.empty();
+        List<List<? extends CelestialObject>> objects = new ArrayList<>();
+        List<double[]> positions = new ArrayList<>();
+        int count = 0;
+        int starRank = -1;
+        for (CelestialObjectType type : visibleTypes) {
+            switch (type) {
+                case STAR:
+                    starRank = count;
+                    break;
+                case SUN:
+                    objects.add(List.of(sun()));
+                    positions.add(new double[]{sunPosition().x(), sunPosition().y()});
+                    ++count;
+                    break;
+                case MOON:
+                    objects.add(List.of(moon()));
+                    positions.add(new double[]{moonPosition().x(), moonPosition().y()});
+                    ++count;
+                    break;
+                case PLANET:
+                    objects.add(planets());
+                    positions.add(solarSystem.planetPositions());
+                    count += planets().size();
+                    break;
+            }
+        }
+        // a race only builds the same candidates twice
+        cached = new ClosestObjectCandidates(typeOrder, new ListConcatenation<>(objects),
+                                             new DoublePairConcatenation(positions), starRank);
+        candidates = cached;
+        return cached;
+    }
 
-        return Optional.of(concatenateVisibleObjects(visibleTypes).get(i));
+    /**
+     * Objects other than the stars which can be the closest to a point, with their positions, for an order of the
+     * visible types
+     */
+    private static final class ClosestObjectCandidates {
+        private final int typeOrder;
+        private final ListConcatenation<CelestialObject> objects;
+        private final DoublePairConcatenation positions;
+        private final int starRank;  // rank of the closest star among the candidates, -1 if the stars are not visible
+
+        private ClosestObjectCandidates(int typeOrder, ListConcatenation<CelestialObject> objects,
+                                        DoublePairConcatenation positions, int starRank) {
+            this.typeOrder = typeOrder;
+            this.objects = objects;
+            this.positions = positions;
+            this.starRank = starRank;
+        }
+    }
+
+    /**
+     * Search of the closest object to a point, among the ones within a maximum distance. In case of equality, the
+     * first object considered is kept.
+     */
+    private static final class ClosestObjectSearch {
+        private final double x, y;
+        private double minDistanceSquared;
+        private boolean found;
+        private boolean closestIsStar;
+        private int closestIndex;  // index of the closest object in the catalogue or among the candidates
+
+        private ClosestObjectSearch(CartesianCoordinates point, double maxDistance) {
+            this.x = point.x();
+            this.y = point.y();
+            this.minDistanceSquared = maxDistance * maxDistance;
+        }
+
+        private void consider(double objectX, double objectY, boolean isStar, int index) {
+            double dx = objectX - x;
+            double dy = objectY - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared < minDistanceSquared
+                || (!found && distanceSquared == minDistanceSquared)) {
+                minDistanceSquared = distanceSquared;
+                found = true;
+                closestIsStar = isStar;
+                closestIndex = index;
+            }
+        }
     }
 }
@@ -0,0 +1,419 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.acos;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+
+/**
+ * Hierarchical triangular mesh of the celestial sphere, indexing the stars of a catalogue by their equatorial
+ * coordinates. The sphere is divided into the eight triangles of an octahedron, each triangle being recursively
+ * divided into four by the midpoints of its sides, down to cells containing a few stars on average. Since the index
+ * only depends on the catalogue, it is valid for any time, observer and projection.
+ * <p>
+ * The cells are numbered in the order of a depth-first traversal of the mesh, hence the cells of any triangle of the
+ * mesh are consecutive. The stars of each cell are sorted from the brightest to the faintest, stars of equal
+ * magnitude being in the order of the catalogue.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ * @see StarCatalogue#skyIndex()
+ */
+public final class SkyIndex {
+    private static final int STARS_PER_CELL = 8;
+    private static final int MAX_DEPTH = 8;
+    private static final double[][] OCTAHEDRON_VERTICES = {
+            {0, 0, 1}, {1, 0, 0}, {0, 1, 0}, {-1, 0, 0}, {0, -1, 0}, {0, 0, -1}
+    };
+    // vertices of the eight triangles, counterclockwise seen from outside the sphere, south then north
+    private static final int[][] OCTAHEDRON_TRIANGLES = {
+            {1, 5, 2}, {2, 5, 3}, {3, 5, 4}, {4, 5, 1}, {1, 0, 4}, {4, 0, 3}, {3, 0, 2}, {2, 0, 1}
+    };
+    // intersection of a triangle with a cone
+    private static final int OUTSIDE = 0, PARTIAL = 1, INSIDE = 2;
+    private static final double TOLERANCE = 1e-12;
+
+    private final StarCatalogue catalogue;
+    private final int depth;
+    // stars of each cell (compressed sparse row layout), cell c containing cellStars[cellStarts[c]] to
+    // cellStars[cellStarts[c + 1] - 1]
+    private final int[] cellStarts;
+    private final int[] cellStars;
+    // magnitude of the brightest star of each triangle of each level, infinite if the triangle contains no star
+    private final float[][] minMagnitudes;
+
+    /**
+     * Indexes the stars of the given catalogue
+     *
+     * @param catalogue catalogue of the stars
+     */
+    SkyIndex(StarCatalogue catalogue) {
+        this.catalogue = catalogue;
+        int starCount = catalogue.starCount();
+        int depth = 0;
+        while (depth < MAX_DEPTH && triangleCount(depth) * STARS_PER_CELL < starCount) ++depth;
+        this.depth = depth;
+
+        int cellCount = triangleCount(depth);
+        double[] unitVectors = catalogue.starUnitVectors();
+        int[] starCells = new int[starCount];
+        cellStarts = new int[cellCount + 1];
+        for (int i = 0; i < starCount; ++i) {
+            starCells[i] = cellOf(unitVectors[3 * i], unitVectors[3 * i + 1], unitVectors[3 * i + 2]);
+            ++cellStarts[starCells[i] + 1];
+        }
+        for (int c = 0; c < cellCount; ++c) cellStarts[c + 1] += cellStarts[c];
+
+        // the stars are put in their cell from the brightest to the faintest
+        cellStars = new int[starCount];
+        int[] nextPositions = new int[cellCount];
+        System.arraycopy(cellStarts, 0, nextPositions, 0, cellCount);
+        for (int rank = 0; rank < starCount; ++rank) {
+            int i = catalogue.starIndexByMagnitude(rank);
+            cellStars[nextPositions[starCells[i]]++] = i;
+        }
+
+        minMagnitudes = new float[depth + 1][];
+        minMagnitudes[depth] = new float[cellCount];
+        for (int c = 0; c < cellCount; ++c) {
+            minMagnitudes[depth][c] = cellStarts[c] < cellStarts[c + 1]
+                                      ? (float) catalogue.starMagnitude(cellStars[cellStarts[c]])
+                                      : Float.POSITIVE_INFINITY;
+        }
+        for (int level = depth - 1; level >= 0; --level) {
+            float[] children = minMagnitudes[level + 1];
+            minMagnitudes[level] = new float[triangleCount(level)];
+            for (int t = 0; t < minMagnitudes[level].length; ++t) {
+                minMagnitudes[level][t] = Math.min(Math.min(children[4 * t], children[4 * t + 1]),
+                                                   Math.min(children[4 * t + 2], children[4 * t + 3]));
+            }
+        }
+    }
+
+    private static int triangleCount(int level) {
+        return 8 << (2 * level);
+    }
+
+    /**
+     * Finds the cell containing the given unit vector, descending into the child triangle containing it at each level
+     */
+    private int cellOf(double x, double y, double z) {
+        int base = z < 0
+                   ? (y >= 0 ? (x >= 0 ? 0 : 1) : (x < 0 ? 2 : 3))
+                   : (y < 0 ? (x >= 0 ? 4 : 5) : (x < 0 ? 6 : 7));
+        double[] triangle = baseTriangle(base);
+        int position = base;
+        for (int level = 0; level < depth; ++level) {
+            double[][] children = children(triangle);
+            // the point is in the parent triangle, hence it is in a corner child if it is on the inner side of the
+            // side of that child which is inside the parent, and in the central child otherwise
+            int child = 3;
+            for (int k = 0; k < 3; ++k) {
+                double[] c = children[k];
+                if (dot(x, y, z, cross(c[3], c[4], c[5], c[6], c[7], c[8])) >= 0) {
+                    child = k;
+                    break;
+                }
+            }
+            triangle = children[child];
+            position = 4 * position + child;
+        }
+        return position;
+    }
+
+    /**
+     * Gives the number of cells of the index
+     *
+     * @return the number of cells
+     */
+    public int cellCount() {
+        return cellStarts.length - 1;
+    }
+
+    /**
+     * Gives the position of the first star of the given cell among the stars of all the cells
+     *
+     * @param cell number of the cell
+     *
+     * @return the position of the first star of the cell
+     *
+     * @throws IndexOutOfBoundsException if the cell does not exist
+     */
+    public int cellStart(int cell) {
+        return cellStarts[Objects.checkIndex(cell, cellCount())];
+    }
+
+    /**
+     * Gives the position following the last star of the given cell among the stars of all the cells
+     *
+     * @param cell number of the cell
+     *
+     * @return the position following the last star of the cell
+     *
+     * @throws IndexOutOfBoundsException if the cell does not exist
+     */
+    public int cellEnd(int cell) {
+        return cellStarts[Objects.checkIndex(cell, cellCount()) + 1];
+    }
+
+    /**
+     * Gives the index of the star at the given position among the stars of all the cells
+     *
+     * @param position position of the star
+     *
+     * @return the index of the star in the catalogue
+     *
+     * @throws IndexOutOfBoundsException if the position is invalid
+     */
+    public int cellStarIndex(int position) {
+        return cellStars[Objects.checkIndex(position, cellStars.length)];
+    }
+
+    /**
+     * Gives the cells which may intersect the cone of the given radius around the given point, which can be used to
+     * look up the stars of the current view. Some cells close to the cone may be included, but all the cells
+     * intersecting it are.
+     *
+     * @param center center of the cone
+     * @param radius angular radius of the cone, in radians
+     *
+     * @return the numbers of the cells, in increasing order
+     *
+     * @throws IllegalArgumentException if the radius is not in [0, pi]
+     */
+    public int[] cellsWithin(EquatorialCoordinates center, double radius) {
+        Cone cone = new Cone(center, radius);
+        IntStream.Builder cells = IntStream.builder();
+        for (int base = 0; base < 8; ++base) collectCells(0, base, baseTriangle(base), cone, cells);
+        return cells.build().toArray();
+    }
+
+    private void collectCells(int level, int position, double[] triangle, Cone cone, IntStream.Builder cells) {
+        int intersection = cone.intersection(triangle);
+        if (intersection == OUTSIDE) return;
+        if (intersection == INSIDE || level == depth) {
+            int shift = 2 * (depth - level);
+            for (int c = position << shift; c < (position + 1) << shift; ++c) cells.add(c);
+            return;
+        }
+        double[][] children = children(triangle);
+        for (int k = 0; k < 4; ++k) collectCells(level + 1, 4 * position + k, children[k], cone, cells);
+    }
+
+    /**
+     * Gives the stars within the given angular distance of the given point
+     *
+     * @param center center of the cone
+     * @param radius angular radius of the cone, in radians
+     *
+     * @return the indices in the catalogue of the stars in the cone, in increasing order
+     *
+     * @throws IllegalArgumentException if the radius is not in [0, pi]
+     */
+    public int[] starsWithin(EquatorialCoordinates center, double radius) {
+        Cone cone = new Cone(center, radius);
+        IntStream.Builder stars = IntStream.builder();
+        for (int base = 0; base < 8; ++base) collectStars(0, base, baseTriangle(base), cone, stars);
+        return stars.build().sorted().toArray();
+    }
+
+    private void collectStars(int level, int position, double[] triangle, Cone cone, IntStream.Builder stars) {
+        int intersection = cone.intersection(triangle);
+        if (intersection == OUTSIDE) return;
+        if (intersection == INSIDE) {
+            // the cells of the triangle are consecutive
+            int shift = 2 * (depth - level);
+            for (int s = cellStarts[position << shift]; s < cellStarts[(position + 1) << shift]; ++s) {
+                stars.add(cellStars[s]);
+            }
+        } else if (level == depth) {
+            for (int s = cellStarts[position]; s < cellStarts[position + 1]; ++s) {
+                if (cone.contains(cellStars[s])) stars.add(cellStars[s]);
+            }
+        } else {
+            double[][] children = children(triangle);
+            for (int k = 0; k < 4; ++k) collectStars(level + 1, 4 * position + k, children[k], cone, stars);
+        }
+    }
+
+    /**
+     * Gives the brightest stars within the given angular distance of the given point. The triangles of the mesh are
+     * examined from the one containing the brightest star, so that the faint stars are not examined.
+     *
+     * @param center center of the cone
+     * @param radius angular radius of the cone, in radians
+     * @param count  maximal number of stars
+     *
+     * @return the indices in the catalogue of at most {@code count} stars of the cone, from the brightest to the
+     * faintest, stars of equal magnitude being in the order of the catalogue
+     *
+     * @throws IllegalArgumentException if the radius is not in [0, pi] or if the count is negative
+     */
+    public int[] brightestStarsWithin(EquatorialCoordinates center, double radius, int count) {
+        Preconditions.checkArgument(count >= 0);
+        Cone cone = new Cone(center, radius);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Candidate.ORDER);
+        for (int base = 0; base < 8; ++base) addTriangle(candidates, 0, base, baseTriangle(base), cone, PARTIAL);
+
+        int[] brightestStars = new int[count];
+        int found = 0;
+        while (found < count && !candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (candidate.star >= 0) {
+                brightestStars[found++] = candidate.star;
+            } else if (candidate.level == depth) {
+                for (int s = cellStarts[candidate.position]; s < cellStarts[candidate.position + 1]; ++s) {
+                    int star = cellStars[s];
+                    if (candidate.intersection == INSIDE || cone.contains(star)) {
+                        candidates.add(new Candidate(catalogue.starMagnitude(star), star, 0, 0, null, INSIDE));
+                    }
+                }
+            } else {
+                double[][] children = children(candidate.triangle);
+                for (int k = 0; k < 4; ++k) {
+                    addTriangle(candidates, candidate.level + 1, 4 * candidate.position + k, children[k], cone,
+                                candidate.intersection);
+                }
+            }
+        }
+        return found == count ? brightestStars : Arrays.copyOf(brightestStars, found);
+    }
+
+    private void addTriangle(PriorityQueue<Candidate> candidates, int level, int position, double[] triangle,
+                             Cone cone, int parentIntersection) {
+        float minMagnitude = minMagnitudes[level][position];
+        if (minMagnitude == Float.POSITIVE_INFINITY) return;  // no star
+        int intersection = parentIntersection == INSIDE ? INSIDE : cone.intersection(triangle);
+        if (intersection == OUTSIDE) return;
+        candidates.add(new Candidate(minMagnitude, -1, level, position, triangle, intersection));
+    }
+
+    private static double[] baseTriangle(int base) {
+        double[] triangle = new double[9];
+        for (int k = 0; k < 3; ++k) {
+            System.arraycopy(OCTAHEDRON_VERTICES[OCTAHEDRON_TRIANGLES[base][k]], 0, triangle, 3 * k, 3);
+        }
+        return triangle;
+    }
+
+    /**
+     * Divides the given triangle into its four children: the three ones at its corners, in the order of its
+     * vertices, and the central one
+     */
+    private static double[][] children(double[] triangle) {
+        double[] w0 = midpoint(triangle, 1, 2);
+        double[] w1 = midpoint(triangle, 0, 2);
+        double[] w2 = midpoint(triangle, 0, 1);
+        return new double[][]{
+                {triangle[0], triangle[1], triangle[2], w2[0], w2[1], w2[2], w1[0], w1[1], w1[2]},
+                {triangle[3], triangle[4], triangle[5], w0[0], w0[1], w0[2], w2[0], w2[1], w2[2]},
+                {triangle[6], triangle[7], triangle[8], w1[0], w1[1], w1[2], w0[0], w0[1], w0[2]},
+                {w0[0], w0[1], w0[2], w1[0], w1[1], w1[2], w2[0], w2[1], w2[2]}
+        };
+    }
+
+    private static double[] midpoint(double[] triangle, int a, int b) {
+        return normalized(triangle[3 * a] + triangle[3 * b],
+                          triangle[3 * a + 1] + triangle[3 * b + 1],
+                          triangle[3 * a + 2] + triangle[3 * b + 2]);
+    }
+
+    private static double[] normalized(double x, double y, double z) {
+        double norm = sqrt(x * x + y * y + z * z);
+        return new double[]{x / norm, y / norm, z / norm};
+    }
+
+    private static double[] cross(double ax, double ay, double az, double bx, double by, double bz) {
+        return new double[]{ay * bz - az * by, az * bx - ax * bz, ax * by - ay * bx};
+    }
+
+    private static double dot(double x, double y, double z, double[] v) {
+        return x * v[0] + y * v[1] + z * v[2];
+    }
+
+    /**
+     * Cone of the celestial sphere around a point, given by its unit vector
+     */
+    private final class Cone {
+        private final double x, y, z;
+        private final double radius;
+        private final double cosRadius;
+
+        private Cone(EquatorialCoordinates center, double radius) {
+            Preconditions.checkArgument(0 <= radius && radius <= Math.PI);
+            double cosDec = cos(center.dec());
+            this.x = cosDec * cos(center.ra());
+            this.y = cosDec * sin(center.ra());
+            this.z = sin(center.dec());
+            this.radius = radius;
+            this.cosRadius = cos(radius);
+        }
+
+        private boolean contains(int star) {
+            double[] unitVectors = catalogue.starUnitVectors();
+            return x * unitVectors[3 * star] + y * unitVectors[3 * star + 1] + z * unitVectors[3 * star + 2]
+                   >= cosRadius;
+        }
+
+        /**
+         * Determines whether the given triangle is outside the cone, inside it, or partially inside it. The triangle
+         * is bounded by the circle around its centroid passing by its furthest vertex, and it is considered
+         * partially inside if that circle intersects the cone.
+         */
+        private int intersection(double[] triangle) {
+            double[] centroid = normalized(triangle[0] + triangle[3] + triangle[6],
+                                           triangle[1] + triangle[4] + triangle[7],
+                                           triangle[2] + triangle[5] + triangle[8]);
+            double triangleRadius = 0;
+            boolean verticesInside = true;
+            for (int k = 0; k < 3; ++k) {
+                double vx = triangle[3 * k], vy = triangle[3 * k + 1], vz = triangle[3 * k + 2];
+                triangleRadius = Math.max(triangleRadius, angle(dot(vx, vy, vz, centroid)));
+                verticesInside &= x * vx + y * vy + z * vz >= cosRadius;
+            }
+            if (angle(dot(x, y, z, centroid)) > radius + triangleRadius + TOLERANCE) return OUTSIDE;
+            // a cone of at most a hemisphere is convex, hence it contains the triangle if it contains its vertices
+            return verticesInside && radius <= Math.PI / 2 ? INSIDE : PARTIAL;
+        }
+    }
+
+    private static double angle(double cos) {
+        return acos(Math.max(-1, Math.min(1, cos)));
+    }
+
+    /**
+     * Star or triangle of the mesh to examine, triangles being ordered by the magnitude of their brightest star
+     */
+    private static final class Candidate {
+        // at equal magnitude, the triangles are examined before the stars, so that the stars of equal magnitude are
+        // all known before the first one is chosen
+        private static final Comparator<Candidate> ORDER = Comparator.<Candidate>comparingDouble(c -> c.magnitude)
+                .thenComparingInt(c -> c.star >= 0 ? 1 : 0)
+                .thenComparingInt(c -> c.star);
+
+        private final double magnitude;
+        private final int star;  // -1 for a triangle
+        private final int level, position;
+        private final double[] triangle;
+        private final int intersection;
+
+        private Candidate(double magnitude, int star, int level, int position, double[] triangle,
+                          int intersection) {
+            this.magnitude = magnitude;
+            this.star = star;
+            this.level = level;
+            this.position = position;
+            this.triangle = triangle;
+            this.intersection = intersection;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sun, moon and planets (earth excluded) and their projected positions, which only depend on the instant of the
+ * observation, on the position of the observer and on the projection
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class SolarSystem {
+    private static final int PLANET_COUNT = PlanetModel.ALL.size() - 1;  // -1, because the earth is excluded
+
+    // inputs of the positions
+    private final Instant instant;
+    private final double longitude, latitude;
+    private final StereographicProjection projection;
+    private final SolarSystemModels models;
+    private final StarBufferPool pool;  // null if the buffers are not recycled
+
+    private final EquatorialToHorizontalConversion toHorizontal;
+
+    private final Sun sun;
+    private final CartesianCoordinates sunPosition;
+
+    private final Moon moon;
+    private final CartesianCoordinates moonPosition;
+
+    private final Buffers buffers;  // planets, which exclude the earth, and their positions
+
+    /**
+     * Computes the sun, the moon and the planets seen at the given time and place
+     *
+     * @param when       date and time of the observation
+     * @param where      position of the observer
+     * @param projection projection to use
+     * @param models     models of the bodies
+     * @param pool       pool from which the buffers of the planets are taken, null to allocate them
+     */
+    SolarSystem(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                SolarSystemModels models, StarBufferPool pool) {
+        this.instant = when.toInstant();
+        this.longitude = where.lon();
+        this.latitude = where.lat();
+        this.projection = projection;
+        this.models = models;
+        this.pool = pool;
+
+        double daysSinceJ2010 = Epoch.J2010.daysUntil(when);
+        EclipticToEquatorialConversion toEquatorial = new EclipticToEquatorialConversion(when);
+        toHorizontal = new EquatorialToHorizontalConversion(when, where);
+
+        sun = models.sunModel().at(daysSinceJ2010, toEquatorial);
+        sunPosition = computePosition(sun);
+
+        moon = models.moonModel().at(daysSinceJ2010, toEquatorial);
+        moonPosition = computePosition(moon);
+
+        buffers = pool == null ? new Buffers() : pool.acquireSolarSystemBuffers();
+        int p = 0;
+        for (CelestialObjectModel<Planet> planetModel : models.planetModels()) {
+            Planet planet = planetModel.at(daysSinceJ2010, toEquatorial);
+            buffers.planetRa[p] = planet.equatorialPos().ra();
+            buffers.planetDec[p] = planet.equatorialPos().dec();
+            buffers.planets[p++] = planet;
+        }
+
+        double[] planetPositions = buffers.planetPositions;
+        toHorizontal.apply(buffers.planetRa, buffers.planetDec, planetPositions, PLANET_COUNT);
+        projection.apply(planetPositions, planetPositions, PLANET_COUNT);  // in place
+    }
+
+    /**
+     * Gives the solar system seen at the given time and place. It is only computed again if the instant, the
+     * position of the observer or the projection changed.
+     *
+     * @param when       date and time of the observation
+     * @param where      position of the observer
+     * @param projection projection to use
+     *
+     * @return this solar system if its inputs did not change, a new one otherwise
+     */
+    SolarSystem at(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection) {
+        if (projection == this.projection && where.lon() == longitude && where.lat() == latitude
+            && when.toInstant().equals(instant)) {
+            return this;
+        }
+        return new SolarSystem(when, where, projection, models, pool);
+    }
+
+    /**
+     * Calculates the projected position of the given object
+     *
+     * @param object the object of which to calculate the position
+     *
+     * @return the projected position of the object
+     */
+    CartesianCoordinates computePosition(CelestialObject object) {
+        return projection.apply(toHorizontal.apply(object.equatorialPos()));
+    }
+
+    Sun sun() {
+        return sun;
+    }
+
+    CartesianCoordinates sunPosition() {
+        return sunPosition;
+    }
+
+    Moon moon() {
+        return moon;
+    }
+
+    CartesianCoordinates moonPosition() {
+        return moonPosition;
+    }
+
+    /**
+     * Gives the buffers of the planets if they were taken from a pool
+     *
+     * @return the buffers of the planets, null if they were not taken from a pool
+     */
+    Buffers recyclableBuffers() {
+        return pool == null ? null : buffers;
+    }
+
+    List<Planet> planets() {
+        return buffers.planetList;
+    }
+
+    Planet planet(CelestialObjectIdentifier identifier) {
+        // a linear search over the few planets does not allocate any map
+        for (Planet planet : buffers.planets) {
+            if (planet.identifier() == identifier) return planet;
+        }
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Gives the positions of the planets. The array must not be modified.
+     *
+     * @return positions of the planets, where even positions represent x-coordinates and odd ones represent
+     * y-coordinates
+     */
+    double[] planetPositions() {
+        return buffers.planetPositions;
+    }
+
+    /**
+     * Planets of a solar system and arrays of their positions, which the solar systems computed with a pool reuse
+     * once the sky they belong to is recycled
+     */
+    static final class Buffers {
+        private final Planet[] planets = new Planet[PLANET_COUNT];
+        private final List<Planet> planetList = Collections.unmodifiableList(Arrays.asList(planets));
+        private final double[] planetRa = new double[PLANET_COUNT];
+        private final double[] planetDec = new double[PLANET_COUNT];
+        private final double[] planetPositions = new double[2 * PLANET_COUNT];  // even index for x, odd index for y
+    }
+}
@@ -0,0 +1,79 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Models of the sun, of the moon and of the planets (earth excluded) used to compute the solar system of an observed
+ * sky
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class SolarSystemModels {
+    /**
+     * Exact models, evaluated at each time
+     */
+    public static final SolarSystemModels EXACT = new SolarSystemModels(SunModel.SUN, MoonModel.MOON,
+                                                                        planetModels(0, 0, false));
+
+    private final CelestialObjectModel<Sun> sunModel;
+    private final CelestialObjectModel<Moon> moonModel;
+    private final List<CelestialObjectModel<Planet>> planetModels;
+
+    private SolarSystemModels(CelestialObjectModel<Sun> sunModel, CelestialObjectModel<Moon> moonModel,
+                              List<CelestialObjectModel<Planet>> planetModels) {
+        this.sunModel = sunModel;
+        this.moonModel = moonModel;
+        this.planetModels = planetModels;
+    }
+
+    /**
+     * Constructs models interpolating the bodies between keyframes, which are suited to skies computed at many close
+     * times, as when the time is accelerated. The models keep their keyframes, hence the same instance should be used
+     * for all the skies of an animation.
+     *
+     * @param maxAngularError maximal error of the positions and of the angular sizes, in radians
+     * @param maxValueError   maximal error of the phase of the moon and of the magnitudes of the planets
+     *
+     * @return interpolating models
+     *
+     * @throws IllegalArgumentException if one of the errors is not strictly positive
+     * @see InterpolatingModel
+     */
+    public static SolarSystemModels interpolating(double maxAngularError, double maxValueError) {
+        return new SolarSystemModels(InterpolatingModel.ofSun(maxAngularError, maxValueError),
+                                     InterpolatingModel.ofMoon(maxAngularError, maxValueError),
+                                     planetModels(maxAngularError, maxValueError, true));
+    }
+
+    private static List<CelestialObjectModel<Planet>> planetModels(double maxAngularError, double maxValueError,
+                                                                   boolean interpolating) {
+        List<CelestialObjectModel<Planet>> planetModels = new ArrayList<>(PlanetModel.ALL.size() - 1);
+        for (PlanetModel planetModel : PlanetModel.ALL) {
+            if (planetModel == PlanetModel.EARTH) continue;  // ignore the earth
+            planetModels.add(interpolating
+                             ? InterpolatingModel.ofPlanet(planetModel, maxAngularError, maxValueError)
+                             : planetModel);
+        }
+        return Collections.unmodifiableList(planetModels);
+    }
+
+    CelestialObjectModel<Sun> sunModel() {
+        return sunModel;
+    }
+
+    CelestialObjectModel<Moon> moonModel() {
+        return moonModel;
+    }
+
+    /**
+     * Gives the models of the planets, in the order of {@link PlanetModel#ALL}
+     *
+     * @return the models of the planets, earth excluded
+     */
+    List<CelestialObjectModel<Planet>> planetModels() {
+        return planetModels;
+    }
+}
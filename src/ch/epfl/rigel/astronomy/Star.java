@@ -15,6 +15,7 @@ public final class Star extends CelestialObject {
     private static final ClosedInterval COLOR_INDEX_INTERVAL = ClosedInterval.of(-0.5, 5.5);
 
     private final int hipparcosId;
+    private final float colorIndex;
     private final int colorTemperature;
 
     /**
@@ -37,11 +38,25 @@ public final class Star extends CelestialObject {
         super(name, equatorialPos, FloatAttribute.magnitude(magnitude));
 
         Preconditions.checkArgument(hipparcosId >= 0);
-        Preconditions.checkInInterval(COLOR_INDEX_INTERVAL, colorIndex);
 
         this.hipparcosId = hipparcosId;
-        colorTemperature = (int) (4600 * (1.0 / (0.92 * colorIndex + 1.7)        // since Kelvins are non-negative,
-                                          + 1.0 / (0.92 * colorIndex + 0.62)));  // truncating is equivalent to flooring
+        this.colorIndex = colorIndex;
+        colorTemperature = colorTemperature(colorIndex);
+    }
+
+    /**
+     * Computes the approximate color temperature of a star according to its color index
+     *
+     * @param colorIndex color index of the star, number ranging from -0.5 to 5.5 (both included)
+     *
+     * @return approximate color temperature of the star
+     *
+     * @throws IllegalArgumentException if the color index is not in [-0.5, 5.5]
+     */
+    static int colorTemperature(float colorIndex) {
+        Preconditions.checkInInterval(COLOR_INDEX_INTERVAL, colorIndex);
+        return (int) (4600 * (1.0 / (0.92 * colorIndex + 1.7)           // since Kelvins are non-negative,
+                              + 1.0 / (0.92 * colorIndex + 0.62)));     // truncating is equivalent to flooring
     }
 
     /**
@@ -53,6 +68,15 @@ public final class Star extends CelestialObject {
         return hipparcosId;
     }
 
+    /**
+     * Gives the B-V color index of the star
+     *
+     * @return color index of the star
+     */
+    public float colorIndex() {
+        return colorIndex;
+    }
+
     /**
      * Computes the approximate color temperature of the star according to its color index
      *
@@ -0,0 +1,102 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of the arrays sized by the number of stars of a catalogue, which the observed skies created with it use to
+ * store the positions and the indices of the visible stars. Once a sky is replaced by a newer one, its arrays are
+ * {@link #recycle recycled} and the next sky is computed into them, so that a steady animation does not allocate any
+ * array. So are the containers of the planets of the skies and the arrays of their positions. Initially, the pool
+ * contains two sets of arrays: the one of the displayed sky, and the one into which the next sky is computed. If the
+ * arrays are not recycled fast enough, new ones are allocated.
+ * <p>
+ * An observed sky must not be used anymore once it has been recycled.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class StarBufferPool {
+    private static final int INITIAL_BUFFERS = 2;
+
+    private final int starCount;
+    private final Deque<double[]> positionArrays = new ArrayDeque<>();
+    private final Deque<int[]> indexArrays = new ArrayDeque<>();
+    private final Deque<SolarSystem.Buffers> solarSystemBuffers = new ArrayDeque<>();
+
+    /**
+     * Constructs a pool for the skies of the given catalogue, with two arrays of each kind
+     *
+     * @param catalogue catalogue of the stars of the skies
+     */
+    public StarBufferPool(StarCatalogue catalogue) {
+        this.starCount = catalogue.starCount();
+        for (int i = 0; i < INITIAL_BUFFERS; ++i) {
+            positionArrays.push(new double[2 * starCount]);
+            indexArrays.push(new int[starCount]);
+            solarSystemBuffers.push(new SolarSystem.Buffers());
+        }
+    }
+
+    int starCount() {
+        return starCount;
+    }
+
+    /**
+     * Takes an array for the positions of the stars, which is allocated if the pool is empty
+     *
+     * @return an array of two elements per star
+     */
+    synchronized double[] acquirePositions() {
+        return positionArrays.isEmpty() ? new double[2 * starCount] : positionArrays.pop();
+    }
+
+    /**
+     * Takes an array for the indices of the visible stars, which is allocated if the pool is empty
+     *
+     * @return an array of one element per star
+     */
+    synchronized int[] acquireIndexes() {
+        return indexArrays.isEmpty() ? new int[starCount] : indexArrays.pop();
+    }
+
+    /**
+     * Takes buffers for the planets of a solar system, which are allocated if the pool is empty
+     *
+     * @return buffers for the planets
+     */
+    synchronized SolarSystem.Buffers acquireSolarSystemBuffers() {
+        return solarSystemBuffers.isEmpty() ? new SolarSystem.Buffers() : solarSystemBuffers.pop();
+    }
+
+    /**
+     * Gives back the arrays used by the replaced sky to the pool, except the ones shared with the sky replacing it.
+     * Each sky must be recycled at most once, after the sky replacing it was computed.
+     *
+     * @param replaced    the sky which is not used anymore
+     * @param replacement the sky replacing it, which is derived from it
+     *
+     * @throws IllegalArgumentException if the replaced sky was not computed with this pool
+     */
+    public void recycle(ObservedSky replaced, ObservedSky replacement) {
+        Preconditions.checkArgument(replaced.starBufferPool() == this);
+        if (replaced == replacement) return;
+
+        double[] positions = replaced.starField().recyclablePositions();
+        int[] indexes = replaced.visibleStars().recyclableIndexes();
+        SolarSystem.Buffers buffers = replaced.solarSystem().recyclableBuffers();
+        synchronized (this) {
+            if (positions != null && positions != replacement.starField().recyclablePositions()) {
+                positionArrays.push(positions);
+            }
+            if (indexes != null && indexes != replacement.visibleStars().recyclableIndexes()) {
+                indexArrays.push(indexes);
+            }
+            if (buffers != null && buffers != replacement.solarSystem().recyclableBuffers()) {
+                solarSystemBuffers.push(buffers);
+            }
+        }
+    }
+}
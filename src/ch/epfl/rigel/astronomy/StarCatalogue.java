@@ -1,14 +1,21 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialToCartesianProjection;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -18,8 +25,17 @@ import java.util.Set;
  * @author Alexis Horner (315780)
  */
 public final class StarCatalogue {
-    private final List<Star> stars;
-    private final Map<Asterism, List<Integer>> asterismIndices;
+    private final StarTable stars;  // stored column by column, the Star objects are created on demand
+    private final Map<Asterism, Integer> asterismNumbers;  // in the order of the asterisms
+    // indices of the stars of all the asterisms, one asterism after the other (compressed sparse row layout)
+    private final int[] asterismOffsets;  // index of the first star of each asterism, followed by the total count
+    private final int[] asterismStarIndices;
+    private final double[] starUnitVectors;  // equatorial unit vector of each star, computed once for all the frames
+    // indices of the stars from the brightest to the faintest, and their magnitude in the same order
+    private final int[] starsByMagnitude;
+    private final float[] sortedMagnitudes;
+    private volatile SkyIndex skyIndex;  // built on the first use
+    private volatile StarNameIndex nameIndex;  // built on the first use
 
     /**
      * Constructs a new {@code StarCatalogue} with the given stars and asterisms
@@ -30,43 +46,379 @@ public final class StarCatalogue {
      * @throws IllegalArgumentException if a star of an asterism is not in the given list of stars
      */
     public StarCatalogue(List<Star> stars, List<Asterism> asterisms) {
-        this.stars = List.copyOf(stars);
+        this(tableOf(stars), asterisms, Collections.nCopies(asterisms.size(), null), null);
+    }
 
-        Map<Star, Integer> starIndexes = new HashMap<>();
-        for (int i = 0; i < stars.size(); ++i) starIndexes.put(stars.get(i), i);
+    /**
+     * Constructs a new {@code StarCatalogue} with the stars of the given table and the given asterisms. The table must
+     * not be modified afterwards.
+     *
+     * @param stars        table of the stars to store in the catalogue
+     * @param asterisms    list of the asterisms to store in the catalogue
+     * @param asterismRows for each asterism, the row of its stars in the table if they are already known, {@code null}
+     *                     otherwise
+     * @param base         catalogue whose stars are the first rows of the table, whose data computed for each star is
+     *                     reused, {@code null} if there is none
+     *
+     * @throws IllegalArgumentException if a star of an asterism is not in the given table
+     */
+    private StarCatalogue(StarTable stars, List<Asterism> asterisms, List<int[]> asterismRows, StarCatalogue base) {
+        this.stars = stars;
 
-        Map<Asterism, List<Integer>> asterismIndices = new HashMap<>();
+        Map<Asterism, Integer> asterismNumbers = new LinkedHashMap<>();
+        List<int[]> rows = new ArrayList<>(asterisms.size());
+        Map<Star, Integer> starIndexes = null;  // only built if an asterism is not resolved yet
+        int totalCount = 0;
+        for (int a = 0; a < asterisms.size(); ++a) {
+            Asterism asterism = asterisms.get(a);
+            if (asterismNumbers.containsKey(asterism)) continue;
 
-        for (Asterism asterism : asterisms) {
-            List<Integer> indices = new ArrayList<>();
-            for (Star star : asterism.stars()) {
-                Integer i = starIndexes.get(star);  // null if not found
-                Preconditions.checkArgument(i != null);
-                indices.add(i);
+            int[] indices = asterismRows.get(a);
+            if (indices == null) {
+                if (starIndexes == null) starIndexes = starIndexes(stars);
+                indices = resolve(asterism, starIndexes);
             }
+            asterismNumbers.put(asterism, rows.size());
+            rows.add(indices);
+            totalCount += indices.length;
+        }
 
-            asterismIndices.put(asterism, Collections.unmodifiableList(indices));
+        this.asterismNumbers = Collections.unmodifiableMap(asterismNumbers);
+        this.asterismOffsets = new int[rows.size() + 1];
+        this.asterismStarIndices = new int[totalCount];
+        for (int a = 0; a < rows.size(); ++a) {
+            int[] indices = rows.get(a);
+            System.arraycopy(indices, 0, asterismStarIndices, asterismOffsets[a], indices.length);
+            asterismOffsets[a + 1] = asterismOffsets[a] + indices.length;
         }
+        this.starUnitVectors = unitVectors(stars, base);
+        this.starsByMagnitude = magnitudeOrder(stars, base);
+        this.sortedMagnitudes = sortedMagnitudes(stars, starsByMagnitude);
+    }
+
+    private StarCatalogue(StarTable stars, Map<Asterism, Integer> asterismNumbers, int[] asterismOffsets,
+                          int[] asterismStarIndices) {
+        this.stars = stars;
+        this.asterismNumbers = asterismNumbers;
+        this.asterismOffsets = asterismOffsets;
+        this.asterismStarIndices = asterismStarIndices;
+        this.starUnitVectors = unitVectors(stars, null);
+        this.starsByMagnitude = magnitudeOrder(stars, null);
+        this.sortedMagnitudes = sortedMagnitudes(stars, starsByMagnitude);
+    }
 
-        this.asterismIndices = Collections.unmodifiableMap(asterismIndices);
+    /**
+     * Computes the unit vectors of the stars of the given table, only the ones of the stars added after the ones of
+     * the given base catalogue, if any, being computed again
+     */
+    private static double[] unitVectors(StarTable stars, StarCatalogue base) {
+        int baseCount = base == null ? 0 : base.starCount();
+        double[] unitVectors = new double[3 * stars.size()];
+        if (baseCount > 0) System.arraycopy(base.starUnitVectors, 0, unitVectors, 0, 3 * baseCount);
+        EquatorialToCartesianProjection.unitVectors(stars.ra(), stars.dec(), unitVectors, baseCount, stars.size());
+        return unitVectors;
     }
 
     /**
-     * Gives a list of the stars contained in the catalogue
+     * Sorts the stars of the given table by magnitude, stars of equal magnitude being kept in the order of the
+     * catalogue. Each star is sorted as a {@code long} holding its magnitude in its high bits and its index in its low
+     * bits, and only the stars added after the ones of the given base catalogue, if any, are sorted, then merged with
+     * the order of the base.
+     */
+    private static int[] magnitudeOrder(StarTable stars, StarCatalogue base) {
+        int count = stars.size();
+        int baseCount = base == null ? 0 : base.starCount();
+        long[] added = new long[count - baseCount];
+        for (int i = baseCount; i < count; ++i) {
+            added[i - baseCount] = ((long) sortableBits(stars.magnitude(i)) << 32) | i;
+        }
+        Arrays.sort(added);
+
+        // the stars of the base come first among stars of equal magnitude, since their index is smaller
+        int[] order = new int[count];
+        int b = 0, a = 0;
+        for (int rank = 0; rank < count; ++rank) {
+            if (a == added.length
+                || (b < baseCount && sortableBits(base.sortedMagnitudes[b]) <= (int) (added[a] >> 32))) {
+                order[rank] = base.starsByMagnitude[b++];
+            } else {
+                order[rank] = (int) added[a++];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Gives an integer ordered as the given magnitude by {@link Float#compare(float, float)}, -0 being before 0 and
+     * NaN after all the other values
+     */
+    private static int sortableBits(float magnitude) {
+        int bits = Float.floatToIntBits(magnitude);
+        // the bits of a negative float are ordered in reverse
+        return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+    }
+
+    private static float[] sortedMagnitudes(StarTable stars, int[] starsByMagnitude) {
+        float[] magnitudes = new float[starsByMagnitude.length];
+        for (int k = 0; k < starsByMagnitude.length; ++k) magnitudes[k] = stars.magnitude(starsByMagnitude[k]);
+        return magnitudes;
+    }
+
+    /**
+     * Constructs a new {@code StarCatalogue} with the stars of the given table and asterisms whose stars are already
+     * resolved to their index in the table, avoiding the resolution done by the other constructors. Only the stars of
+     * the asterisms are created. The table and the arrays must not be modified afterwards.
+     *
+     * @param stars               table of the stars to store in the catalogue
+     * @param asterismOffsets     index in {@code asterismStarIndices} of the first star of each asterism, followed by
+     *                            the length of {@code asterismStarIndices}
+     * @param asterismStarIndices index in the table of the stars of all the asterisms, one asterism after the other
+     *
+     * @return the catalogue
      *
-     * @return list of the stars contained in the catalogue
+     * @throws IndexOutOfBoundsException if an index is invalid
+     * @throws IllegalArgumentException  if an asterism is empty
+     */
+    static StarCatalogue ofResolvedAsterisms(StarTable stars, int[] asterismOffsets, int[] asterismStarIndices) {
+        Preconditions.checkArgument(asterismOffsets.length > 0
+                                    && asterismOffsets[asterismOffsets.length - 1] == asterismStarIndices.length);
+        Map<Asterism, Integer> asterismNumbers = new LinkedHashMap<>();
+        for (int a = 0; a + 1 < asterismOffsets.length; ++a) {
+            int from = asterismOffsets[a];
+            int to = asterismOffsets[a + 1];
+            Preconditions.checkArgument(from <= to);
+            List<Star> asterismStars = new ArrayList<>(to - from);
+            for (int i = from; i < to; ++i) asterismStars.add(stars.star(asterismStarIndices[i]));
+            asterismNumbers.put(new Asterism(asterismStars), a);
+        }
+        return new StarCatalogue(stars, Collections.unmodifiableMap(asterismNumbers), asterismOffsets,
+                                 asterismStarIndices);
+    }
+
+    private static StarTable tableOf(List<Star> stars) {
+        StarTable table = new StarTable();
+        for (Star star : stars) table.add(Objects.requireNonNull(star));
+        return table.copy();
+    }
+
+    /**
+     * Maps the stars of the given table which were already created to their index. The stars of the asterisms were
+     * necessarily created, hence the other stars do not need to be indexed.
+     */
+    private static Map<Star, Integer> starIndexes(StarTable stars) {
+        Map<Star, Integer> starIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < stars.size(); ++i) {
+            Star star = stars.createdStar(i);
+            if (star != null) starIndexes.put(star, i);
+        }
+        return starIndexes;
+    }
+
+    private static int[] resolve(Asterism asterism, Map<Star, Integer> starIndexes) {
+        List<Star> asterismStars = asterism.stars();
+        int[] indices = new int[asterismStars.size()];
+        for (int i = 0; i < indices.length; ++i) {
+            Integer index = starIndexes.get(asterismStars.get(i));  // null if not found
+            Preconditions.checkArgument(index != null);
+            indices[i] = index;
+        }
+        return indices;
+    }
+
+    /**
+     * Gives a builder initially containing the stars and asterisms of this catalogue, in order to derive a new
+     * catalogue from it. The storage of the stars and the stars already created are shared with this catalogue, which
+     * is not modified, and the stars of its asterisms do not need to be resolved again.
+     * <p>
+     * The stars added to the builder whose hipparcos ID is already used by a star of the catalogue, or by a star added
+     * before them, are dropped when the new catalogue is built. The asterisms referring to them are then replaced by
+     * new asterisms, referring to the star kept instead, and are not in the new catalogue: the asterisms of the
+     * catalogue, given by {@link #asterisms()}, must be used to query it.
+     *
+     * @return builder containing the stars and asterisms of this catalogue
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Gives a new catalogue containing the stars and asterisms of this catalogue, followed by the given stars and
+     * asterisms. The given stars whose hipparcos ID is already in the catalogue, or is the one of a previous given
+     * star, are dropped. The given asterisms referring to a dropped star are replaced in the new catalogue by new
+     * asterisms, referring to the star kept instead, the given asterisms themselves not being in the new catalogue.
+     *
+     * @param stars     stars to add to the catalogue
+     * @param asterisms asterisms to add to the catalogue, whose stars may belong to this catalogue or to {@code stars}
+     *
+     * @return the new catalogue
+     *
+     * @throws IllegalArgumentException if a star of an asterism is neither in this catalogue nor in {@code stars}
+     * @see #toBuilder()
+     */
+    public StarCatalogue withAdditions(List<Star> stars, List<Asterism> asterisms) {
+        Builder builder = toBuilder();
+        for (Star star : stars) builder.addStar(star);
+        for (Asterism asterism : asterisms) builder.addAsterism(asterism);
+        return builder.build();
+    }
+
+    /**
+     * Gives a list of the stars contained in the catalogue. The stars are only created when they are accessed for the
+     * first time.
+     *
+     * @return unmodifiable list of the stars contained in the catalogue
      */
     public List<Star> stars() {
+        return stars.stars();
+    }
+
+    /**
+     * Gives the number of stars contained in the catalogue, without creating them
+     *
+     * @return number of stars contained in the catalogue
+     */
+    public int starCount() {
+        return stars.size();
+    }
+
+    /**
+     * Gives the apparent magnitude of the star with the given index, without creating it
+     *
+     * @param index index of the star in the catalogue
+     *
+     * @return apparent magnitude of the star
+     *
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public double starMagnitude(int index) {
+        return stars.magnitude(index);
+    }
+
+    /**
+     * Gives the number of stars whose magnitude is at most the given one, which are the first ones in the order of
+     * {@link #starIndexByMagnitude(int)}
+     *
+     * @param limitingMagnitude magnitude of the faintest stars to count
+     *
+     * @return the number of stars at least as bright as the limiting magnitude
+     */
+    public int brighterStarCount(double limitingMagnitude) {
+        // binary search of the first star fainter than the limit
+        int low = 0, high = sortedMagnitudes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedMagnitudes[middle] <= limitingMagnitude) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Gives the index of the star of the given rank, the stars being sorted from the brightest to the faintest. Stars
+     * of equal magnitude are in the order of the catalogue.
+     *
+     * @param rank rank of the star, 0 being the brightest one
+     *
+     * @return index of the star in the catalogue
+     *
+     * @throws IndexOutOfBoundsException if the rank is invalid
+     */
+    public int starIndexByMagnitude(int rank) {
+        return starsByMagnitude[Objects.checkIndex(rank, starsByMagnitude.length)];
+    }
+
+    /**
+     * Gives the color temperature of the star with the given index, without creating it
+     *
+     * @param index index of the star in the catalogue
+     *
+     * @return approximate color temperature of the star
+     *
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int starColorTemperature(int index) {
+        return stars.colorTemperature(index);
+    }
+
+    /**
+     * Gives the name of the star with the given index, without creating it
+     *
+     * @param index index of the star in the catalogue
+     *
+     * @return name of the star, in the form it has in the catalogue
+     *
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public String starName(int index) {
+        return stars.name(index);
+    }
+
+    /**
+     * Gives the hipparcos ID of the star with the given index, without creating it
+     *
+     * @param index index of the star in the catalogue
+     *
+     * @return hipparcos ID of the star, 0 if it has none
+     *
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    public int starHipparcosId(int index) {
+        return stars.hipparcosId(index);
+    }
+
+    /**
+     * Gives the index of the stars by their position on the celestial sphere, which is built the first time it is
+     * needed. It does not depend on the observation, hence it is shared by all the skies of this catalogue.
+     *
+     * @return the index of the positions of the stars
+     */
+    public SkyIndex skyIndex() {
+        SkyIndex skyIndex = this.skyIndex;
+        // two threads may build the index at the same time, they build identical ones
+        if (skyIndex == null) this.skyIndex = skyIndex = new SkyIndex(this);
+        return skyIndex;
+    }
+
+    /**
+     * Gives the index of the stars by their hipparcos ID and by their name, which is built the first time it is
+     * needed, so that the catalogues which are never searched do not pay for it
+     *
+     * @return the index of the names of the stars
+     */
+    public StarNameIndex nameIndex() {
+        StarNameIndex nameIndex = this.nameIndex;
+        // two threads may build the index at the same time, they build identical ones
+        if (nameIndex == null) this.nameIndex = nameIndex = new StarNameIndex(this);
+        return nameIndex;
+    }
+
+    /**
+     * Gives the table containing the characteristics of the stars, column by column. The table must not be modified.
+     *
+     * @return table of the stars of the catalogue
+     */
+    StarTable starTable() {
         return stars;
     }
 
+    /**
+     * Gives the equatorial unit vectors of the stars, computed when the catalogue was constructed. The array must not
+     * be modified.
+     *
+     * @return unit vectors of the stars, in the format of
+     * {@link EquatorialToCartesianProjection#unitVectors(double[], double[], double[], int)}
+     */
+    double[] starUnitVectors() {
+        return starUnitVectors;
+    }
+
     /**
      * Gives the asterisms contained in the catalogue
      *
      * @return set of the asterisms contained in the catalogue
      */
     public Set<Asterism> asterisms() {
-        return asterismIndices.keySet();
+        return asterismNumbers.keySet();
     }
 
     /**
@@ -79,8 +431,93 @@ public final class StarCatalogue {
      * @throws IllegalArgumentException if the given asterism is not in the catalogue
      */
     public List<Integer> asterismIndices(Asterism asterism) {
-        Preconditions.checkArgument(asterismIndices.containsKey(asterism));
-        return asterismIndices.get(asterism);
+        Integer number = asterismNumbers.get(asterism);  // null if not found
+        Preconditions.checkArgument(number != null);
+        int from = asterismOffsets[number];
+        int to = asterismOffsets[number + 1];
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return asterismStarIndices[from + Objects.checkIndex(index, to - from)];
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Gives the number of asterisms contained in the catalogue. The asterisms are numbered from 0, in the order of
+     * {@link #asterisms()}.
+     *
+     * @return number of asterisms contained in the catalogue
+     */
+    public int asterismCount() {
+        return asterismNumbers.size();
+    }
+
+    /**
+     * Gives the position of the first star of the given asterism among the stars of all the asterisms. The stars of
+     * the asterism are at the positions {@code asterismStart(asterism)} (inclusive) to {@code asterismEnd(asterism)}
+     * (exclusive), and their index in the catalogue is given by {@link #asterismStarIndex(int)}.
+     *
+     * @param asterism number of the asterism
+     *
+     * @return position of the first star of the asterism
+     *
+     * @throws IndexOutOfBoundsException if the asterism number is invalid
+     */
+    public int asterismStart(int asterism) {
+        return asterismOffsets[Objects.checkIndex(asterism, asterismCount())];
+    }
+
+    /**
+     * Gives the position following the last star of the given asterism among the stars of all the asterisms
+     *
+     * @param asterism number of the asterism
+     *
+     * @return position following the last star of the asterism
+     *
+     * @throws IndexOutOfBoundsException if the asterism number is invalid
+     * @see #asterismStart(int)
+     */
+    public int asterismEnd(int asterism) {
+        return asterismOffsets[Objects.checkIndex(asterism, asterismCount()) + 1];
+    }
+
+    /**
+     * Gives the index in the catalogue of the star at the given position among the stars of all the asterisms
+     *
+     * @param position position of the star, between {@code asterismStart(a)} and {@code asterismEnd(a)} for the
+     *                 stars of the asterism number {@code a}
+     *
+     * @return index of the star in the catalogue
+     *
+     * @throws IndexOutOfBoundsException if the position is invalid
+     * @see #asterismStart(int)
+     */
+    public int asterismStarIndex(int position) {
+        return asterismStarIndices[position];
+    }
+
+    /**
+     * Gives the offsets of the asterisms in the array of their star indices. The array must not be modified.
+     *
+     * @return index of the first star of each asterism, followed by the total number of asterism stars
+     */
+    int[] asterismOffsets() {
+        return asterismOffsets;
+    }
+
+    /**
+     * Gives the index of the stars of all the asterisms, one asterism after the other. The array must not be modified.
+     *
+     * @return index of the stars of all the asterisms
+     */
+    int[] asterismStarIndices() {
+        return asterismStarIndices;
     }
 
     /**
@@ -88,21 +525,101 @@ public final class StarCatalogue {
      */
     public interface Loader {
         void load(InputStream inputStream, Builder builder) throws IOException;
+
+        /**
+         * Loads the data provided by the given stream into the given builder, only keeping the stars accepted by the
+         * given filter. The rejected stars having a Hipparcos ID are kept aside by the builder, so that asterisms can
+         * still refer to them.
+         * <p>
+         * By default, all the stars are loaded before being filtered. Loaders creating stars should override this
+         * method in order to apply the filter before creating them.
+         *
+         * @param inputStream stream of data to add to the catalogue
+         * @param builder     builder to which to add the data
+         * @param filter      filter selecting the stars to add
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        default void load(InputStream inputStream, Builder builder, StarFilter filter) throws IOException {
+            int firstNewStar = builder.stars().size();
+            load(inputStream, builder);
+            builder.filterStars(firstNewStar, filter);
+        }
+
+        /**
+         * Loads the data stored in the given file into the given builder. By default, the file is simply opened as a
+         * stream, but loaders able to use random access (e.g. memory mapping) should override this method.
+         *
+         * @param path    path of the file containing the data
+         * @param builder builder to which to add the data
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        default void load(Path path, Builder builder) throws IOException {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                load(inputStream, builder);
+            }
+        }
+
+        /**
+         * Loads the data stored in the given file into the given builder, only keeping the stars accepted by the given
+         * filter. By default, the file is simply opened as a stream.
+         *
+         * @param path    path of the file containing the data
+         * @param builder builder to which to add the data
+         * @param filter  filter selecting the stars to add
+         *
+         * @throws IOException if an I/O error occurs
+         * @see #load(InputStream, Builder, StarFilter)
+         */
+        default void load(Path path, Builder builder, StarFilter filter) throws IOException {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                load(inputStream, builder, filter);
+            }
+        }
     }
 
     /**
      * Builds a catalogue incrementally
      */
     public static final class Builder {
-        private final List<Star> stars;
+        private final StarTable stars;
         private final List<Asterism> asterisms;
+        private final List<int[]> asterismRows;  // rows of the stars of each asterism, null if not known
+        private final StarTable reservedStars;   // stars rejected by a filter
+        private final IntIntMap reservedRows;    // rows of the reserved stars, by hipparcos ID
+        private final StarCatalogue base;        // catalogue derived, whose stars are the first rows, null if none
+        private int checkedStars;                // number of stars known to have distinct hipparcos IDs
 
         /**
          * Constructs a new {StarCatalogue.Builder}
          */
         public Builder() {
-            stars = new ArrayList<>();
+            stars = new StarTable();
             asterisms = new ArrayList<>();
+            asterismRows = new ArrayList<>();
+            reservedStars = new StarTable();
+            reservedRows = new IntIntMap(0, -1);
+            base = null;
+        }
+
+        /**
+         * Constructs a builder containing the stars and asterisms of the given catalogue, sharing its storage
+         *
+         * @param base catalogue from which to derive a new catalogue
+         */
+        private Builder(StarCatalogue base) {
+            stars = base.stars.share();
+            asterisms = new ArrayList<>(base.asterisms());
+            asterismRows = new ArrayList<>(asterisms.size());
+            for (int a = 0; a < asterisms.size(); ++a) {
+                asterismRows.add(Arrays.copyOfRange(base.asterismStarIndices, base.asterismOffsets[a],
+                                                    base.asterismOffsets[a + 1]));
+            }
+            reservedStars = new StarTable();
+            reservedRows = new IntIntMap(0, -1);
+            this.base = base;
+            checkedStars = stars.size();
         }
 
         /**
@@ -113,7 +630,26 @@ public final class StarCatalogue {
          * @return a reference to this object
          */
         public Builder addStar(Star star) {
-            stars.add(star);
+            stars.add(Objects.requireNonNull(star));
+            return this;
+        }
+
+        /**
+         * Adds a star with the given characteristics to the catalogue in construction, without creating it
+         *
+         * @param hipparcosId hipparcos identification number of the star
+         * @param name        name of the star
+         * @param ra          right ascension of the star, in radians
+         * @param dec         declination of the star, in radians
+         * @param magnitude   apparent magnitude of the star
+         * @param colorIndex  color index of the star
+         *
+         * @return a reference to this object
+         *
+         * @throws IllegalArgumentException if one of the characteristics is invalid for a star
+         */
+        Builder addStar(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex) {
+            stars.add(hipparcosId, name, ra, dec, magnitude, colorIndex);
             return this;
         }
 
@@ -123,7 +659,16 @@ public final class StarCatalogue {
          * @return unmodifiable view of the list of stars in the builder
          */
         public List<Star> stars() {
-            return Collections.unmodifiableList(stars);
+            return stars.stars();
+        }
+
+        /**
+         * Gives the table containing the stars in the catalogue in construction. The table must not be modified.
+         *
+         * @return table of the stars in the builder
+         */
+        StarTable starTable() {
+            return stars;
         }
 
         /**
@@ -135,6 +680,22 @@ public final class StarCatalogue {
          */
         public Builder addAsterism(Asterism asterism) {
             asterisms.add(asterism);
+            asterismRows.add(null);
+            return this;
+        }
+
+        /**
+         * Adds an asterism whose stars are at the given rows of the table of the builder, so that they do not have to
+         * be searched when the catalogue is built
+         *
+         * @param asterism asterism to add to the catalogue
+         * @param rows     row of each star of the asterism in the table of the builder
+         *
+         * @return a reference to this object
+         */
+        Builder addAsterism(Asterism asterism, int[] rows) {
+            asterisms.add(asterism);
+            asterismRows.add(rows.clone());
             return this;
         }
 
@@ -163,12 +724,183 @@ public final class StarCatalogue {
         }
 
         /**
-         * Builds a catalogue from the data stored in the builder
+         * Adds data from the given stream to the catalogue in construction using the given loader, only keeping the
+         * stars accepted by the given filter. The rejected stars are nevertheless available to the asterisms loaded
+         * afterwards.
+         *
+         * @param inputStream stream of data to add to the catalogue
+         * @param loader      object adding the data to the catalogue
+         * @param filter      filter selecting the stars to add
+         *
+         * @return a reference to this object
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public Builder loadFrom(InputStream inputStream, Loader loader, StarFilter filter) throws IOException {
+            loader.load(inputStream, this, filter);
+            return this;
+        }
+
+        /**
+         * Adds data from the given file to the catalogue in construction using the given loader
+         *
+         * @param path   path of the file containing the data to add to the catalogue
+         * @param loader object adding the data to the catalogue
+         *
+         * @return a reference to this object
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public Builder loadFrom(Path path, Loader loader) throws IOException {
+            loader.load(path, this);
+            return this;
+        }
+
+        /**
+         * Adds data from the given file to the catalogue in construction using the given loader, only keeping the
+         * stars accepted by the given filter. The rejected stars are nevertheless available to the asterisms loaded
+         * afterwards.
+         *
+         * @param path   path of the file containing the data to add to the catalogue
+         * @param loader object adding the data to the catalogue
+         * @param filter filter selecting the stars to add
+         *
+         * @return a reference to this object
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public Builder loadFrom(Path path, Loader loader, StarFilter filter) throws IOException {
+            loader.load(path, this, filter);
+            return this;
+        }
+
+        /**
+         * Keeps aside the characteristics of a star rejected by a filter, so that it can be added later if an asterism
+         * refers to it. Stars without hipparcos ID cannot be referred to and are therefore ignored.
+         *
+         * @param hipparcosId hipparcos identification number of the star
+         * @param name        name of the star
+         * @param ra          right ascension of the star, in radians
+         * @param dec         declination of the star, in radians
+         * @param magnitude   apparent magnitude of the star
+         * @param colorIndex  color index of the star
+         *
+         * @throws IllegalArgumentException if one of the characteristics is invalid for a star
+         */
+        void reserveStar(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex) {
+            if (hipparcosId != 0 && !reservedRows.containsKey(hipparcosId)) {
+                reservedStars.add(hipparcosId, name, ra, dec, magnitude, colorIndex);
+                reservedRows.put(hipparcosId, reservedStars.size() - 1);
+            }
+        }
+
+        /**
+         * Adds the star with the given hipparcos ID that was previously rejected by a filter to the catalogue in
+         * construction
+         *
+         * @param hipparcosId hipparcos identification number of the star
+         *
+         * @return the added star, {@code null} if no star with the given ID was rejected
+         */
+        Star addReservedStar(int hipparcosId) {
+            int row = reservedRows.remove(hipparcosId);
+            if (row < 0) return null;
+            stars.add(reservedStars, row);
+            return stars.star(stars.size() - 1);
+        }
+
+        /**
+         * Removes the stars rejected by the given filter among the stars added since the given index, and keeps them
+         * aside
+         *
+         * @param from   index of the first star to filter
+         * @param filter filter selecting the stars to keep
+         */
+        void filterStars(int from, StarFilter filter) {
+            int firstReservedRow = reservedStars.size();
+            stars.retain(from, filter, reservedStars);
+            for (int row = firstReservedRow; row < reservedStars.size(); ++row) {
+                reservedRows.putIfAbsent(reservedStars.hipparcosId(row), row);
+            }
+        }
+
+        /**
+         * Removes the stars added since the last check whose hipparcos ID is already used by a previous star, and makes
+         * the asterisms refer to the star kept instead. The added stars are joined with the previous ones on their
+         * hipparcos ID, with a hash table built on the added stars only, which are usually much less numerous.
+         */
+        private void removeDuplicateStars() {
+            int addedCount = stars.size() - checkedStars;
+            IntIntMap addedRows = new IntIntMap(addedCount, -1);  // first added row of each hipparcos ID
+            int[] keptRows = new int[addedCount];  // for each added row, the row of the star kept instead, or -1
+            Arrays.fill(keptRows, -1);
+            boolean duplicates = false;
+            for (int row = checkedStars; row < stars.size(); ++row) {
+                int hipparcosId = stars.hipparcosId(row);
+                if (hipparcosId == 0) continue;  // stars without ID cannot be identified
+                int firstRow = addedRows.get(hipparcosId);
+                if (firstRow < 0) {
+                    addedRows.put(hipparcosId, row);
+                } else {
+                    keptRows[row - checkedStars] = firstRow;
+                    duplicates = true;
+                }
+            }
+
+            int[] hipparcosIds = stars.hipparcosIds();
+            for (int row = 0; row < checkedStars && addedRows.size() > 0; ++row) {
+                if (hipparcosIds[row] == 0) continue;
+                int addedRow = addedRows.remove(hipparcosIds[row]);  // the first previous star with the ID is kept
+                if (addedRow >= 0) {
+                    keptRows[addedRow - checkedStars] = row;
+                    duplicates = true;
+                }
+            }
+
+            if (duplicates) {
+                // the asterisms refer to their stars by identity, which must be done before the stars are removed
+                Map<Star, Integer> starIndexes = null;
+                for (int a = 0; a < asterisms.size(); ++a) {
+                    if (asterismRows.get(a) == null) {
+                        if (starIndexes == null) starIndexes = starIndexes(stars);
+                        asterismRows.set(a, resolve(asterisms.get(a), starIndexes));
+                    }
+                }
+
+                boolean[] removed = new boolean[addedCount];
+                for (int i = 0; i < addedCount; ++i) removed[i] = keptRows[i] >= 0;
+                int[] newRows = stars.remove(checkedStars, removed);
+                for (int a = 0; a < asterisms.size(); ++a) {
+                    int[] rows = asterismRows.get(a);
+                    boolean replaced = false;
+                    for (int i = 0; i < rows.length; ++i) {
+                        int row = rows[i];
+                        while (row >= checkedStars && removed[row - checkedStars]) {
+                            row = keptRows[row - checkedStars];
+                            replaced = true;
+                        }
+                        rows[i] = row < checkedStars ? row : newRows[row - checkedStars];
+                    }
+                    if (replaced) {
+                        List<Star> asterismStars = new ArrayList<>(rows.length);
+                        for (int row : rows) asterismStars.add(stars.star(row));
+                        asterisms.set(a, new Asterism(asterismStars));
+                    }
+                }
+            }
+            checkedStars = stars.size();
+        }
+
+        /**
+         * Builds a catalogue from the data stored in the builder. The catalogue shares the storage of the stars with
+         * the builder, the stars added to the builder afterwards are not visible to it.
          *
          * @return new catalogue with the stars and asterisms stored in the builder
          */
         public StarCatalogue build() {
-            return new StarCatalogue(stars, asterisms);
+            // the stars added to a derived catalogue must be de-duplicated
+            if (base != null) removeDuplicateStars();
+            return new StarCatalogue(stars.share(), asterisms, asterismRows, base);
         }
     }
 }
\ No newline at end of file
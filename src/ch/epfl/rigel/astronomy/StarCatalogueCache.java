@@ -0,0 +1,192 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Cache file storing a fully built catalogue, so that it can be loaded without parsing its sources nor resolving the
+ * stars of its asterisms. The cache is keyed by a checksum of the sources: it is rebuilt as soon as one of them
+ * changes.
+ * <p>
+ * Layout of the file (big-endian):
+ * <pre>
+ * header              : magic number, version (2 ints), key (1 long)
+ * stars               : binary catalogue of the stars, as read by {@link BinaryCatalogueLoader}
+ * asterism header     : asterism count a, total number of asterism stars s (2 ints)
+ * asterismOffsets     : a + 1 ints, offset in asterismStarIndices of the first star of each asterism
+ * asterismStarIndices : s ints, index of the stars of the asterisms
+ * </pre>
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class StarCatalogueCache {
+    static final int MAGIC = 0x52474C4B;  // "RGLK"
+    static final int VERSION = 2;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+    private final Path file;
+
+    /**
+     * Constructs a cache stored in the given file. The file is only read or written when a catalogue is loaded.
+     *
+     * @param file path of the cache file
+     */
+    public StarCatalogueCache(Path file) {
+        this.file = Objects.requireNonNull(file);
+    }
+
+    /**
+     * Loads the catalogue built from the given HYG database and asterisms. If the cache file was built from the same
+     * sources, the catalogue is read from it, otherwise it is built from the sources and the cache file is rewritten.
+     * The streams are not closed.
+     *
+     * @param hygStream      stream providing the HYG database
+     * @param asterismStream stream providing the asterisms
+     *
+     * @return the catalogue built from the given sources
+     *
+     * @throws IOException if an I/O error occurs while reading the sources
+     */
+    public StarCatalogue load(InputStream hygStream, InputStream asterismStream) throws IOException {
+        byte[] hygData = hygStream.readAllBytes();
+        byte[] asterismData = asterismStream.readAllBytes();
+        long key = key(hygData, asterismData);
+
+        try {
+            return read(ByteBuffer.wrap(Files.readAllBytes(file)), key);  // a single bulk read
+        } catch (IOException exception) {
+            // missing, unreadable or outdated cache, it must be rebuilt
+        }
+
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(hygData), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterismData), AsterismLoader.INSTANCE)
+                .build();
+
+        try {
+            save(catalogue, key);
+        } catch (IOException exception) {
+            // the cache is only an optimization, the catalogue can be used even if it could not be saved
+        }
+        return catalogue;
+    }
+
+    /**
+     * Computes the key identifying the given sources
+     *
+     * @param hygData      content of the HYG database
+     * @param asterismData content of the asterisms file
+     *
+     * @return checksum of the HYG database in the upper half, checksum of the asterisms in the lower half
+     */
+    static long key(byte[] hygData, byte[] asterismData) {
+        CRC32 crc = new CRC32();
+        crc.update(hygData);
+        long hygChecksum = crc.getValue();
+        crc.reset();
+        crc.update(asterismData);
+        return hygChecksum << Integer.SIZE | crc.getValue();
+    }
+
+    /**
+     * Writes the given catalogue to the cache file. The file is first written next to its final location, then moved,
+     * so that an interrupted write cannot leave an invalid cache.
+     */
+    private void save(StarCatalogue catalogue, long key) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+                write(catalogue, key, outputStream);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Writes the given catalogue in the cache format to the given stream. The stream is flushed but not closed.
+     *
+     * @param catalogue    catalogue to write
+     * @param key          key of the sources of the catalogue
+     * @param outputStream stream to which to write the catalogue
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    static void write(StarCatalogue catalogue, long key, OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(key);
+        output.flush();
+
+        BinaryCatalogueConverter.write(catalogue.starTable(), outputStream);
+
+        int[] asterismOffsets = catalogue.asterismOffsets();
+        int[] asterismStarIndices = catalogue.asterismStarIndices();
+        output.writeInt(asterismOffsets.length - 1);
+        output.writeInt(asterismStarIndices.length);
+        for (int offset : asterismOffsets) output.writeInt(offset);
+        for (int index : asterismStarIndices) output.writeInt(index);
+        output.flush();
+    }
+
+    /**
+     * Reads the catalogue stored in the given buffer
+     *
+     * @param buffer buffer containing the cache file
+     * @param key    key of the current sources of the catalogue
+     *
+     * @return the catalogue stored in the buffer
+     *
+     * @throws IOException if the buffer does not contain a valid cache built from the current sources
+     */
+    static StarCatalogue read(ByteBuffer buffer, long key) throws IOException {
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != key) {
+                throw new IOException("Outdated catalogue cache");
+            }
+
+            StarCatalogue.Builder builder = new StarCatalogue.Builder();
+            BinaryCatalogueLoader.read(buffer, builder, StarFilter.ALL);
+
+            int asterismCount = buffer.getInt();
+            int asterismStarCount = buffer.getInt();
+            if (asterismCount < 0 || asterismStarCount < 0
+                || buffer.remaining() < ((long) asterismCount + 1 + asterismStarCount) * Integer.BYTES) {
+                throw new IOException("Corrupted catalogue cache");
+            }
+
+            int[] asterismOffsets = new int[asterismCount + 1];
+            buffer.asIntBuffer().get(asterismOffsets);
+            skip(buffer, (asterismCount + 1) * Integer.BYTES);
+
+            int[] asterismStarIndices = new int[asterismStarCount];
+            buffer.asIntBuffer().get(asterismStarIndices);
+
+            // the builder is dropped, hence its table is not modified afterwards
+            return StarCatalogue.ofResolvedAsterisms(builder.starTable(), asterismOffsets, asterismStarIndices);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException exception) {
+            throw new IOException("Corrupted catalogue cache", exception);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int byteCount) {
+        buffer.position(buffer.position() + byteCount);
+    }
+}
@@ -0,0 +1,174 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialToCartesianProjection;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.Trigonometry;
+
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Projected positions of the stars of a catalogue. Since the equatorial coordinates of the stars never change, they
+ * only depend on the local sidereal time, on the latitude of the observer and on the projection.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class StarField {
+    // below this number of stars, the positions are always computed sequentially
+    static final int PARALLEL_THRESHOLD = 16_384;
+    private static final int PARALLEL_CHUNK_SIZE = 4_096;
+
+    private final StarCatalogue catalogue;
+    private final ObservedSky.StarProjection method;
+    private final boolean parallel;
+    private final StarBufferPool pool;  // null if the arrays are not recycled
+
+    // inputs of the positions
+    private final double siderealLocal;
+    private final double latitude;
+    private final StereographicProjection projection;
+
+    private final double[] positions;  // even index for x, odd index for y
+
+    /**
+     * Computes the positions of the stars of the given catalogue, seen at the given time and place
+     *
+     * @param when       date and time of the observation
+     * @param where      position of the observer
+     * @param projection projection to use
+     * @param catalogue  catalogue containing the stars
+     * @param method     method used to compute the positions of the stars
+     * @param parallel   whether the positions of large catalogues are computed in parallel
+     * @param pool       pool from which the array of the positions is taken, null to allocate it
+     */
+    StarField(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+              StarCatalogue catalogue, ObservedSky.StarProjection method, boolean parallel, StarBufferPool pool) {
+        this.catalogue = catalogue;
+        this.method = Objects.requireNonNull(method);
+        this.parallel = parallel;
+        this.pool = pool;
+        this.siderealLocal = SiderealTime.local(when, where);
+        this.latitude = where.lat();
+        this.projection = projection;
+
+        // the coordinates are read directly from the catalogue so that no star is created
+        int count = catalogue.starCount();
+        positions = pool == null ? new double[2 * count] : pool.acquirePositions();
+        RangeProjection projectRange;
+        if (method == ObservedSky.StarProjection.ROTATION_MATRIX) {
+            // no trigonometric function is computed per star
+            EquatorialToCartesianProjection toPlane = new EquatorialToCartesianProjection(when, where, projection);
+            double[] unitVectors = catalogue.starUnitVectors();
+            projectRange = (from, to) -> toPlane.apply(unitVectors, positions, from, to);
+        } else {
+            EquatorialToHorizontalConversion toHorizontal = new EquatorialToHorizontalConversion(when, where);
+            StarTable stars = catalogue.starTable();
+            Trigonometry trigonometry = method == ObservedSky.StarProjection.FAST_TRIGONOMETRIC
+                                        ? Trigonometry.FAST
+                                        : Trigonometry.EXACT;
+            projectRange = (from, to) -> {
+                toHorizontal.apply(stars.ra(), stars.dec(), positions, from, to, trigonometry);
+                projection.apply(positions, positions, from, to, trigonometry);  // in place
+            };
+        }
+
+        if (parallel && count >= PARALLEL_THRESHOLD) {
+            // each star is projected exactly as sequentially, into its own slice of the array
+            ForkJoinPool.commonPool().invoke(new ProjectionTask(projectRange, 0, count));
+        } else {
+            projectRange.apply(0, count);
+        }
+    }
+
+    /**
+     * Gives the positions of the stars seen at the given time and place. They are only computed again if the local
+     * sidereal time, the latitude or the projection changed.
+     *
+     * @param when       date and time of the observation
+     * @param where      position of the observer
+     * @param projection projection to use
+     *
+     * @return this star field if its inputs did not change, a new one otherwise
+     */
+    StarField at(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection) {
+        if (projection == this.projection && where.lat() == latitude
+            && SiderealTime.local(when, where) == siderealLocal) {
+            return this;
+        }
+        return new StarField(when, where, projection, catalogue, method, parallel, pool);
+    }
+
+    StarCatalogue catalogue() {
+        return catalogue;
+    }
+
+    StarBufferPool pool() {
+        return pool;
+    }
+
+    /**
+     * Gives the array of the positions if it was taken from a pool
+     *
+     * @return the array of the positions, null if it was not taken from a pool
+     */
+    double[] recyclablePositions() {
+        return pool == null ? null : positions;
+    }
+
+    double siderealLocal() {
+        return siderealLocal;
+    }
+
+    double latitude() {
+        return latitude;
+    }
+
+    /**
+     * Gives the positions of the stars. The array must not be modified.
+     *
+     * @return positions of the stars, where even positions represent x-coordinates and odd ones represent
+     * y-coordinates
+     */
+    double[] positions() {
+        return positions;
+    }
+
+    /**
+     * Projects the stars of a range of indices into the array of the positions
+     */
+    @FunctionalInterface
+    private interface RangeProjection {
+        void apply(int from, int to);
+    }
+
+    /**
+     * Task projecting a range of stars, split in halves until they are small enough
+     */
+    private static final class ProjectionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeProjection projectRange;
+        private final int from, to;
+
+        private ProjectionTask(RangeProjection projectRange, int from, int to) {
+            this.projectRange = projectRange;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK_SIZE) {
+                projectRange.apply(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ProjectionTask(projectRange, from, middle), new ProjectionTask(projectRange, middle, to));
+            }
+        }
+    }
+}
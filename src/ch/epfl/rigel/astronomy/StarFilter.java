@@ -0,0 +1,108 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.math.ClosedInterval;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Immutable criteria selecting the stars to load in a catalogue. Filters are applied by the loaders before the stars
+ * are created, so that rejected stars cost (almost) nothing.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class StarFilter {
+    private static final ClosedInterval ALL_DECLINATIONS = ClosedInterval.symmetric(Math.PI);
+
+    /**
+     * Filter accepting all the stars
+     */
+    public static final StarFilter ALL = new StarFilter(Double.POSITIVE_INFINITY, ALL_DECLINATIONS);
+
+    private final double limitingMagnitude;
+    private final ClosedInterval declinationBand;
+
+    private StarFilter(double limitingMagnitude, ClosedInterval declinationBand) {
+        this.limitingMagnitude = limitingMagnitude;
+        this.declinationBand = Objects.requireNonNull(declinationBand);
+    }
+
+    /**
+     * Creates a filter only accepting stars at least as bright as the given magnitude
+     *
+     * @param limitingMagnitude apparent magnitude of the faintest stars to accept
+     *
+     * @return filter only accepting stars whose magnitude is at most {@code limitingMagnitude}
+     */
+    public static StarFilter limitingMagnitude(double limitingMagnitude) {
+        return ALL.withLimitingMagnitude(limitingMagnitude);
+    }
+
+    /**
+     * Creates a filter only accepting stars whose declination is in the given interval
+     *
+     * @param declinationBand interval of accepted declinations, in radians
+     *
+     * @return filter only accepting stars whose declination is in {@code declinationBand}
+     */
+    public static StarFilter declinationBand(ClosedInterval declinationBand) {
+        return ALL.withDeclinationBand(declinationBand);
+    }
+
+    /**
+     * Gives a copy of this filter with the given limiting magnitude
+     *
+     * @param limitingMagnitude apparent magnitude of the faintest stars to accept
+     *
+     * @return copy of this filter with the given limiting magnitude
+     */
+    public StarFilter withLimitingMagnitude(double limitingMagnitude) {
+        return new StarFilter(limitingMagnitude, declinationBand);
+    }
+
+    /**
+     * Gives a copy of this filter with the given declination band
+     *
+     * @param declinationBand interval of accepted declinations, in radians
+     *
+     * @return copy of this filter with the given declination band
+     */
+    public StarFilter withDeclinationBand(ClosedInterval declinationBand) {
+        return new StarFilter(limitingMagnitude, declinationBand);
+    }
+
+    /**
+     * Informs whether a star with the given characteristics is accepted by the filter
+     *
+     * @param dec       declination of the star, in radians
+     * @param magnitude apparent magnitude of the star
+     *
+     * @return {@code true} if the star is accepted
+     */
+    public boolean accepts(double dec, double magnitude) {
+        return magnitude <= limitingMagnitude && declinationBand.contains(dec);
+    }
+
+    /**
+     * Informs whether the given star is accepted by the filter
+     *
+     * @param star star to test
+     *
+     * @return {@code true} if the star is accepted
+     */
+    public boolean accepts(Star star) {
+        return accepts(star.equatorialPos().dec(), star.magnitude());
+    }
+
+    /**
+     * Gives the text representation of the instance
+     *
+     * @return text representation of the instance
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "StarFilter: magnitude<=%.2f, dec in %s", limitingMagnitude,
+                             declinationBand);
+    }
+}
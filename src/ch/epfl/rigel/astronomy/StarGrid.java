@@ -0,0 +1,162 @@
+package ch.epfl.rigel.astronomy;
+
+/**
+ * Uniform grid over the projected positions of the visible stars of a sky, used to find the star closest to a point
+ * by only examining the cells around it. The cells are square and contain a few stars on average. The stars whose
+ * position is far from the center of the projection, where the stereographic projection spreads them out, are kept
+ * apart and always examined, so that they do not stretch the grid.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class StarGrid {
+    private static final double STARS_PER_CELL = 4;
+    // the stars projected further away are not put in the grid (about 150 degrees from the center of the projection)
+    private static final double MAX_EXTENT = 4;
+
+    private final double[] positions;
+    private final double minX, minY;
+    private final double cellSize;
+    private final int columns, rows;
+    private final int[] cellStarts;  // stars of cell c: cellStars[cellStarts[c]] to cellStars[cellStarts[c + 1] - 1]
+    private final int[] cellStars;
+    private final int[] outlyingStars;
+
+    /**
+     * Puts the given visible stars in a grid
+     *
+     * @param positions    projected positions of all the stars, even index for x, odd index for y
+     * @param visibleStars stars to put in the grid
+     */
+    StarGrid(double[] positions, VisibleStars visibleStars) {
+        this.positions = positions;
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        int griddedCount = 0;
+        for (int v = 0; v < visibleStars.count(); ++v) {
+            int i = visibleStars.index(v);
+            double x = positions[2 * i], y = positions[2 * i + 1];
+            if (!isGridded(x, y)) continue;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            ++griddedCount;
+        }
+
+        double width = Math.max(0, maxX - minX), height = Math.max(0, maxY - minY);
+        double cellSize = Math.max(Math.sqrt(width * height * STARS_PER_CELL / Math.max(1, griddedCount)),
+                                   Math.max(width, height) / Math.max(1, griddedCount));
+        this.cellSize = cellSize > 0 ? cellSize : 1;  // all the stars may be at the same position
+        this.minX = griddedCount > 0 ? minX : 0;
+        this.minY = griddedCount > 0 ? minY : 0;
+        this.columns = (int) (width / this.cellSize) + 1;
+        this.rows = (int) (height / this.cellSize) + 1;
+
+        // counting sort of the stars by cell, which keeps them in increasing order in each cell
+        cellStarts = new int[columns * rows + 1];
+        cellStars = new int[griddedCount];
+        outlyingStars = new int[visibleStars.count() - griddedCount];
+        for (int v = 0; v < visibleStars.count(); ++v) {
+            int i = visibleStars.index(v);
+            if (isGridded(positions[2 * i], positions[2 * i + 1])) {
+                ++cellStarts[cellOf(positions[2 * i], positions[2 * i + 1]) + 1];
+            }
+        }
+        for (int c = 0; c < columns * rows; ++c) cellStarts[c + 1] += cellStarts[c];
+        int[] nextPositions = new int[columns * rows];
+        System.arraycopy(cellStarts, 0, nextPositions, 0, columns * rows);
+        int outlyingCount = 0;
+        for (int v = 0; v < visibleStars.count(); ++v) {
+            int i = visibleStars.index(v);
+            if (isGridded(positions[2 * i], positions[2 * i + 1])) {
+                cellStars[nextPositions[cellOf(positions[2 * i], positions[2 * i + 1])]++] = i;
+            } else {
+                outlyingStars[outlyingCount++] = i;
+            }
+        }
+    }
+
+    private static boolean isGridded(double x, double y) {
+        return Math.abs(x) <= MAX_EXTENT && Math.abs(y) <= MAX_EXTENT;  // false if a coordinate is NaN
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+
+    private int cellOf(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+
+    /**
+     * Finds the star closest to the given point, among the ones within the maximum distance. In case of equality,
+     * the star with the smallest index is chosen. Only the cells which may contain a closer star than the best one
+     * found so far are examined, ring by ring around the point.
+     *
+     * @param x           x-coordinate of the point
+     * @param y           y-coordinate of the point
+     * @param maxDistance maximum distance of the star, which must be positive
+     *
+     * @return the index of the closest star in the catalogue, -1 if there is no star within the maximum distance
+     */
+    int closestStar(double x, double y, double maxDistance) {
+        double maxDistanceSquared = maxDistance * maxDistance;
+        int closest = -1;
+        double closestDistanceSquared = maxDistanceSquared;
+        for (int i : outlyingStars) {
+            double distanceSquared = distanceSquared(i, x, y);
+            if (isCloser(distanceSquared, i, closestDistanceSquared, closest)) {
+                closest = i;
+                closestDistanceSquared = distanceSquared;
+            }
+        }
+
+        int centerColumn = column(x), centerRow = row(y);
+        int maxRing = Math.max(Math.max(centerColumn, columns - 1 - centerColumn),
+                               Math.max(centerRow, rows - 1 - centerRow));
+        for (int ring = 0; ring <= maxRing; ++ring) {
+            // the cells of this ring are at least (ring - 1) cells away from the point
+            double minDistance = (ring - 1) * cellSize;
+            if (ring > 1 && minDistance * minDistance > closestDistanceSquared) break;
+
+            int firstRow = Math.max(0, centerRow - ring), lastRow = Math.min(rows - 1, centerRow + ring);
+            int firstColumn = Math.max(0, centerColumn - ring);
+            int lastColumn = Math.min(columns - 1, centerColumn + ring);
+            for (int row = firstRow; row <= lastRow; ++row) {
+                boolean borderRow = row == centerRow - ring || row == centerRow + ring;
+                // on the other rows, only the two cells at the ends belong to the ring
+                int step = borderRow ? 1 : 2 * ring;
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += Math.max(1, step)) {
+                    if (column < firstColumn || column > lastColumn) continue;
+                    int cell = row * columns + column;
+                    for (int s = cellStarts[cell]; s < cellStarts[cell + 1]; ++s) {
+                        int i = cellStars[s];
+                        double distanceSquared = distanceSquared(i, x, y);
+                        if (isCloser(distanceSquared, i, closestDistanceSquared, closest)) {
+                            closest = i;
+                            closestDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    private double distanceSquared(int star, double x, double y) {
+        double dx = positions[2 * star] - x;
+        double dy = positions[2 * star + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static boolean isCloser(double distanceSquared, int star, double closestDistanceSquared, int closest) {
+        return distanceSquared < closestDistanceSquared
+               || (distanceSquared == closestDistanceSquared && (closest < 0 || star < closest));
+    }
+}
@@ -0,0 +1,261 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Index of the stars of a catalogue by their hipparcos ID and by their name, allowing to look a star up and to
+ * complete the beginning of a name without examining the whole catalogue, hence fast enough to be queried on every
+ * keystroke.
+ * <p>
+ * The names are indexed case-insensitively in a trie, from each of their words, so that a star named after its Bayer
+ * designation and its constellation, such as "Alp Ori", is found both from "Alp" and from "Ori". The placeholder
+ * "?" of the stars without Bayer designation is not indexed.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ * @see StarCatalogue#nameIndex()
+ */
+public final class StarNameIndex {
+    private static final int NOT_FOUND = -1;
+    private static final String NO_BAYER_DESIGNATION = "?";
+
+    private final StarCatalogue catalogue;
+    private final IntIntMap starsByHipparcosId;
+
+    // keys of the trie (the lower-case names, from each of their words), sorted by key then by magnitude rank of the
+    // star, hence the entries of the keys starting with the prefix of a node are consecutive
+    private final int[] entryRanks;
+    private final boolean[] entryIsName;  // whether the key is the whole name of the star, and not its last words
+
+    // nodes of the trie, the root being node 0; the children of a node are consecutive and sorted by character
+    private final char[] nodeChars;     // character leading from the parent to the node
+    private final int[] nodeStarts;     // first entry whose key starts with the prefix of the node
+    private final int[] nodeExactEnds;  // end of the entries whose key is the prefix of the node
+    private final int[] nodeEnds;       // end of the entries whose key starts with the prefix of the node
+    private final int[] firstChildren;
+    private final int[] childCounts;
+
+    /**
+     * Indexes the stars of the given catalogue
+     *
+     * @param catalogue catalogue of the stars
+     */
+    StarNameIndex(StarCatalogue catalogue) {
+        this.catalogue = catalogue;
+        int starCount = catalogue.starCount();
+
+        starsByHipparcosId = new IntIntMap(starCount, NOT_FOUND);
+        List<Entry> entries = new ArrayList<>(starCount);
+        for (int rank = 0; rank < starCount; ++rank) {
+            int star = catalogue.starIndexByMagnitude(rank);
+            // the stars without hipparcos ID have the ID 0
+            int hipparcosId = catalogue.starHipparcosId(star);
+            if (hipparcosId != 0) starsByHipparcosId.putIfAbsent(hipparcosId, star);
+
+            String name = normalized(catalogue.starName(star));
+            int start = 0;
+            while (start >= 0) {
+                int end = name.indexOf(' ', start);
+                String word = end < 0 ? name.substring(start) : name.substring(start, end);
+                if (!word.isEmpty() && !word.equals(NO_BAYER_DESIGNATION)) {
+                    entries.add(new Entry(name.substring(start), rank, start == 0));
+                }
+                start = end < 0 ? -1 : end + 1;
+            }
+        }
+        entries.sort(Entry.ORDER);
+
+        int entryCount = entries.size();
+        entryRanks = new int[entryCount];
+        entryIsName = new boolean[entryCount];
+        String[] keys = new String[entryCount];
+        for (int e = 0; e < entryCount; ++e) {
+            entryRanks[e] = entries.get(e).rank;
+            entryIsName[e] = entries.get(e).isName;
+            keys[e] = entries.get(e).key;
+        }
+
+        TrieBuilder trie = new TrieBuilder(keys);
+        nodeChars = Arrays.copyOf(trie.chars, trie.nodeCount);
+        nodeStarts = Arrays.copyOf(trie.starts, trie.nodeCount);
+        nodeExactEnds = Arrays.copyOf(trie.exactEnds, trie.nodeCount);
+        nodeEnds = Arrays.copyOf(trie.ends, trie.nodeCount);
+        firstChildren = Arrays.copyOf(trie.firstChildren, trie.nodeCount);
+        childCounts = Arrays.copyOf(trie.childCounts, trie.nodeCount);
+    }
+
+    private static String normalized(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gives the index of the star with the given hipparcos ID
+     *
+     * @param hipparcosId hipparcos ID of the star
+     *
+     * @return the index of the star in the catalogue, -1 if no star has this ID
+     */
+    public int starWithHipparcosId(int hipparcosId) {
+        return hipparcosId == 0 ? NOT_FOUND : starsByHipparcosId.get(hipparcosId);
+    }
+
+    /**
+     * Gives the index of the star with the given name, ignoring the case
+     *
+     * @param name name of the star
+     *
+     * @return the index of the star in the catalogue, the brightest one if several stars have this name, -1 if no
+     * star has it
+     */
+    public int starWithName(String name) {
+        int node = node(normalized(name));
+        if (node == NOT_FOUND) return NOT_FOUND;
+        // the entries of a key are sorted by magnitude
+        for (int e = nodeStarts[node]; e < nodeExactEnds[node]; ++e) {
+            if (entryIsName[e]) return catalogue.starIndexByMagnitude(entryRanks[e]);
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Gives the brightest stars whose name, or one of the words of their name, starts with the given prefix, ignoring
+     * the case. Only the entries of the given prefix are examined.
+     *
+     * @param prefix beginning of the name of the stars
+     * @param count  maximal number of stars
+     *
+     * @return the indices in the catalogue of at most {@code count} stars, from the brightest to the faintest, stars of
+     * equal magnitude being in the order of the catalogue
+     *
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public int[] brightestStarsWithPrefix(String prefix, int count) {
+        Preconditions.checkArgument(count >= 0);
+        int node = node(normalized(prefix));
+        if (node == NOT_FOUND) return new int[0];
+
+        // smallest ranks of the entries of the node, sorted, each star being kept once even if several of the words
+        // of its name start with the prefix
+        int[] ranks = new int[count];
+        int found = 0;
+        for (int e = nodeStarts[node]; e < nodeEnds[node]; ++e) {
+            int rank = entryRanks[e];
+            if (found == count && (count == 0 || rank >= ranks[count - 1])) continue;
+            int position = Arrays.binarySearch(ranks, 0, found, rank);
+            if (position >= 0) continue;
+            position = -position - 1;
+            System.arraycopy(ranks, position, ranks, position + 1, Math.min(found, count - 1) - position);
+            ranks[position] = rank;
+            if (found < count) ++found;
+        }
+
+        int[] stars = new int[found];
+        for (int i = 0; i < found; ++i) stars[i] = catalogue.starIndexByMagnitude(ranks[i]);
+        return stars;
+    }
+
+    /**
+     * Follows the given prefix from the root of the trie
+     *
+     * @return the node of the prefix, -1 if no key starts with it
+     */
+    private int node(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); ++i) {
+            char c = prefix.charAt(i);
+            int low = firstChildren[node], high = low + childCounts[node];
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (nodeChars[middle] < c) low = middle + 1;
+                else high = middle;
+            }
+            if (low == firstChildren[node] + childCounts[node] || nodeChars[low] != c) return NOT_FOUND;
+            node = low;
+        }
+        return node;
+    }
+
+    /**
+     * Key of the trie, leading to a star
+     */
+    private static final class Entry {
+        private static final Comparator<Entry> ORDER = Comparator.<Entry, String>comparing(e -> e.key)
+                .thenComparingInt(e -> e.rank);
+
+        private final String key;
+        private final int rank;  // rank of the star in the order of the magnitudes
+        private final boolean isName;
+
+        private Entry(String key, int rank, boolean isName) {
+            this.key = key;
+            this.rank = rank;
+            this.isName = isName;
+        }
+    }
+
+    /**
+     * Builds the nodes of the trie of the given sorted keys, numbering the children of each node consecutively
+     */
+    private static final class TrieBuilder {
+        private final String[] keys;
+        private char[] chars = new char[16];
+        private int[] starts = new int[16];
+        private int[] exactEnds = new int[16];
+        private int[] ends = new int[16];
+        private int[] firstChildren = new int[16];
+        private int[] childCounts = new int[16];
+        private int nodeCount;
+
+        private TrieBuilder(String[] keys) {
+            this.keys = keys;
+            addNode('\0', 0, keys.length);
+            addChildren(0, 0);
+        }
+
+        private void addNode(char c, int start, int end) {
+            if (nodeCount == chars.length) {
+                int capacity = 2 * nodeCount;
+                chars = Arrays.copyOf(chars, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                exactEnds = Arrays.copyOf(exactEnds, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                childCounts = Arrays.copyOf(childCounts, capacity);
+            }
+            chars[nodeCount] = c;
+            starts[nodeCount] = start;
+            ends[nodeCount] = end;
+            ++nodeCount;
+        }
+
+        /**
+         * Adds the children of the given node, whose keys share their first {@code length} characters, then their
+         * descendants
+         */
+        private void addChildren(int node, int length) {
+            int end = ends[node];
+            int e = starts[node];
+            // the keys equal to the prefix come first
+            while (e < end && keys[e].length() == length) ++e;
+            exactEnds[node] = e;
+
+            int first = nodeCount;
+            while (e < end) {
+                char c = keys[e].charAt(length);
+                int childEnd = e + 1;
+                while (childEnd < end && keys[childEnd].charAt(length) == c) ++childEnd;
+                addNode(c, e, childEnd);
+                e = childEnd;
+            }
+            firstChildren[node] = first;
+            childCounts[node] = nodeCount - first;
+            for (int child = first; child < first + childCounts[node]; ++child) addChildren(child, length + 1);
+        }
+    }
+}
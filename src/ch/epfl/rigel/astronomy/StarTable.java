@@ -0,0 +1,410 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.internationalization.Translation;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Growable table of stars stored column by column, in primitive arrays. The {@code Star} objects, which are much
+ * bigger than their characteristics, are only created when they are asked for, and are then kept so that a given row
+ * is always represented by the same {@code Star}.
+ * <p>
+ * Several tables can share the same arrays (see {@link #share()}), each one using a prefix of them. Rows are only
+ * appended in place by the table owning the last claimed row of the arrays, the other tables copy the arrays before
+ * appending rows. The rows of a table are thus never modified by another table. The stars of the rows common to
+ * several tables stay shared when the arrays are copied, even the ones created afterwards.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class StarTable {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+    private int[] hipparcosIds;
+    private String[] names;
+    private double[] ra, dec;
+    private float[] magnitudes, colorIndices;
+    private int[] colorTemperatures;
+    private StarSlots starSlots;
+    private AtomicInteger claimedRows;  // number of rows used by the tables sharing the arrays
+
+    /**
+     * Constructs an empty table
+     */
+    StarTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty table able to hold the given number of stars without growing
+     *
+     * @param capacity initial capacity of the table
+     */
+    StarTable(int capacity) {
+        size = 0;
+        hipparcosIds = new int[capacity];
+        names = new String[capacity];
+        ra = new double[capacity];
+        dec = new double[capacity];
+        magnitudes = new float[capacity];
+        colorIndices = new float[capacity];
+        colorTemperatures = new int[capacity];
+        starSlots = new StarSlots(null, 0, capacity);
+        claimedRows = new AtomicInteger(0);
+    }
+
+    /**
+     * Adds a star with the given characteristics, without creating it
+     *
+     * @param hipparcosId hipparcos identification number of the star - non negative
+     * @param name        name of the star
+     * @param ra          right ascension of the star, in radians
+     * @param dec         declination of the star, in radians
+     * @param magnitude   apparent magnitude of the star
+     * @param colorIndex  color index of the star, in [-0.5, 5.5]
+     *
+     * @throws IllegalArgumentException if one of the characteristics is invalid for a star
+     * @throws NullPointerException     if the name is {@code null}
+     */
+    void add(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex) {
+        // the same checks as when creating the star, so that creating it later cannot fail
+        Preconditions.checkArgument(hipparcosId >= 0);
+        EquatorialCoordinates.of(ra, dec);
+        int colorTemperature = Star.colorTemperature(colorIndex);
+
+        addRow(hipparcosId, Objects.requireNonNull(name), ra, dec, magnitude, colorIndex, colorTemperature, null);
+    }
+
+    /**
+     * Adds the given star
+     *
+     * @param star star to add
+     */
+    void add(Star star) {
+        addRow(star.hipparcosId(), null, star.equatorialPos().ra(), star.equatorialPos().dec(),
+               (float) star.magnitude(), star.colorIndex(), star.colorTemperature(), star);
+    }
+
+    /**
+     * Adds a copy of the given row of the given table, sharing its star if it was already created
+     *
+     * @param table table containing the row
+     * @param row   index of the row in {@code table}
+     */
+    void add(StarTable table, int row) {
+        Objects.checkIndex(row, table.size);
+        addRow(table.hipparcosIds[row], table.names[row], table.ra[row], table.dec[row], table.magnitudes[row],
+               table.colorIndices[row], table.colorTemperatures[row], table.createdStar(row));
+    }
+
+    private void addRow(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex,
+                        int colorTemperature, Star star) {
+        // the row following the table may already be used by a table sharing the arrays
+        if (size == hipparcosIds.length || !claimedRows.compareAndSet(size, size + 1)) {
+            resize(Math.max(DEFAULT_CAPACITY, 2 * size));
+            claimedRows.set(size + 1);
+        }
+        hipparcosIds[size] = hipparcosId;
+        names[size] = name;
+        this.ra[size] = ra;
+        this.dec[size] = dec;
+        magnitudes[size] = magnitude;
+        colorIndices[size] = colorIndex;
+        colorTemperatures[size] = colorTemperature;
+        starSlots.set(size, star);
+        ++size;
+    }
+
+    private void resize(int capacity) {
+        // the slots of the following rows are only reused if no other table can claim them in the former arrays
+        if (claimedRows.compareAndSet(size, Integer.MAX_VALUE)) {
+            starSlots.grow(capacity);
+        } else {
+            starSlots = new StarSlots(starSlots, size, capacity);
+        }
+        claimedRows = new AtomicInteger(size);
+        hipparcosIds = Arrays.copyOf(hipparcosIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        ra = Arrays.copyOf(ra, capacity);
+        dec = Arrays.copyOf(dec, capacity);
+        magnitudes = Arrays.copyOf(magnitudes, capacity);
+        colorIndices = Arrays.copyOf(colorIndices, capacity);
+        colorTemperatures = Arrays.copyOf(colorTemperatures, capacity);
+    }
+
+    /**
+     * Removes the rows following the given index which are rejected by the given filter, keeping the order of the
+     * remaining rows. The rejected rows having a hipparcos ID are moved to the given table.
+     *
+     * @param from     index of the first row to filter
+     * @param filter   filter selecting the rows to keep
+     * @param rejected table to which to add the rejected rows having a hipparcos ID
+     */
+    void retain(int from, StarFilter filter, StarTable rejected) {
+        int kept = from;
+        for (int i = from; i < size; ++i) {
+            if (filter.accepts(dec[i], magnitudes[i])) {
+                moveRow(i, kept++);
+            } else if (hipparcosIds[i] != 0) {
+                rejected.add(this, i);
+            }
+        }
+        truncate(kept);
+    }
+
+    /**
+     * Removes the rows following the given index which are marked as removed, keeping the order of the remaining rows
+     *
+     * @param from    index of the first row which may be removed
+     * @param removed for each row following {@code from}, whether it must be removed
+     *
+     * @return for each row following {@code from}, its new index, or -1 if it was removed
+     */
+    int[] remove(int from, boolean[] removed) {
+        Preconditions.checkArgument(removed.length == size - from);
+        int[] newRows = new int[removed.length];
+        int kept = from;
+        for (int i = from; i < size; ++i) {
+            if (removed[i - from]) {
+                newRows[i - from] = -1;
+            } else {
+                moveRow(i, kept);
+                newRows[i - from] = kept++;
+            }
+        }
+        truncate(kept);
+        return newRows;
+    }
+
+    private void truncate(int newSize) {
+        Arrays.fill(names, newSize, size, null);
+        for (int row = newSize; row < size; ++row) starSlots.set(row, null);
+        claimedRows.compareAndSet(size, newSize);  // the rows can be reused if no other table claimed rows since
+        size = newSize;
+    }
+
+    private void moveRow(int from, int to) {
+        if (from == to) return;
+        hipparcosIds[to] = hipparcosIds[from];
+        names[to] = names[from];
+        ra[to] = ra[from];
+        dec[to] = dec[from];
+        magnitudes[to] = magnitudes[from];
+        colorIndices[to] = colorIndices[from];
+        colorTemperatures[to] = colorTemperatures[from];
+        starSlots.set(to, starSlots.get(from));
+    }
+
+    /**
+     * Gives a copy of this table, whose arrays have exactly the size of the table. The stars already created are
+     * shared by both tables.
+     *
+     * @return copy of this table
+     */
+    StarTable copy() {
+        StarTable copy = new StarTable(0);
+        copy.size = size;
+        copy.hipparcosIds = Arrays.copyOf(hipparcosIds, size);
+        copy.names = Arrays.copyOf(names, size);
+        copy.ra = Arrays.copyOf(ra, size);
+        copy.dec = Arrays.copyOf(dec, size);
+        copy.magnitudes = Arrays.copyOf(magnitudes, size);
+        copy.colorIndices = Arrays.copyOf(colorIndices, size);
+        copy.colorTemperatures = Arrays.copyOf(colorTemperatures, size);
+        copy.starSlots = new StarSlots(null, 0, size);
+        for (int row = 0; row < size; ++row) copy.starSlots.stars[row] = starSlots.get(row);
+        copy.claimedRows = new AtomicInteger(size);
+        return copy;
+    }
+
+    /**
+     * Gives a table containing the rows of this table and sharing its arrays, without copying them. Rows added to one
+     * of the tables afterwards are not visible to the other one.
+     *
+     * @return table sharing the arrays of this table
+     */
+    StarTable share() {
+        StarTable share = new StarTable(0);
+        share.size = size;
+        share.hipparcosIds = hipparcosIds;
+        share.names = names;
+        share.ra = ra;
+        share.dec = dec;
+        share.magnitudes = magnitudes;
+        share.colorIndices = colorIndices;
+        share.colorTemperatures = colorTemperatures;
+        share.starSlots = starSlots;
+        share.claimedRows = claimedRows;
+        return share;
+    }
+
+    /**
+     * Gives the number of rows of the table
+     *
+     * @return number of rows of the table
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gives the star of the given row, creating it if needed
+     *
+     * @param row index of the row
+     *
+     * @return star of the given row
+     *
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    Star star(int row) {
+        Objects.checkIndex(row, size);
+        StarSlots slots = starSlots.owner(row);
+        synchronized (slots) {  // the stars are shared by the tables sharing the slots
+            Star star = slots.stars[row];
+            if (star == null) {
+                star = new Star(hipparcosIds[row], Translation.constant(names[row]),
+                                EquatorialCoordinates.of(ra[row], dec[row]), magnitudes[row], colorIndices[row]);
+                slots.stars[row] = star;
+            }
+            return star;
+        }
+    }
+
+    /**
+     * Gives the star of the given row if it was already created
+     *
+     * @param row index of the row
+     *
+     * @return star of the given row, {@code null} if it was not created yet
+     */
+    Star createdStar(int row) {
+        Objects.checkIndex(row, size);
+        return starSlots.get(row);
+    }
+
+    /**
+     * Gives a view of the stars of the table, which creates them when they are accessed
+     *
+     * @return unmodifiable view of the stars of the table
+     */
+    List<Star> stars() {
+        return new StarList();
+    }
+
+    /**
+     * Gives the name of the star of the given row, without creating the star if it was not created yet
+     *
+     * @param row index of the row
+     *
+     * @return name of the star
+     */
+    String name(int row) {
+        Objects.checkIndex(row, size);
+        return names[row] != null ? names[row] : star(row).name();  // no name is stored for the stars added as such
+    }
+
+    int hipparcosId(int row) {
+        Objects.checkIndex(row, size);
+        return hipparcosIds[row];
+    }
+
+    float magnitude(int row) {
+        Objects.checkIndex(row, size);
+        return magnitudes[row];
+    }
+
+    int colorTemperature(int row) {
+        Objects.checkIndex(row, size);
+        return colorTemperatures[row];
+    }
+
+    // the following arrays may be longer than the table, and must not be modified
+
+    int[] hipparcosIds() {
+        return hipparcosIds;
+    }
+
+    double[] ra() {
+        return ra;
+    }
+
+    double[] dec() {
+        return dec;
+    }
+
+    float[] magnitudes() {
+        return magnitudes;
+    }
+
+    float[] colorIndices() {
+        return colorIndices;
+    }
+
+    int[] colorTemperatures() {
+        return colorTemperatures;
+    }
+
+    /**
+     * Stars of the rows of the tables sharing the slots, null until the star of the row is asked for. When a table
+     * cannot append rows to the slots it shares, it gets new slots for its following rows, the previous rows staying
+     * in the slots of their parent.
+     */
+    private static final class StarSlots {
+        private final StarSlots parent;  // null if none
+        private final int parentRows;    // number of rows whose star is in the parent
+        private Star[] stars;            // indexed by row, the rows of the parent being unused
+
+        private StarSlots(StarSlots parent, int parentRows, int capacity) {
+            this.parent = parent;
+            this.parentRows = parentRows;
+            this.stars = new Star[capacity];
+        }
+
+        /**
+         * Gives the slots containing the star of the given row, whose lock protects it
+         */
+        private StarSlots owner(int row) {
+            StarSlots slots = this;
+            while (row < slots.parentRows) slots = slots.parent;
+            return slots;
+        }
+
+        private Star get(int row) {
+            StarSlots slots = owner(row);
+            synchronized (slots) {
+                return slots.stars[row];
+            }
+        }
+
+        private void set(int row, Star star) {
+            StarSlots slots = owner(row);
+            synchronized (slots) {
+                slots.stars[row] = star;
+            }
+        }
+
+        private synchronized void grow(int capacity) {
+            stars = Arrays.copyOf(stars, capacity);
+        }
+    }
+
+    private final class StarList extends AbstractList<Star> implements RandomAccess {
+        @Override
+        public Star get(int index) {
+            return star(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.math.ClosedInterval;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * Compact list of the indices of the stars of a star field which are above the horizon, up to a margin, whose
+ * projected position is in a given rectangle of the plane and which are at least as bright as a limiting magnitude.
+ * The indices are sorted in increasing order.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class VisibleStars {
+    private final StarField starField;
+
+    // culling parameters, the intervals being null if no star is culled
+    private final double altitudeMargin;
+    private final ClosedInterval xInterval, yInterval;
+    private final double limitingMagnitude;
+
+    private final int[] indexes;  // null if no star is culled
+    private final int count;
+
+    private volatile StarGrid grid;  // built on the first search
+
+    private VisibleStars(StarField starField, double altitudeMargin, ClosedInterval xInterval,
+                         ClosedInterval yInterval, double limitingMagnitude, int[] indexes, int count) {
+        this.starField = starField;
+        this.altitudeMargin = altitudeMargin;
+        this.xInterval = xInterval;
+        this.yInterval = yInterval;
+        this.limitingMagnitude = limitingMagnitude;
+        this.indexes = indexes;
+        this.count = count;
+    }
+
+    /**
+     * Gives the list of all the stars of the given star field, none of them being culled
+     *
+     * @param starField star field containing the stars
+     *
+     * @return the list of all the stars of the star field
+     */
+    static VisibleStars all(StarField starField) {
+        return new VisibleStars(starField, 0, null, null, Double.POSITIVE_INFINITY, null,
+                                starField.catalogue().starCount());
+    }
+
+    /**
+     * Gives the list of the stars of the given star field whose altitude is at least the opposite of the margin,
+     * whose projected position is in the given intervals and whose magnitude is at most the limiting one. Only the
+     * stars bright enough are examined.
+     *
+     * @param starField         star field containing the stars
+     * @param altitudeMargin    angle below the horizon, in radians, above which the stars are visible
+     * @param xInterval         interval of the visible x-coordinates
+     * @param yInterval         interval of the visible y-coordinates
+     * @param limitingMagnitude magnitude of the faintest visible stars
+     *
+     * @return the list of the visible stars
+     *
+     * @throws IllegalArgumentException if the margin is not in [0, pi/2]
+     */
+    static VisibleStars of(StarField starField, double altitudeMargin, ClosedInterval xInterval,
+                           ClosedInterval yInterval, double limitingMagnitude) {
+        Preconditions.checkArgument(0 <= altitudeMargin && altitudeMargin <= Math.PI / 2);
+        Objects.requireNonNull(xInterval);
+        Objects.requireNonNull(yInterval);
+
+        // the sine of the altitude of a star is the dot product of its unit vector with the one of the zenith
+        double cosPhi = cos(starField.latitude());
+        double zenithX = cosPhi * cos(starField.siderealLocal());
+        double zenithY = cosPhi * sin(starField.siderealLocal());
+        double zenithZ = sin(starField.latitude());
+        double minSinAltitude = sin(-altitudeMargin);
+
+        StarCatalogue catalogue = starField.catalogue();
+        double[] unitVectors = catalogue.starUnitVectors();
+        double[] positions = starField.positions();
+        int brighterStarCount = catalogue.brighterStarCount(limitingMagnitude);
+        StarBufferPool pool = starField.pool();
+        int[] indexes = pool == null ? new int[brighterStarCount] : pool.acquireIndexes();
+        int count = 0;
+        for (int rank = 0; rank < brighterStarCount; ++rank) {
+            int i = catalogue.starIndexByMagnitude(rank);
+            double sinAltitude = zenithX * unitVectors[3 * i] + zenithY * unitVectors[3 * i + 1]
+                                 + zenithZ * unitVectors[3 * i + 2];
+            if (sinAltitude >= minSinAltitude
+                && xInterval.contains(positions[2 * i]) && yInterval.contains(positions[2 * i + 1])) {
+                indexes[count++] = i;
+            }
+        }
+        // the stars were examined by magnitude, they are put back in the order of the catalogue
+        Arrays.sort(indexes, 0, count);
+        return new VisibleStars(starField, altitudeMargin, xInterval, yInterval, limitingMagnitude, indexes, count);
+    }
+
+    /**
+     * Gives the list of the visible stars of the given star field, culled with the same parameters as this one
+     *
+     * @param newStarField star field containing the stars
+     *
+     * @return this list if the star field did not change, a new one otherwise
+     */
+    VisibleStars at(StarField newStarField) {
+        if (newStarField == starField) return this;
+        return xInterval == null
+               ? all(newStarField)
+               : of(newStarField, altitudeMargin, xInterval, yInterval, limitingMagnitude);
+    }
+
+    /**
+     * Checks whether the given parameters are the ones used to cull the stars of this list
+     *
+     * @param altitudeMargin    angle below the horizon, in radians, above which the stars are visible
+     * @param xInterval         interval of the visible x-coordinates
+     * @param yInterval         interval of the visible y-coordinates
+     * @param limitingMagnitude magnitude of the faintest visible stars
+     *
+     * @return true if the stars of this list were culled with the given parameters
+     */
+    boolean isCulledWith(double altitudeMargin, ClosedInterval xInterval, ClosedInterval yInterval,
+                         double limitingMagnitude) {
+        return this.xInterval != null && altitudeMargin == this.altitudeMargin
+               && limitingMagnitude == this.limitingMagnitude
+               && xInterval.low() == this.xInterval.low() && xInterval.high() == this.xInterval.high()
+               && yInterval.low() == this.yInterval.low() && yInterval.high() == this.yInterval.high();
+    }
+
+    /**
+     * Gives the array of the indices if it was taken from a pool
+     *
+     * @return the array of the indices, null if it was not taken from a pool
+     */
+    int[] recyclableIndexes() {
+        return indexes == null || starField.pool() == null ? null : indexes;
+    }
+
+    /**
+     * Gives the grid of the positions of the stars of this list, which is built the first time it is needed
+     *
+     * @return the grid of the positions of the visible stars
+     */
+    StarGrid grid() {
+        StarGrid grid = this.grid;
+        // two threads may build the grid at the same time, they build identical ones
+        if (grid == null) this.grid = grid = new StarGrid(starField.positions(), this);
+        return grid;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int index(int i) {
+        Objects.checkIndex(i, count);
+        return indexes == null ? i : indexes[i];
+    }
+}
@@ -0,0 +1,149 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.astronomy.SiderealTime;
+
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * Projects points given by their equatorial unit vectors onto the plane, combining the conversion to horizontal
+ * coordinates and the stereographic projection. Both are rotations of the celestial sphere followed by the projection
+ * itself, so that they can be merged into a single 3x3 matrix: each point is then projected with only multiply-adds
+ * and one division, instead of several trigonometric functions.
+ * <p>
+ * The results are equal to the ones of {@link EquatorialToHorizontalConversion} followed by
+ * {@link StereographicProjection}, up to rounding errors.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public final class EquatorialToCartesianProjection {
+    // rows of the matrix giving the numerators of x and y, and the denominator minus 1, from the unit vector
+    private final double xx, xy, xz;
+    private final double yx, yy, yz;
+    private final double wx, wy, wz;
+
+    /**
+     * Constructs the projection of the sky seen at the given time and place
+     *
+     * @param when       date and time of the observation
+     * @param where      position of the observer
+     * @param projection stereographic projection to apply to the horizontal coordinates
+     */
+    public EquatorialToCartesianProjection(ZonedDateTime when, GeographicCoordinates where,
+                                           StereographicProjection projection) {
+        double siderealLocal = SiderealTime.local(when, where);
+        double sinS = sin(siderealLocal);
+        double cosS = cos(siderealLocal);
+        double sinPhi = sin(where.lat());
+        double cosPhi = cos(where.lat());
+
+        // horizontal unit vector (towards the north, the east and the zenith) of an equatorial unit vector, using
+        // cos(dec) cos(H) = cos(S) x + sin(S) y and cos(dec) sin(H) = sin(S) x - cos(S) y, where H = S - ra
+        double nx = -sinPhi * cosS, ny = -sinPhi * sinS, nz = cosPhi;
+        double ex = -sinS, ey = cosS, ez = 0;
+        double ux = cosPhi * cosS, uy = cosPhi * sinS, uz = sinPhi;
+
+        // rotation around the zenith bringing the azimuth of the center of the projection to 0
+        HorizontalCoordinates center = projection.center();
+        double sinA = sin(center.az());
+        double cosA = cos(center.az());
+        double ax = cosA * nx + sinA * ex, ay = cosA * ny + sinA * ey, az = cosA * nz + sinA * ez;
+        double bx = cosA * ex - sinA * nx, by = cosA * ey - sinA * ny, bz = cosA * ez - sinA * nz;
+
+        // stereographic projection, the center being at the altitude h0 in the plane (a, u)
+        double sinH0 = sin(center.alt());
+        double cosH0 = cos(center.alt());
+        xx = bx;
+        xy = by;
+        xz = bz;
+        yx = cosH0 * ux - sinH0 * ax;
+        yy = cosH0 * uy - sinH0 * ay;
+        yz = cosH0 * uz - sinH0 * az;
+        wx = cosH0 * ax + sinH0 * ux;
+        wy = cosH0 * ay + sinH0 * uy;
+        wz = cosH0 * az + sinH0 * uz;
+    }
+
+    /**
+     * Computes the unit vectors of points given by their equatorial coordinates
+     *
+     * @param ra      right ascension of each point, in radians
+     * @param dec     declination of each point, in radians
+     * @param vectors array where to store the unit vectors, in the following format:
+     *                {@code [x0, y0, z0, x1, y1, z1, ..., xn-1, yn-1, zn-1]}
+     * @param count   number of points
+     *
+     * @throws IndexOutOfBoundsException if one of the arrays is too short
+     */
+    public static void unitVectors(double[] ra, double[] dec, double[] vectors, int count) {
+        unitVectors(ra, dec, vectors, 0, count);
+    }
+
+    /**
+     * Computes the unit vectors of the points of the given range, each of them exactly as by
+     * {@link #unitVectors(double[], double[], double[], int)}, whatever the range
+     *
+     * @param ra      right ascension of each point, in radians
+     * @param dec     declination of each point, in radians
+     * @param vectors array where to store the unit vectors, in the following format:
+     *                {@code [x0, y0, z0, x1, y1, z1, ..., xn-1, yn-1, zn-1]}
+     * @param from    index of the first point
+     * @param to      index following the last point
+     *
+     * @throws IndexOutOfBoundsException if the range is invalid or one of the arrays is too short
+     */
+    public static void unitVectors(double[] ra, double[] dec, double[] vectors, int from, int to) {
+        Objects.checkFromToIndex(from, to, Math.min(Math.min(ra.length, dec.length), vectors.length / 3));
+
+        for (int i = from; i < to; ++i) {
+            double cosDec = cos(dec[i]);
+            vectors[3 * i] = cosDec * cos(ra[i]);
+            vectors[3 * i + 1] = cosDec * sin(ra[i]);
+            vectors[3 * i + 2] = sin(dec[i]);
+        }
+    }
+
+    /**
+     * Projects several points given by their equatorial unit vectors, without allocating any object
+     *
+     * @param vectors   unit vectors of the points, as given by
+     *                  {@link #unitVectors(double[], double[], double[], int)}
+     * @param positions array where to store the cartesian coordinates of the projections, in the following
+     *                  format: {@code [x0, y0, x1, y1, ..., xn-1, yn-1]}
+     * @param count     number of points to project
+     *
+     * @throws IndexOutOfBoundsException if one of the arrays is too short
+     */
+    public void apply(double[] vectors, double[] positions, int count) {
+        apply(vectors, positions, 0, count);
+    }
+
+    /**
+     * Projects the points of the given range, without allocating any object
+     *
+     * @param vectors   unit vectors of the points, as given by
+     *                  {@link #unitVectors(double[], double[], double[], int)}
+     * @param positions array where to store the cartesian coordinates of the projections, in the following
+     *                  format: {@code [x0, y0, x1, y1, ..., xn-1, yn-1]}
+     * @param from      index of the first point to project
+     * @param to        index following the last point to project
+     *
+     * @throws IndexOutOfBoundsException if the range is invalid or one of the arrays is too short
+     */
+    public void apply(double[] vectors, double[] positions, int from, int to) {
+        Objects.checkFromToIndex(from, to, Math.min(vectors.length / 3, positions.length / 2));
+
+        for (int i = from; i < to; ++i) {
+            double x = vectors[3 * i];
+            double y = vectors[3 * i + 1];
+            double z = vectors[3 * i + 2];
+            double d = 1.0 / (1 + wx * x + wy * y + wz * z);
+            positions[2 * i] = d * (xx * x + xy * y + xz * z);
+            positions[2 * i + 1] = d * (yx * x + yy * y + yz * z);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.astronomy.SiderealTime;
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.Trigonometry;
 
 import java.time.ZonedDateTime;
+import java.util.Objects;
 import java.util.function.Function;
 
 import static java.lang.Math.asin;
@@ -53,6 +55,74 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         return HorizontalCoordinates.of(A, h);
     }
 
+    /**
+     * Transforms the equatorial coordinates of several points to horizontal coordinates, without allocating any
+     * object. The results are identical to the ones of {@link #apply(EquatorialCoordinates)}.
+     *
+     * @param ra    right ascension of each point, in radians
+     * @param dec   declination of each point, in radians
+     * @param azAlt array where to store the horizontal coordinates of the points, in the following format:
+     *              {@code [az0, alt0, az1, alt1, ..., azn-1, altn-1]}, in radians
+     * @param count number of points to transform
+     *
+     * @throws IndexOutOfBoundsException if one of the arrays is too short
+     */
+    public void apply(double[] ra, double[] dec, double[] azAlt, int count) {
+        apply(ra, dec, azAlt, 0, count);
+    }
+
+    /**
+     * Transforms the equatorial coordinates of the points of the given range to horizontal coordinates, without
+     * allocating any object. Each point is transformed exactly as by {@link #apply(double[], double[], double[], int)},
+     * whatever the range.
+     *
+     * @param ra    right ascension of each point, in radians
+     * @param dec   declination of each point, in radians
+     * @param azAlt array where to store the horizontal coordinates of the points, in the following format:
+     *              {@code [az0, alt0, az1, alt1, ..., azn-1, altn-1]}, in radians
+     * @param from  index of the first point to transform
+     * @param to    index following the last point to transform
+     *
+     * @throws IndexOutOfBoundsException if the range is invalid or one of the arrays is too short
+     */
+    public void apply(double[] ra, double[] dec, double[] azAlt, int from, int to) {
+        apply(ra, dec, azAlt, from, to, Trigonometry.EXACT);
+    }
+
+    /**
+     * Transforms the equatorial coordinates of the points of the given range to horizontal coordinates, computing
+     * the trigonometric functions with the given implementation, without allocating any object. With
+     * {@link Trigonometry#EXACT}, the results are identical to the ones of
+     * {@link #apply(double[], double[], double[], int, int)}.
+     *
+     * @param ra           right ascension of each point, in radians
+     * @param dec          declination of each point, in radians
+     * @param azAlt        array where to store the horizontal coordinates of the points, in the following format:
+     *                     {@code [az0, alt0, az1, alt1, ..., azn-1, altn-1]}, in radians
+     * @param from         index of the first point to transform
+     * @param to           index following the last point to transform
+     * @param trigonometry implementation of the trigonometric functions
+     *
+     * @throws IndexOutOfBoundsException if the range is invalid or one of the arrays is too short
+     */
+    public void apply(double[] ra, double[] dec, double[] azAlt, int from, int to, Trigonometry trigonometry) {
+        Objects.checkFromToIndex(from, to, Math.min(Math.min(ra.length, dec.length), azAlt.length / 2));
+
+        for (int i = from; i < to; ++i) {
+            double sinDelta = trigonometry.sin(dec[i]);
+            double cosDelta = trigonometry.cos(dec[i]);
+            double H = siderealLocal - ra[i];
+            double sinH = trigonometry.sin(H);
+            double cosH = trigonometry.cos(H);
+
+            double h = trigonometry.asin(sinDelta * sinPhi + cosDelta * cosPhi * cosH);
+            double A = trigonometry.atan2(-cosDelta * cosPhi * sinH, sinDelta - sinPhi * trigonometry.sin(h));
+
+            azAlt[2 * i] = Angle.normalizePositive(A);
+            azAlt[2 * i + 1] = h;
+        }
+    }
+
     /**
      * Method disabled
      *
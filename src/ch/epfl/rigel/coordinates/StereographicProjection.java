@@ -1,8 +1,10 @@
 package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.Trigonometry;
 
 import java.util.Locale;
+import java.util.Objects;
 import java.util.function.Function;
 
 import static java.lang.Math.asin;
@@ -32,6 +34,15 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         cosCenterLatitude = cos(center.lat());
     }
 
+    /**
+     * Gives the center of the projection
+     *
+     * @return horizontal coordinates of the center of the projection
+     */
+    HorizontalCoordinates center() {
+        return center;
+    }
+
     /**
      * Computes the center of the circle the provided parallel is mapped to
      *
@@ -91,6 +102,73 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         return CartesianCoordinates.of(x, y);
     }
 
+    /**
+     * Projects several points given by their horizontal coordinates, without allocating any object. The results are
+     * identical to the ones of {@link #apply(HorizontalCoordinates)}. Both arrays may be the same, the points are then
+     * projected in place.
+     *
+     * @param azAlt horizontal coordinates of the points to project, in the following format:
+     *              {@code [az0, alt0, az1, alt1, ..., azn-1, altn-1]}, in radians
+     * @param xy    array where to store the cartesian coordinates of the projections, in the following format:
+     *              {@code [x0, y0, x1, y1, ..., xn-1, yn-1]}
+     * @param count number of points to project
+     *
+     * @throws IndexOutOfBoundsException if one of the arrays is too short
+     */
+    public void apply(double[] azAlt, double[] xy, int count) {
+        apply(azAlt, xy, 0, count);
+    }
+
+    /**
+     * Projects the points of the given range, without allocating any object. Each point is projected exactly as by
+     * {@link #apply(double[], double[], int)}, whatever the range.
+     *
+     * @param azAlt horizontal coordinates of the points to project, in the following format:
+     *              {@code [az0, alt0, az1, alt1, ..., azn-1, altn-1]}, in radians
+     * @param xy    array where to store the cartesian coordinates of the projections, in the following format:
+     *              {@code [x0, y0, x1, y1, ..., xn-1, yn-1]}
+     * @param from  index of the first point to project
+     * @param to    index following the last point to project
+     *
+     * @throws IndexOutOfBoundsException if the range is invalid or one of the arrays is too short
+     */
+    public void apply(double[] azAlt, double[] xy, int from, int to) {
+        apply(azAlt, xy, from, to, Trigonometry.EXACT);
+    }
+
+    /**
+     * Projects the points of the given range, computing the trigonometric functions with the given implementation,
+     * without allocating any object. With {@link Trigonometry#EXACT}, the results are identical to the ones of
+     * {@link #apply(double[], double[], int, int)}.
+     *
+     * @param azAlt        horizontal coordinates of the points to project, in the following format:
+     *                     {@code [az0, alt0, az1, alt1, ..., azn-1, altn-1]}, in radians
+     * @param xy           array where to store the cartesian coordinates of the projections, in the following format:
+     *                     {@code [x0, y0, x1, y1, ..., xn-1, yn-1]}
+     * @param from         index of the first point to project
+     * @param to           index following the last point to project
+     * @param trigonometry implementation of the trigonometric functions
+     *
+     * @throws IndexOutOfBoundsException if the range is invalid or one of the arrays is too short
+     */
+    public void apply(double[] azAlt, double[] xy, int from, int to, Trigonometry trigonometry) {
+        Objects.checkFromToIndex(from, to, Math.min(azAlt.length, xy.length) / 2);
+        final double centerAz = center.az();
+
+        for (int i = from; i < to; ++i) {
+            final double phi = azAlt[2 * i + 1];
+            final double sinPhi = trigonometry.sin(phi);
+            final double cosPhi = trigonometry.cos(phi);
+            final double lambdaD = azAlt[2 * i] - centerAz;
+            final double cosLambdaD = trigonometry.cos(lambdaD);
+
+            final double d = 1.0 / (1 + sinPhi * sinCenterLatitude + cosPhi * cosCenterLatitude * cosLambdaD);
+
+            xy[2 * i] = d * cosPhi * trigonometry.sin(lambdaD);
+            xy[2 * i + 1] = d * (sinPhi * cosCenterLatitude - cosPhi * sinCenterLatitude * cosLambdaD);
+        }
+    }
+
     /**
      * Computes the original horizontal coordinates of a point using the cartesian coordinates of its stereographic
      * projection
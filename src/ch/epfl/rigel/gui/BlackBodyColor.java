@@ -56,6 +56,13 @@ public class BlackBodyColor {
         return temperatureToColor;
     }
 
+    /**
+     * Reads the color table if it was not read yet, which is otherwise done the first time a color is asked for
+     */
+    static void loadColors() {
+        // the table is read by the initialization of the class, which this call triggers
+    }
+
     private static int round(double temperature) {
         return (int) Math.round(temperature / STEP_SIZE) * STEP_SIZE;
     }
@@ -0,0 +1,72 @@
+package ch.epfl.rigel.gui;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Computes results from inputs on a worker, one at a time, and hands them to a publisher. When inputs are submitted
+ * faster than they are computed, only the latest one is kept: the ones submitted in the meantime are dropped, so that
+ * the published results never lag behind by more than one computation.
+ *
+ * @param <T> type of the inputs
+ * @param <R> type of the results
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class LatestWinsComputation<T, R> {
+    private final Function<? super T, ? extends R> computation;
+    private final Consumer<? super R> publisher;
+    private final Executor worker;
+    private final Executor publishingExecutor;
+
+    private final AtomicReference<T> pendingInput = new AtomicReference<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Constructs a computation running on the given worker, whose results are published on the given executor
+     *
+     * @param computation        function computing a result from an input
+     * @param publisher          consumer of the results
+     * @param worker             executor on which the results are computed
+     * @param publishingExecutor executor on which the results are published, in the order of their computation
+     */
+    LatestWinsComputation(Function<? super T, ? extends R> computation, Consumer<? super R> publisher,
+                          Executor worker, Executor publishingExecutor) {
+        this.computation = Objects.requireNonNull(computation);
+        this.publisher = Objects.requireNonNull(publisher);
+        this.worker = Objects.requireNonNull(worker);
+        this.publishingExecutor = Objects.requireNonNull(publishingExecutor);
+    }
+
+    /**
+     * Submits a new input, replacing the one waiting to be computed if any. The computation of the input already
+     * being computed is not interrupted.
+     *
+     * @param input input of the computation
+     */
+    void submit(T input) {
+        pendingInput.set(Objects.requireNonNull(input));
+        if (running.compareAndSet(false, true)) worker.execute(this::computePendingInputs);
+    }
+
+    private void computePendingInputs() {
+        try {
+            T input;
+            while ((input = pendingInput.getAndSet(null)) != null) {
+                R result = computation.apply(input);
+                publishingExecutor.execute(() -> publisher.accept(result));
+            }
+        } finally {
+            running.set(false);
+            // an input may have been submitted after the last one was taken, but before the flag was reset
+            if (pendingInput.get() != null && running.compareAndSet(false, true)) {
+                worker.execute(this::computePendingInputs);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ch.epfl.rigel.gui;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+import java.net.URL;
+
+/**
+ * Media player which is only created (and its media decoded) when it is first needed
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class LazyMediaPlayer {
+    private final URL resource;
+    private final DoubleProperty volume;
+    private final boolean looping;
+    private MediaPlayer player;
+    private boolean failed;
+    private boolean attached;
+
+    /**
+     * Constructs a lazy player of the given resource
+     *
+     * @param resourcePath path of the audio resource
+     * @param volume       property to which the volume of the player is bound
+     * @param looping      whether the media is played in a loop, instead of once each time it is played
+     */
+    LazyMediaPlayer(String resourcePath, DoubleProperty volume, boolean looping) {
+        this.resource = LazyMediaPlayer.class.getResource(resourcePath);
+        this.volume = volume;
+        this.looping = looping;
+    }
+
+    /**
+     * Informs whether the media can be played, without creating the player
+     *
+     * @return {@code true} if the audio resource exists
+     */
+    boolean isAvailable() {
+        return resource != null;
+    }
+
+    /**
+     * Creates the player if it was not created yet. May be called from any thread.
+     *
+     * @return the player, {@code null} if it could not be created
+     */
+    synchronized MediaPlayer prepare() {
+        if (player == null && !failed) {
+            try {
+                player = new MediaPlayer(new Media(resource.toString()));
+            } catch (RuntimeException exception) {  // missing resource or unsupported media
+                exception.printStackTrace();
+                failed = true;
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Plays the media, creating the player if needed. Must be called from the JavaFX application thread.
+     */
+    void play() {
+        MediaPlayer player = prepare();
+        if (player == null) return;
+
+        if (!attached) {
+            player.volumeProperty().bind(volume);
+            if (looping) {
+                player.setCycleCount(MediaPlayer.INDEFINITE);
+            } else {
+                player.setOnEndOfMedia(player::stop);  // so that it can be played again
+            }
+            attached = true;
+        }
+        player.play();
+    }
+}
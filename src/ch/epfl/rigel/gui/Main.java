@@ -7,6 +7,7 @@ import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.internationalization.*;
 import ch.epfl.rigel.math.ClosedInterval;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
@@ -27,8 +28,6 @@ import javafx.scene.image.ImageView;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
@@ -44,12 +43,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.DoublePredicate;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
@@ -70,6 +74,8 @@ public class Main extends Application implements LanguageController {
 
     private static final String HYG_DATABASE_PATH = "/hygdata_v3.csv";
     private static final String ASTERISMS_PATH = "/asterisms.txt";
+    private static final Path CATALOGUE_CACHE_PATH =
+            Path.of(System.getProperty("user.home"), ".rigel", "catalogue.cache");
     private static final ObjectProperty<Language> CURRENT_LANGUAGE = new SimpleObjectProperty<>(Language.FRENCH);
     private static final String CLOCK_LOGO = "\uf017";
     private static final String FULLSCREEN_LOGO = "\uF065";
@@ -79,7 +85,6 @@ public class Main extends Application implements LanguageController {
     private static final String RESET_LOGO = "\uf0e2";
     private static final String PLAY_LOGO = "\uf04b";
     private static final String PAUSE_LOGO = "\uf04c";
-    private static final Font BUTTON_FONT = loadFont("/Font Awesome 5 Free-Solid-900.otf", 15);
 
     private static final HorizontalCoordinates INITIAL_OBSERVATION_CENTER =
             HorizontalCoordinates.ofDeg(180.000000000001, 15);
@@ -101,19 +106,20 @@ public class Main extends Application implements LanguageController {
     private static final String RIGHT_PANEL_STYLE = SIDE_PANEL_STYLE + "-fx-padding: 24;";
 
 
-    private static final MediaPlayer AMBIANT_MUSIC = mediaPlayer("/ES_Sidelight - Ethan Sloan.wav");
-    private static final MediaPlayer SCREENSHOT_SOUND = mediaPlayer("/ES_Camera Shutter 3 - SFX Producer.wav");
+    private static final DoubleProperty MUSIC_VOLUME = new SimpleDoubleProperty(1);
+    private static final DoubleProperty FX_VOLUME = new SimpleDoubleProperty(1);
+    // the media are only decoded when they are first played
+    private static final LazyMediaPlayer AMBIANT_MUSIC =
+            new LazyMediaPlayer("/ES_Sidelight - Ethan Sloan.wav", MUSIC_VOLUME, true);
+    private static final LazyMediaPlayer SCREENSHOT_SOUND =
+            new LazyMediaPlayer("/ES_Camera Shutter 3 - SFX Producer.wav", FX_VOLUME, false);
 
     private static final String SCREENSHOT_PATH = "screenshot.png";
 
-    private static final DoubleProperty FX_VOLUME = new SimpleDoubleProperty(1);
-
-    static {
-        if (SCREENSHOT_SOUND != null) {
-            SCREENSHOT_SOUND.setOnEndOfMedia(SCREENSHOT_SOUND::stop);
-            SCREENSHOT_SOUND.volumeProperty().bind(FX_VOLUME);
-        }
-    }
+    // command line options
+    private static final String FAST_START_OPTION = "--fast-start";
+    private static final String STARTUP_TIMES_OPTION = "--startup-times";
+    private static final int STARTUP_THREADS = 4;
 
     public Main() {
         try {
@@ -151,13 +157,16 @@ public class Main extends Application implements LanguageController {
         return Main.class.getResourceAsStream(resourceName);
     }
 
-    private static MediaPlayer mediaPlayer(String audioPath) {
-        try {
-            return new MediaPlayer(new Media(Main.class.getResource(audioPath).toString()));
-        } catch (RuntimeException exception) {
-            exception.printStackTrace();
+    /**
+     * Holder of the font of the buttons, which is only loaded when the class is initialized, i.e. when the font is
+     * first used
+     */
+    private static final class ButtonFont {
+        private static final Font FONT = loadFont("/Font Awesome 5 Free-Solid-900.otf", 15);
+
+        private static void load() {
+            // the font is loaded by the initialization of the class, which this call triggers
         }
-        return null;
     }
 
     private static String format(String format, Object... args) {
@@ -166,26 +175,16 @@ public class Main extends Application implements LanguageController {
 
 
     /**
-     * Constructs the sky canvas manager with the given date, time, zone, observer's coordinates and field of view
+     * Loads the catalogue of the stars and asterisms
      *
-     * @param dateTimeBean          Contains the date, time and zone properties
-     * @param observerLocationBean  Contains the observer's coordinates properties
-     * @param viewingParametersBean Contains the field of view and the center coordinates
-     * @return the sky canvas manager constructed with {@code dateTimeBean}, {@code observerLocationBean} and {@code
-     * viewingParametersBean}
+     * @return the catalogue
      * @throws IOException if an I/O error occurs
      */
-    private static SkyCanvasManager skyCanvasManager(DateTimeBean dateTimeBean,
-                                                     ObserverLocationBean observerLocationBean,
-                                                     ViewingParametersBean viewingParametersBean) throws IOException {
+    private static StarCatalogue loadCatalogue() throws IOException {
         try (InputStream hs = resourceStream(HYG_DATABASE_PATH);
              InputStream as = resourceStream(ASTERISMS_PATH)) {
-            StarCatalogue catalogue = new StarCatalogue.Builder()
-                    .loadFrom(hs, HygDatabaseLoader.INSTANCE)
-                    .loadFrom(as, AsterismLoader.INSTANCE)
-                    .build();
-
-            return new SkyCanvasManager(catalogue, dateTimeBean, observerLocationBean, viewingParametersBean);
+            // the catalogue is only built from the sources when they changed since the last launch
+            return new StarCatalogueCache(CATALOGUE_CACHE_PATH).load(hs, as);
         }
     }
 
@@ -456,11 +455,11 @@ public class Main extends Application implements LanguageController {
         VBox sliders = new VBox();
         sliders.setSpacing(20);
 
-        if (AMBIANT_MUSIC != null) {
-            VBox sliderWithMusic = volumeSlider(Translations.BACKGROUND_MUSIC, AMBIANT_MUSIC.volumeProperty());
+        if (AMBIANT_MUSIC.isAvailable()) {
+            VBox sliderWithMusic = volumeSlider(Translations.BACKGROUND_MUSIC, MUSIC_VOLUME);
             sliders.getChildren().add(sliderWithMusic);
         }
-        if (SCREENSHOT_SOUND != null) {
+        if (SCREENSHOT_SOUND.isAvailable()) {
             VBox sliderFXSounds = volumeSlider(Translations.FX_SOUNDS, FX_VOLUME);
             sliders.getChildren().add(sliderFXSounds);
         }
@@ -665,21 +664,120 @@ public class Main extends Application implements LanguageController {
      * Start the screen capture sound
      */
     private static void playScreenshotSound() {
-        if (SCREENSHOT_SOUND != null) {
-            SCREENSHOT_SOUND.play();
-        }
+        SCREENSHOT_SOUND.play();
     }
 
     //------------------------------------------------- START ----------------------------------------------------------
 
     /**
-     * Initializes the sky with the default date, time, zone, observer position and field of view
+     * Initializes the sky with the default date, time, zone, observer position and field of view.
+     * <p>
+     * With the {@code --fast-start} option, the catalogue, the colors of the stars, the font and the media are loaded
+     * concurrently in the background, and the window is shown as soon as the catalogue and the font are loaded.
+     * Otherwise, they are loaded one after the other before the window is shown. With the {@code --startup-times}
+     * option, the time spent in each phase of the startup is printed.
      *
      * @param primaryStage It is the first stage created by JavaFX in which the program will be built
      * @throws IOException if an I/O error occurs
      */
     @Override
     public void start(Stage primaryStage) throws IOException {
+        StartupTimer timer = new StartupTimer();
+        List<String> options = getParameters().getUnnamed();
+        boolean printTimes = options.contains(STARTUP_TIMES_OPTION);
+
+        if (options.contains(FAST_START_OPTION)) {
+            fastStart(primaryStage, timer, printTimes);
+            return;
+        }
+
+        long start = timer.start();
+        StarCatalogue catalogue = loadCatalogue();
+        timer.end("catalogue", start);
+
+        start = timer.start();
+        BlackBodyColor.loadColors();
+        timer.end("color table", start);
+
+        start = timer.start();
+        ButtonFont.load();
+        timer.end("font", start);
+
+        start = timer.start();
+        AMBIANT_MUSIC.prepare();
+        SCREENSHOT_SOUND.prepare();
+        timer.end("media", start);
+
+        showWindow(primaryStage, catalogue, timer);
+        AMBIANT_MUSIC.play();
+
+        if (printTimes) System.out.println(timer.report());
+    }
+
+    /**
+     * Loads the resources of the program concurrently in the background, then shows the window on the JavaFX
+     * application thread once the catalogue and the font are loaded. The media are played once they are loaded.
+     */
+    private void fastStart(Stage primaryStage, StartupTimer timer, boolean printTimes) {
+        ExecutorService executor = Executors.newFixedThreadPool(STARTUP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "rigel-startup");
+            thread.setDaemon(true);  // must not prevent the program from exiting
+            return thread;
+        });
+
+        CompletableFuture<StarCatalogue> catalogue = CompletableFuture.supplyAsync(() -> {
+            long start = timer.start();
+            try {
+                return loadCatalogue();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            } finally {
+                timer.end("catalogue", start);
+            }
+        }, executor);
+        CompletableFuture<Void> colors = timed(timer, "color table", BlackBodyColor::loadColors, executor);
+        CompletableFuture<Void> font = timed(timer, "font", ButtonFont::load, executor);
+        CompletableFuture<Void> media = timed(timer, "media", () -> {
+            AMBIANT_MUSIC.prepare();
+            SCREENSHOT_SOUND.prepare();
+        }, executor);
+        executor.shutdown();  // the submitted tasks are still executed
+
+        CompletableFuture<Void> window = catalogue
+                .thenCombine(font, (loadedCatalogue, unused) -> loadedCatalogue)
+                .thenAcceptAsync(loadedCatalogue -> showWindow(primaryStage, loadedCatalogue, timer),
+                                 Platform::runLater);
+        window.thenCombine(media, (unused1, unused2) -> null)
+                .thenRunAsync(AMBIANT_MUSIC::play, Platform::runLater);
+        window.exceptionally(exception -> {
+            exception.printStackTrace();
+            Platform.exit();
+            return null;
+        });
+
+        if (printTimes) {
+            CompletableFuture.allOf(window, colors, media)
+                    .whenComplete((unused, exception) -> System.out.println(timer.report()));
+        }
+    }
+
+    private static CompletableFuture<Void> timed(StartupTimer timer, String phase, Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            long start = timer.start();
+            task.run();
+            timer.end(phase, start);
+        }, executor);
+    }
+
+    /**
+     * Builds the interface displaying the sky of the given catalogue and shows it in the given stage
+     *
+     * @param primaryStage the stage in which to show the interface
+     * @param catalogue    the catalogue of the stars and asterisms
+     * @param timer        the timer measuring the startup
+     */
+    private void showWindow(Stage primaryStage, StarCatalogue catalogue, StartupTimer timer) {
+        long start = timer.start();
         DateTimeBean dateTimeBean = new DateTimeBean();
         dateTimeBean.setZonedDateTime(ZonedDateTime.now());
 
@@ -692,7 +790,8 @@ public class Main extends Application implements LanguageController {
         viewingParametersBean.setCenter(INITIAL_OBSERVATION_CENTER);
         viewingParametersBean.setFieldOfViewDeg(INITIAL_FOV_DEG);
 
-        SkyCanvasManager skyCanvasManager = skyCanvasManager(dateTimeBean, observerLocationBean, viewingParametersBean);
+        SkyCanvasManager skyCanvasManager =
+                new SkyCanvasManager(catalogue, dateTimeBean, observerLocationBean, viewingParametersBean);
 
         Node skyArea = skyArea(skyCanvasManager);
 
@@ -712,15 +811,13 @@ public class Main extends Application implements LanguageController {
         primaryStage.setScene(new Scene(mainPane));
         primaryStage.setFullScreen(false);
         primaryStage.setFullScreenExitKeyCombination(KeyCombination.NO_MATCH);
+        timer.end("user interface", start);
 
+        start = timer.start();
         primaryStage.show();
+        timer.end("window", start);
 
         skyArea.requestFocus();
-
-        if (AMBIANT_MUSIC != null) {
-            AMBIANT_MUSIC.play();
-            AMBIANT_MUSIC.setCycleCount(MediaPlayer.INDEFINITE);
-        }
     }
 
     //------------------------------------------- Creation auxiliary ---------------------------------------------------
@@ -764,7 +861,7 @@ public class Main extends Application implements LanguageController {
      */
     private static Button createButton(String text, EventHandler<ActionEvent> actionHandler) {
         Button button = new Button(text);
-        button.setFont(BUTTON_FONT);
+        button.setFont(ButtonFont.FONT);
         button.setOnAction(actionHandler);
         return button;
     }
@@ -0,0 +1,113 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.CelestialObject;
+import ch.epfl.rigel.astronomy.CelestialObjectType;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.geometry.Point2D;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Transform;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Finds the visible object under the mouse. The changes of the mouse position, of the sky, of the transform or of the
+ * visible types are not handled one by one: the first one requests a pulse, and the object is picked once during that
+ * pulse, with the latest values. Hence, a mouse firing many events between two frames costs a single pick.
+ * <p>
+ * The mouse is brought back to the plane by the inverse of the plane-to-canvas transform, which is only computed
+ * again when the transform changes, and the search in the sky uses the grid of its visible stars, which is built once
+ * per sky.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class ObjectPicker {
+    private final ObservableValue<ObservedSky> sky;
+    private final ObservableValue<Transform> planeToCanvas;
+    private final ObservableValue<Set<CelestialObjectType>> visibleTypes;
+    private final ObservableValue<Point2D> mousePosition;
+    private final double maxDistancePx;
+    private final Runnable pulseRequester;
+
+    private final ReadOnlyObjectWrapper<CelestialObject> pickedObject = new ReadOnlyObjectWrapper<>();
+    private boolean pickRequested;
+
+    // inverse of the last transform, and maximal distance in the plane
+    private Transform lastPlaneToCanvas;
+    private Transform canvasToPlane;
+    private double maxDistance;
+
+    /**
+     * Constructs a picker of the objects of the given sky
+     *
+     * @param sky            sky containing the objects
+     * @param planeToCanvas  transform from the plane to the canvas
+     * @param visibleTypes   types of the objects which can be picked
+     * @param mousePosition  position of the mouse on the canvas
+     * @param maxDistancePx  maximal distance between the mouse and the picked object, in pixels
+     * @param pulseRequester requests a call to {@link #pulse()} during the next pulse
+     */
+    ObjectPicker(ObservableValue<ObservedSky> sky, ObservableValue<Transform> planeToCanvas,
+                 ObservableValue<Set<CelestialObjectType>> visibleTypes, ObservableValue<Point2D> mousePosition,
+                 double maxDistancePx, Runnable pulseRequester) {
+        this.sky = sky;
+        this.planeToCanvas = planeToCanvas;
+        this.visibleTypes = visibleTypes;
+        this.mousePosition = mousePosition;
+        this.maxDistancePx = maxDistancePx;
+        this.pulseRequester = Objects.requireNonNull(pulseRequester);
+
+        InvalidationListener requestPick = observable -> requestPick();
+        sky.addListener(requestPick);
+        planeToCanvas.addListener(requestPick);
+        visibleTypes.addListener(requestPick);
+        mousePosition.addListener(requestPick);
+        requestPick();
+    }
+
+    private void requestPick() {
+        if (pickRequested) return;
+        pickRequested = true;
+        pulseRequester.run();
+    }
+
+    /**
+     * Picks the object under the mouse if one of the inputs changed since the last pick. Reading the inputs
+     * validates them, so that their next change requests a new pick.
+     */
+    void pulse() {
+        if (!pickRequested) return;
+        pickRequested = false;
+
+        Transform transform = planeToCanvas.getValue();
+        if (transform != lastPlaneToCanvas) {
+            try {
+                canvasToPlane = transform.createInverse();
+            } catch (NonInvertibleTransformException e) {
+                throw new RuntimeException(e);
+            }
+            maxDistance = canvasToPlane.deltaTransform(maxDistancePx, 0).magnitude();
+            lastPlaneToCanvas = transform;
+        }
+        Point2D mouse = canvasToPlane.transform(mousePosition.getValue());
+        pickedObject.set(sky.getValue()
+                            .objectClosestTo(CartesianCoordinates.of(mouse.getX(), mouse.getY()), maxDistance,
+                                             visibleTypes.getValue())
+                            .orElse(null));
+    }
+
+    /**
+     * Gives a property containing the object under the mouse at the last pick
+     *
+     * @return property containing the picked object, {@code null} if there is none
+     */
+    ReadOnlyObjectProperty<CelestialObject> pickedObjectProperty() {
+        return pickedObject.getReadOnlyProperty();
+    }
+}
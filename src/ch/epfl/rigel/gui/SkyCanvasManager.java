@@ -4,17 +4,21 @@ import ch.epfl.rigel.astronomy.CelestialObject;
 import ch.epfl.rigel.astronomy.CelestialObjectIdentifier;
 import ch.epfl.rigel.astronomy.CelestialObjectType;
 import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.SolarSystemModels;
+import ch.epfl.rigel.astronomy.StarBufferPool;
 import ch.epfl.rigel.astronomy.StarCatalogue;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.internationalization.Translations;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
 import ch.epfl.rigel.math.RightOpenInterval;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
-import javafx.beans.binding.DoubleBinding;
 import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -31,10 +35,15 @@ import javafx.scene.paint.Color;
 import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
 
+import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.lang.Math.tan;
@@ -53,27 +62,40 @@ public class SkyCanvasManager {
     public static final ClosedInterval FOV_INTERVAL_DEG = ClosedInterval.of(30, 150);
     private static final RightOpenInterval AZIMUTH_INTERVAL = RightOpenInterval.of(0, Angle.ofDeg(360));
     private static final ClosedInterval ALTITUDE_INTERVAL = ClosedInterval.of(Angle.ofDeg(5), Angle.ofDeg(90));
+    // the stars slightly below the horizon or out of the canvas are still drawn, since they can be partially visible
+    private static final double STAR_ALTITUDE_MARGIN = Angle.ofDeg(1);
+    private static final double STAR_CANVAS_MARGIN_PX = 10;
+    // the interpolated solar system differs from the exact one by a fraction of a pixel at the narrowest field of view
+    private static final double SOLAR_SYSTEM_MAX_ANGULAR_ERROR = Angle.ofDeg(0.005);
+    private static final double SOLAR_SYSTEM_MAX_VALUE_ERROR = 0.01;
+    private static final Executor SKY_WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rigel-sky");
+        thread.setDaemon(true);  // must not prevent the program from exiting
+        return thread;
+    });
     private final Canvas canvas;
     private final SkyCanvasPainter painter;
 
     //  Bindings and Properties
     private final ObjectBinding<StereographicProjection> projection;
     private final ObjectBinding<Transform> planeToCanvas;
+    // the sky is computed on a worker thread, then published on the JavaFX thread with the projection it uses
+    private final ObjectProperty<ComputedSky> computedSky;
     private final ObjectBinding<ObservedSky> observedSky;
+    private ObservedSky lastObservedSky;  // reused by the next observed sky, then only accessed by the worker thread
     private final ObjectProperty<Point2D> mousePosition;
 
     private final ObjectBinding<HorizontalCoordinates> mouseHorizontalPosition;
-    private final ObjectBinding<CartesianCoordinates> mouseProjectedPosition;
     private static final double KEYBOARD_AZ_DELTA = Angle.ofDeg(10);
     private static final double KEYBOARD_ALT_DELTA = Angle.ofDeg(5);
     private final ViewingParametersBean viewingParameter;
     private final MouseNavigator mouseNavigator;
 
-    private final ObjectBinding<CelestialObject> objectUnderMouse;
+    private final ObjectPicker objectPicker;
+    private final ReadOnlyObjectProperty<CelestialObject> objectUnderMouse;
     private final Supplier<CartesianCoordinates> objectUnderMousePosition;
     private final ObjectProperty<CelestialObject> selectedObject;
     private static final double CLOSEST_TO_MAX_DISTANCE_PX = 10;  // max distance in pixels
-    private final DoubleBinding closestToProjectedMaxDistance;
 
     private final ObjectProperty<NavigationState> navigationState = new SimpleObjectProperty<>(NavigationState.DEFAULT);
     private final ObjectBinding<Cursor> cursor;
@@ -120,15 +142,57 @@ public class SkyCanvasManager {
                                                      viewingParameter.fieldOfViewDegProperty());
 
         //--------------------------------------------------observedSky-------------------------------------------------
-        Callable<ObservedSky> createObservedSky =
-                () -> new ObservedSky(dateTime.getZonedDateTime(),
-                                      observerLocation.getCoordinates(),
-                                      projection.get(), catalogue);
-        observedSky = Bindings.createObjectBinding(createObservedSky,
-                                                   dateTime.zoneProperty(),
-                                                   dateTime.dateProperty(),
-                                                   dateTime.timeProperty(),
-                                                   observerLocation.coordinatesProperty(), projection);
+        // the inputs are read on the JavaFX thread, the sky is computed from this snapshot on the worker thread
+        Supplier<SkyInputs> skyInputs = () -> {
+            // the stars which cannot be seen on the canvas are neither drawn nor picked
+            Transform transform = planeToCanvas.get();
+            Point2D min = inverseTransform(transform, -STAR_CANVAS_MARGIN_PX,
+                                           canvas.getHeight() + STAR_CANVAS_MARGIN_PX);
+            Point2D max = inverseTransform(transform, canvas.getWidth() + STAR_CANVAS_MARGIN_PX,
+                                           -STAR_CANVAS_MARGIN_PX);
+            // the stars too faint to be seen at the current scale are not drawn either, zooming in admits them
+            return new SkyInputs(dateTime.getZonedDateTime(), observerLocation.getCoordinates(), projection.get(),
+                                 ClosedInterval.of(min.getX(), max.getX()), ClosedInterval.of(min.getY(), max.getY()),
+                                 painter.limitingMagnitude(transform));
+        };
+        // the arrays of the stars of the skies which are not displayed anymore are reused by the next ones
+        StarBufferPool starBufferPool = new StarBufferPool(catalogue);
+        Function<SkyInputs, ComputedSky> computeSky = inputs -> {
+            // only the stars or the solar system are computed again if the change only affects them
+            ObservedSky movedSky = lastObservedSky.at(inputs.when, inputs.where, inputs.projection);
+            ObservedSky culledSky = movedSky.culled(STAR_ALTITUDE_MARGIN, inputs.xInterval, inputs.yInterval,
+                                                    inputs.limitingMagnitude);
+            // the sky culled with the previous parameters is never displayed
+            if (movedSky != lastObservedSky) starBufferPool.recycle(movedSky, culledSky);
+            lastObservedSky = culledSky;
+            return new ComputedSky(culledSky, inputs.projection);
+        };
+
+        SkyInputs initialInputs = skyInputs.get();
+        lastObservedSky = new ObservedSky(initialInputs.when, initialInputs.where, initialInputs.projection,
+                                          catalogue, ObservedSky.StarProjection.ROTATION_MATRIX, true,
+                                          starBufferPool,
+                                          SolarSystemModels.interpolating(SOLAR_SYSTEM_MAX_ANGULAR_ERROR,
+                                                                          SOLAR_SYSTEM_MAX_VALUE_ERROR));
+        computedSky = new SimpleObjectProperty<>(computeSky.apply(initialInputs));
+        observedSky = Bindings.createObjectBinding(() -> computedSky.get().sky, computedSky);
+
+        // the inputs changing faster than the sky is computed are dropped, the latest ones are always computed
+        Consumer<ComputedSky> publishSky = newSky -> {
+            ObservedSky replacedSky = computedSky.get().sky;
+            computedSky.set(newSky);
+            // the new sky is derived from the replaced one, since they are computed in order
+            starBufferPool.recycle(replacedSky, newSky.sky);
+        };
+        LatestWinsComputation<SkyInputs, ComputedSky> skyComputation =
+                new LatestWinsComputation<>(computeSky, publishSky, SKY_WORKER, Platform::runLater);
+        InvalidationListener computeNewSky = observable -> skyComputation.submit(skyInputs.get());
+        dateTime.zoneProperty().addListener(computeNewSky);
+        dateTime.dateProperty().addListener(computeNewSky);
+        dateTime.timeProperty().addListener(computeNewSky);
+        observerLocation.coordinatesProperty().addListener(computeNewSky);
+        projection.addListener(computeNewSky);
+        planeToCanvas.addListener(computeNewSky);
 
         //-----------------------------------------------mouse properties-----------------------------------------------
         // **** BONUS MODIFICATION: ****
@@ -140,14 +204,6 @@ public class SkyCanvasManager {
             return pointerToHorizontal(position.getX(), position.getY(), projection, planeToCanvas);
         }, planeToCanvas, mousePosition, projection);
 
-        mouseProjectedPosition = Bindings.createObjectBinding(
-                () -> projection.get().apply(mouseHorizontalPosition.get()),
-                projection, mouseHorizontalPosition);
-
-        closestToProjectedMaxDistance = Bindings.createDoubleBinding(
-                () -> planeToCanvas.get().inverseDeltaTransform(CLOSEST_TO_MAX_DISTANCE_PX, 0).getX(),
-                planeToCanvas);
-
         ObjectBinding<Set<CelestialObjectType>> shownTypes = Bindings.createObjectBinding(() -> {
             Set<CelestialObjectType> types = new HashSet<>();
             if (drawMoon.get()) types.add(CelestialObjectType.MOON);
@@ -157,11 +213,17 @@ public class SkyCanvasManager {
             return Collections.unmodifiableSet(types);
         }, drawMoon, drawSun, drawStars, drawPlanets);
 
-        // BONUS MODIFICATION: computes the visible object closest to the mouse
-        objectUnderMouse = Bindings.createObjectBinding(
-                () -> objectClosestTo(observedSky.get(), mouseProjectedPosition.get(),
-                            closestToProjectedMaxDistance.get(), shownTypes.get()),
-                observedSky, mouseProjectedPosition, closestToProjectedMaxDistance, shownTypes);
+        // BONUS MODIFICATION: computes the visible object closest to the mouse, at most once per pulse
+        AnimationTimer pickingPulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                objectPicker.pulse();
+            }
+        };
+        objectPicker = new ObjectPicker(observedSky, planeToCanvas, shownTypes, mousePosition,
+                                        CLOSEST_TO_MAX_DISTANCE_PX, pickingPulse::start);
+        objectUnderMouse = objectPicker.pickedObjectProperty();
         objectUnderMouse.addListener((p, o, n) -> {
             NavigationState currentNavigationState = navigationState.get();
             if (n == null) {
@@ -220,8 +282,9 @@ public class SkyCanvasManager {
         //------------------------------------------------require redraw------------------------------------------------
         // **** BONUS MODIFICATION: draws the visible objects on the canvas ****
         InvalidationListener updateCanvas = (observable) -> {
+            // the sky is drawn with the projection used to compute it, which may lag behind the current one
             ObservedSky sky = observedSky.get();
-            StereographicProjection projection = this.projection.get();
+            StereographicProjection projection = computedSky.get().projection;
             Transform transform = planeToCanvas.get();
             painter.clear();
             painter.drawStarsAndAsterisms(sky, transform, drawStars.get(), drawAsterisms.get());
@@ -238,7 +301,6 @@ public class SkyCanvasManager {
         ChangeListener<Object> updateOnChange = (p, o, n) -> updateCanvas.invalidated(p);
 
         observedSky.addListener(updateCanvas);
-        projection.addListener(updateCanvas);
         planeToCanvas.addListener(updateCanvas);
         drawAsterisms.addListener(updateCanvas);
         drawStars.addListener(updateCanvas);
@@ -252,24 +314,6 @@ public class SkyCanvasManager {
         Translations.currentLanguageProperty().addListener(updateCanvas);
     }
 
-    /**
-     * Gives the closet celestial object to the point given
-     *
-     * @param sky                    observable value containing the sky where the celestial objects are located
-     * @param mouseProjectedPosition observable value containing the mouse position on the stereographic plane
-     * @param projectedMaxDistance   maximum distance above which no celestial object is returned
-     *
-     * @return the closest celestial object
-     */
-    private static CelestialObject objectClosestTo(ObservedSky sky,
-                                                   CartesianCoordinates mouseProjectedPosition,
-                                                   double projectedMaxDistance,
-                                                   Set<CelestialObjectType> visibleTypes) {
-        return sky.objectClosestTo(mouseProjectedPosition, projectedMaxDistance, visibleTypes)
-                  .orElse(null);
-    }
-
-
     //-------------------------------------------- objectUnderMouse ----------------------------------------------------
 
     /**
@@ -288,14 +332,26 @@ public class SkyCanvasManager {
                                                              ObservableObjectValue<Transform> planeToCanvas) {
         StereographicProjection p = projection.get();
         Transform transform = planeToCanvas.get();
-        Point2D p2D;
+        Point2D p2D = inverseTransform(transform, x, y);
+        CartesianCoordinates cartesianCoordinates = CartesianCoordinates.of(p2D.getX(), p2D.getY());
+        return p.inverseApply(cartesianCoordinates);
+    }
+
+    /**
+     * Transforms the given point of the canvas back to the plane
+     *
+     * @param planeToCanvas linear transform to convert to the canvas coordinate system
+     * @param x             x-coordinate on the canvas
+     * @param y             y-coordinate on the canvas
+     *
+     * @return the point of the plane
+     */
+    private static Point2D inverseTransform(Transform planeToCanvas, double x, double y) {
         try {
-            p2D = transform.inverseTransform(x, y);
+            return planeToCanvas.inverseTransform(x, y);
         } catch (NonInvertibleTransformException e) {
             throw new RuntimeException(e);
         }
-        CartesianCoordinates cartesianCoordinates = CartesianCoordinates.of(p2D.getX(), p2D.getY());
-        return p.inverseApply(cartesianCoordinates);
     }
 
     /**
@@ -343,11 +399,11 @@ public class SkyCanvasManager {
     }
 
     /**
-     * Gives a binding containing the celestial object under the mouse
+     * Gives a property containing the celestial object under the mouse, which is updated at most once per pulse
      *
-     * @return binding containing the celestial object under the mouse
+     * @return property containing the celestial object under the mouse
      */
-    public ObjectBinding<CelestialObject> objectUnderMouseProperty() {
+    public ReadOnlyObjectProperty<CelestialObject> objectUnderMouseProperty() {
         return objectUnderMouse;
     }
 
@@ -575,6 +631,40 @@ public class SkyCanvasManager {
         return mouseNavigator.maxSpeedProperty();
     }
 
+    /**
+     * Snapshot of the inputs of the observed sky, taken on the JavaFX thread
+     */
+    private static final class SkyInputs {
+        private final ZonedDateTime when;
+        private final GeographicCoordinates where;
+        private final StereographicProjection projection;
+        private final ClosedInterval xInterval, yInterval;
+        private final double limitingMagnitude;
+
+        private SkyInputs(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection,
+                          ClosedInterval xInterval, ClosedInterval yInterval, double limitingMagnitude) {
+            this.when = when;
+            this.where = where;
+            this.projection = projection;
+            this.xInterval = xInterval;
+            this.yInterval = yInterval;
+            this.limitingMagnitude = limitingMagnitude;
+        }
+    }
+
+    /**
+     * Observed sky and the projection used to compute it
+     */
+    private static final class ComputedSky {
+        private final ObservedSky sky;
+        private final StereographicProjection projection;
+
+        private ComputedSky(ObservedSky sky, StereographicProjection projection) {
+            this.sky = sky;
+            this.projection = projection;
+        }
+    }
+
     /**
      * Sets the shape of the pointer according to the current status (e.g. if the pointer is on a celestial
      * object the pointer is shaped like a hand)
@@ -1,11 +1,9 @@
 package ch.epfl.rigel.gui;
 
-import ch.epfl.rigel.astronomy.Asterism;
 import ch.epfl.rigel.astronomy.CelestialObject;
 import ch.epfl.rigel.astronomy.Moon;
 import ch.epfl.rigel.astronomy.ObservedSky;
 import ch.epfl.rigel.astronomy.Planet;
-import ch.epfl.rigel.astronomy.Star;
 import ch.epfl.rigel.astronomy.Sun;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
@@ -24,6 +22,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.Transform;
 
+import java.nio.DoubleBuffer;
 import java.util.List;
 
 import static java.lang.Math.tan;
@@ -36,6 +35,9 @@ import static java.lang.Math.tan;
  */
 public class SkyCanvasPainter {
     private static final double ASTERISM_WIDTH = 1.0;
+    // stars smaller than this diameter, in pixels, are not drawn
+    private static final double MIN_STAR_DIAMETER_PX = 0.4;
+    private static final ClosedInterval MAGNITUDE_INTERVAL = ClosedInterval.of(-2, 5);
     private static final Color PLANET_COLOR = Color.LIGHTGRAY;
 
     private static final Color INNER_SUN_COLOR = Color.WHITE;
@@ -52,6 +54,10 @@ public class SkyCanvasPainter {
     private final Canvas canvas;
     private final GraphicsContext ctx;
 
+    // positions transformed to the canvas, reused from one frame to the next
+    private double[] starScratch = new double[0];
+    private double[] planetScratch = new double[0];
+
     /**
      * Constructs a new {@code SkyCanvasPainter} with the given observed sky, projection and transformation
      *
@@ -107,29 +113,50 @@ public class SkyCanvasPainter {
                                       boolean drawStars, boolean drawAsterisms) {
         if (!drawStars && !drawAsterisms) return;
 
-        List<Star> stars = sky.stars();
-        double[] positions = transform(sky.starPositions(), planeToCanvas);
+        starScratch = transform(sky.starPositionBuffer(), planeToCanvas, starScratch);
+        double[] positions = starScratch;
         Bounds bounds = canvas.getBoundsInLocal();
 
         if (drawAsterisms) {
-            for (Asterism asterism : sky.asterisms()) {
-                drawAsterism(sky.starIndexes(asterism), positions, bounds);
+            ctx.setStroke(asterismColor.get());
+            for (int a = 0; a < sky.asterismCount(); ++a) {
+                drawAsterism(sky, a, positions, bounds);
             }
         }
 
         if (drawStars) {
-            for (int i = 0; i < stars.size(); ++i) {
-                Star star = stars.get(i);
+            // the characteristics of the stars are read from the catalogue columns, without creating the stars, and
+            // only the ones which are not culled are drawn
+            int visibleStarCount = sky.visibleStarCount();
+            for (int v = 0; v < visibleStarCount; ++v) {
+                int i = sky.visibleStarIndex(v);
                 double x = x(positions, i);
                 double y = y(positions, i);
-                drawStar(star, x, y, planeToCanvas);
+                drawStar(sky.starMagnitude(i), sky.starColorTemperature(i), x, y, planeToCanvas);
             }
         }
     }
 
-    private void drawStar(Star star, double x, double y, Transform planeToCanvas) {
-        Color color = BlackBodyColor.colorForTemperature(star.colorTemperature());
-        double d = diameter(star, planeToCanvas);
+    /**
+     * Gives the magnitude of the faintest stars which are drawn at least as large as a minimal diameter, which
+     * increases as the scale of the transformation increases. Since the size of the stars stops decreasing beyond a
+     * magnitude of 5, all stars are drawn if the faintest ones are large enough.
+     *
+     * @param planeToCanvas linear transform to convert to the canvas coordinate system
+     *
+     * @return the limiting magnitude of the stars, which is infinite if all stars are large enough
+     */
+    public double limitingMagnitude(Transform planeToCanvas) {
+        // the diameter is proportional to (99 - 17 m) / 140, m being the magnitude clipped to [-2, 5]
+        double unitDiameter = deltaTransform(2 * tan(Angle.ofDeg(0.5) / 4), planeToCanvas);
+        double minSizeFactor = MIN_STAR_DIAMETER_PX / unitDiameter;
+        double magnitude = (99 - 140 * minSizeFactor) / 17;
+        return magnitude >= MAGNITUDE_INTERVAL.high() ? Double.POSITIVE_INFINITY : magnitude;
+    }
+
+    private void drawStar(double magnitude, int colorTemperature, double x, double y, Transform planeToCanvas) {
+        Color color = BlackBodyColor.colorForTemperature(colorTemperature);
+        double d = planetsAndStarsDiameter(magnitude, planeToCanvas);
         fillCircle(x, y, d, color);
     }
 
@@ -137,12 +164,12 @@ public class SkyCanvasPainter {
         return new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha);
     }
 
-    private double diameter(Star star, Transform planeToCanvas) {
-        return planetsAndStarsDiameter(star, planeToCanvas);
+    private double planetsAndStarsDiameter(CelestialObject object, Transform planeToCanvas) {
+        return planetsAndStarsDiameter(object.magnitude(), planeToCanvas);
     }
 
-    private double planetsAndStarsDiameter(CelestialObject object, Transform planeToCanvas) {
-        double f = sizeFactor(object);
+    private double planetsAndStarsDiameter(double magnitude, Transform planeToCanvas) {
+        double f = sizeFactor(magnitude);
         double d = f * 2 * tan(Angle.ofDeg(0.5) / 4);
         return deltaTransform(d, planeToCanvas);
     }
@@ -156,7 +183,8 @@ public class SkyCanvasPainter {
      */
     public void drawPlanets(ObservedSky sky, Transform planeToCanvas) {
         List<Planet> planets = sky.planets();
-        double[] planetPositions = transform(sky.planetPositions(), planeToCanvas);
+        planetScratch = transform(sky.planetPositionBuffer(), planeToCanvas, planetScratch);
+        double[] planetPositions = planetScratch;
 
         for (int i = 0; i < planets.size(); ++i) {
             Planet planet = planets.get(i);
@@ -176,17 +204,18 @@ public class SkyCanvasPainter {
     }
     //-----------------------------------------------Sun and moon-----------------------------------------------
 
-    private void drawAsterism(List<Integer> starIndexes, double[] starPositions, Bounds bounds) {
-        ctx.setStroke(asterismColor.get());
-        Point2D previousPosition = null;
+    private void drawAsterism(ObservedSky sky, int asterism, double[] starPositions, Bounds bounds) {
+        // the star indices are read from the flat arrays of the catalogue, neither boxing nor allocating
+        boolean previousPositionIsContained = true;  // the first star has no previous position
         ctx.beginPath();
-        for (int index : starIndexes) {
+        for (int p = sky.asterismStart(asterism); p < sky.asterismEnd(asterism); ++p) {
+            int index = sky.asterismStarIndex(p);
             double x = x(starPositions, index);
             double y = y(starPositions, index);
-            boolean previousPositionIsContained = previousPosition == null || bounds.contains(previousPosition);
-            if (previousPositionIsContained || bounds.contains(x, y)) lineTo(x, y, ASTERISM_WIDTH);
+            boolean positionIsContained = bounds.contains(x, y);
+            if (previousPositionIsContained || positionIsContained) lineTo(x, y, ASTERISM_WIDTH);
             else ctx.moveTo(x, y);
-            previousPosition = new Point2D(x, y);
+            previousPositionIsContained = positionIsContained;
         }
         ctx.stroke();
     }
@@ -286,9 +315,20 @@ public class SkyCanvasPainter {
         return transform.transform(coordinates.x(), coordinates.y());
     }
 
-    private static double[] transform(double[] points, Transform transform) {
-        double[] transformedPoints = new double[points.length];
-        transform.transform2DPoints(points, 0, transformedPoints, 0, points.length / 2);
+    /**
+     * Transforms the given positions into the scratch array, which is only allocated again if it is too short
+     *
+     * @param points    positions to transform, in the following format : {@code [x0, y0, ..., xn-1, yn-1]}
+     * @param transform transformation to apply
+     * @param scratch   array where to store the transformed positions
+     *
+     * @return the array holding the transformed positions, which is the scratch array if it was long enough
+     */
+    private static double[] transform(DoubleBuffer points, Transform transform, double[] scratch) {
+        int length = points.remaining();
+        double[] transformedPoints = scratch.length >= length ? scratch : new double[length];
+        points.get(transformedPoints, 0, length);
+        transform.transform2DPoints(transformedPoints, 0, transformedPoints, 0, length / 2);  // in place
         return transformedPoints;
     }
 
@@ -350,14 +390,12 @@ public class SkyCanvasPainter {
         return planeToCanvas.deltaTransform(d, 0).distance(0, 0);
     }
 
-    private double sizeFactor(CelestialObject object) {
-        double mPrime = sizeOnMagnitude(object);
+    private double sizeFactor(double magnitude) {
+        double mPrime = sizeOnMagnitude(magnitude);
         return (99 - 17 * mPrime) / 140;
     }
 
-    private double sizeOnMagnitude(CelestialObject object) {
-        double magnitude = object.magnitude();
-        ClosedInterval magnitudeInterval = ClosedInterval.of(-2, 5);
-        return magnitudeInterval.clip(magnitude);
+    private double sizeOnMagnitude(double magnitude) {
+        return MAGNITUDE_INTERVAL.clip(magnitude);
     }
 }
@@ -0,0 +1,66 @@
+package ch.epfl.rigel.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the time spent in each phase of the startup of the program. Phases can be measured concurrently, from any
+ * thread.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+final class StartupTimer {
+    private final long originNano;
+    private final List<String> phases;
+
+    /**
+     * Constructs a timer whose origin is the current time
+     */
+    StartupTimer() {
+        originNano = System.nanoTime();
+        phases = new ArrayList<>();
+    }
+
+    /**
+     * Gives the start time of a phase, to be given to {@link #end(String, long)} once the phase is over
+     *
+     * @return current time, in nanoseconds
+     */
+    long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a phase which started at the given time and ends now
+     *
+     * @param phase     name of the phase
+     * @param startNano start time of the phase, as given by {@link #start()}
+     */
+    void end(String phase, long startNano) {
+        long endNano = System.nanoTime();
+        String line = String.format(Locale.ROOT, "%-20s %8.1f ms  (from %8.1f ms, %s)", phase,
+                                    (endNano - startNano) / 1e6, (startNano - originNano) / 1e6,
+                                    Thread.currentThread().getName());
+        synchronized (phases) {
+            phases.add(line);
+        }
+    }
+
+    /**
+     * Gives a report of the recorded phases, in the order in which they ended, followed by the total time elapsed
+     * since the origin of the timer
+     *
+     * @return report of the recorded phases, one per line
+     */
+    String report() {
+        StringBuilder report = new StringBuilder();
+        synchronized (phases) {
+            for (String phase : phases) report.append(phase).append(System.lineSeparator());
+        }
+        return report.append(String.format(Locale.ROOT, "%-20s %8.1f ms", "total",
+                                           (System.nanoTime() - originNano) / 1e6))
+                .toString();
+    }
+}
@@ -0,0 +1,189 @@
+package ch.epfl.rigel.math;
+
+import static java.lang.Math.PI;
+
+/**
+ * Implementation of the trigonometric functions used by the kernels which transform the coordinates of many points,
+ * such as the stars of a catalogue, allowing to trade accuracy for speed when the points are only drawn.
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public enum Trigonometry {
+    /**
+     * Functions of {@link Math}, accurate to about one ulp
+     */
+    EXACT {
+        @Override
+        public double sin(double rad) {
+            return Math.sin(rad);
+        }
+
+        @Override
+        public double cos(double rad) {
+            return Math.cos(rad);
+        }
+
+        @Override
+        public double asin(double value) {
+            return Math.asin(value);
+        }
+
+        @Override
+        public double atan2(double y, double x) {
+            return Math.atan2(y, x);
+        }
+    },
+
+    /**
+     * Polynomial approximations, several times faster than the functions of {@link Math}. The error of each function
+     * is at most {@link #FAST_MAX_ERROR}, that is, a fifth of a micro-arcsecond for the angles, far below the
+     * resolution of any screen. The sine and cosine of angles larger than {@code 2^20} radians in absolute value are
+     * computed exactly.
+     */
+    FAST {
+        @Override
+        public double sin(double rad) {
+            if (!(Math.abs(rad) <= MAX_REDUCED_ANGLE)) return Math.sin(rad);
+            double quadrants = Math.rint(rad * TWO_OVER_PI);
+            double r = reduced(rad, quadrants);
+            switch ((int) quadrants & 3) {
+                case 0:
+                    return sinPolynomial(r);
+                case 1:
+                    return cosPolynomial(r);
+                case 2:
+                    return -sinPolynomial(r);
+                default:
+                    return -cosPolynomial(r);
+            }
+        }
+
+        @Override
+        public double cos(double rad) {
+            if (!(Math.abs(rad) <= MAX_REDUCED_ANGLE)) return Math.cos(rad);
+            double quadrants = Math.rint(rad * TWO_OVER_PI);
+            double r = reduced(rad, quadrants);
+            switch ((int) quadrants & 3) {
+                case 0:
+                    return cosPolynomial(r);
+                case 1:
+                    return -sinPolynomial(r);
+                case 2:
+                    return -cosPolynomial(r);
+                default:
+                    return sinPolynomial(r);
+            }
+        }
+
+        @Override
+        public double asin(double value) {
+            // NaN outside of [-1, 1], as the exact function
+            return atan2(value, Math.sqrt((1 - value) * (1 + value)));
+        }
+
+        @Override
+        public double atan2(double y, double x) {
+            double absX = Math.abs(x), absY = Math.abs(y);
+            double max = Math.max(absX, absY);
+            // the signed zeros, the infinities and NaN are left to the exact function
+            if (max == 0 || !(max < Double.POSITIVE_INFINITY)) return Math.atan2(y, x);
+
+            double angle = atanOfUnitInterval(Math.min(absX, absY) / max);
+            if (absY > absX) angle = PI / 2 - angle;
+            if (x < 0) angle = PI - angle;
+            return Math.copySign(angle, y);  // -pi for y = -0 and x < 0, as the exact function
+        }
+    };
+
+    /**
+     * Maximal absolute error of the functions of {@link #FAST}
+     */
+    public static final double FAST_MAX_ERROR = 1e-12;
+
+    private static final double MAX_REDUCED_ANGLE = 0x1p20;
+    private static final double TWO_OVER_PI = 2 / PI;
+    // pi/2 split in two parts, the first one having 33 significant bits, so that k * PI_OVER_2_HIGH is exact for the
+    // angles of at most MAX_REDUCED_ANGLE
+    private static final double PI_OVER_2_HIGH = 1.57079632673412561417e+00;
+    private static final double PI_OVER_2_LOW = 6.07710050650619224932e-11;
+    private static final double TAN_PI_OVER_12 = 2 - Math.sqrt(3);
+    private static final double SQRT_3 = Math.sqrt(3);
+
+    /**
+     * Gives the sine of the given angle
+     *
+     * @param rad angle, in radians
+     *
+     * @return the sine of the angle
+     */
+    public abstract double sin(double rad);
+
+    /**
+     * Gives the cosine of the given angle
+     *
+     * @param rad angle, in radians
+     *
+     * @return the cosine of the angle
+     */
+    public abstract double cos(double rad);
+
+    /**
+     * Gives the arc sine of the given value
+     *
+     * @param value sine of the angle, in [-1, 1]
+     *
+     * @return the angle, in [-pi/2, pi/2], NaN if the value is not in [-1, 1]
+     */
+    public abstract double asin(double value);
+
+    /**
+     * Gives the angle of the point of the given cartesian coordinates, as {@link Math#atan2(double, double)}
+     *
+     * @param y ordinate of the point
+     * @param x abscissa of the point
+     *
+     * @return the angle of the point, in [-pi, pi]
+     */
+    public abstract double atan2(double y, double x);
+
+    /**
+     * Gives the given angle minus the given number of quarter turns, computed in two steps so that it is accurate
+     */
+    private static double reduced(double rad, double quadrants) {
+        return (rad - quadrants * PI_OVER_2_HIGH) - quadrants * PI_OVER_2_LOW;
+    }
+
+    /**
+     * Taylor polynomial of the sine, of degree 13, for angles in [-pi/4, pi/4]
+     */
+    private static double sinPolynomial(double r) {
+        double r2 = r * r;
+        return r + r * r2 * (-1.0 / 6 + r2 * (1.0 / 120 + r2 * (-1.0 / 5_040 + r2 * (1.0 / 362_880
+               + r2 * (-1.0 / 39_916_800 + r2 * (1.0 / 6_227_020_800L))))));
+    }
+
+    /**
+     * Taylor polynomial of the cosine, of degree 14, for angles in [-pi/4, pi/4]
+     */
+    private static double cosPolynomial(double r) {
+        double r2 = r * r;
+        return 1 + r2 * (-1.0 / 2 + r2 * (1.0 / 24 + r2 * (-1.0 / 720 + r2 * (1.0 / 40_320 + r2 * (-1.0 / 3_628_800
+               + r2 * (1.0 / 479_001_600 + r2 * (-1.0 / 87_178_291_200L)))))));
+    }
+
+    /**
+     * Gives the arc tangent of the given value of [0, 1]. Beyond tan(pi/12), the value is brought back to
+     * [0, tan(pi/12)] by the addition formula of the tangent, where the Taylor polynomial of degree 19 is accurate.
+     */
+    private static double atanOfUnitInterval(double t) {
+        double base = 0;
+        if (t > TAN_PI_OVER_12) {
+            t = (SQRT_3 * t - 1) / (SQRT_3 + t);
+            base = PI / 6;
+        }
+        double t2 = t * t;
+        return base + t + t * t2 * (-1.0 / 3 + t2 * (1.0 / 5 + t2 * (-1.0 / 7 + t2 * (1.0 / 9 + t2 * (-1.0 / 11
+               + t2 * (1.0 / 13 + t2 * (-1.0 / 15 + t2 * (1.0 / 17 + t2 * (-1.0 / 19)))))))));
+    }
+}
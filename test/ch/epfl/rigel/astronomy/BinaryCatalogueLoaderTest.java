@@ -0,0 +1,105 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class BinaryCatalogueLoaderTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static List<Star> csvStars() throws IOException {
+        try (InputStream hygStream = BinaryCatalogueLoaderTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .stars();
+        }
+    }
+
+    private static byte[] binaryCatalogue() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream hygStream = BinaryCatalogueLoaderTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            BinaryCatalogueConverter.convert(hygStream, outputStream);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void assertSameStars(List<Star> expected, List<Star> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Star e = expected.get(i);
+            Star a = actual.get(i);
+            assertEquals(e.hipparcosId(), a.hipparcosId());
+            assertEquals(e.name(), a.name());
+            assertEquals(e.equatorialPos().ra(), a.equatorialPos().ra());
+            assertEquals(e.equatorialPos().dec(), a.equatorialPos().dec());
+            assertEquals(e.magnitude(), a.magnitude());
+            assertEquals(e.colorIndex(), a.colorIndex());
+            assertEquals(e.colorTemperature(), a.colorTemperature());
+        }
+    }
+
+    @Test
+    void streamLoadingGivesTheSameStarsAsTheCsv() throws IOException {
+        List<Star> stars = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(binaryCatalogue()), BinaryCatalogueLoader.INSTANCE)
+                .stars();
+        assertSameStars(csvStars(), stars);
+    }
+
+    @Test
+    void mappedLoadingGivesTheSameStarsAsTheCsv() throws IOException {
+        Path path = Files.createTempFile("rigel", ".rglc");
+        try {
+            Files.write(path, binaryCatalogue());
+            List<Star> stars = new StarCatalogue.Builder()
+                    .loadFrom(path, BinaryCatalogueLoader.INSTANCE)
+                    .stars();
+            assertSameStars(csvStars(), stars);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void loadingFailsOnInvalidData() throws IOException {
+        byte[] catalogue = binaryCatalogue();
+        byte[] truncated = new byte[catalogue.length / 2];
+        System.arraycopy(catalogue, 0, truncated, 0, truncated.length);
+
+        assertThrows(IOException.class, () -> new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(truncated), BinaryCatalogueLoader.INSTANCE));
+        assertThrows(IOException.class, () -> new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6}), BinaryCatalogueLoader.INSTANCE));
+    }
+
+    @Test
+    void loadingFailsOnInvalidStars() throws IOException {
+        byte[] catalogue = binaryCatalogue();
+        int count = ByteBuffer.wrap(catalogue).getInt(2 * Integer.BYTES);
+        int decStart = BinaryCatalogueLoader.HEADER_SIZE + count * (Integer.BYTES + Double.BYTES);
+        int colorIndexStart = decStart + count * (Double.BYTES + Float.BYTES);
+
+        byte[] invalidDec = catalogue.clone();
+        ByteBuffer.wrap(invalidDec).putDouble(decStart, 10);
+        byte[] invalidColorIndex = catalogue.clone();
+        ByteBuffer.wrap(invalidColorIndex).putFloat(colorIndexStart, 100);
+        for (byte[] invalid : List.of(invalidDec, invalidColorIndex)) {
+            assertThrows(IOException.class, () -> new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(invalid), BinaryCatalogueLoader.INSTANCE));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class CsvTokenizerTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static CsvTokenizer tokenizer(String text, int maxFields, int bufferSize) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new CsvTokenizer(new ByteArrayInputStream(bytes), maxFields, bufferSize);
+    }
+
+    @Test
+    void rowsAndFieldsAreCorrectlySplit() throws IOException {
+        for (int bufferSize = 1; bufferSize < 16; ++bufferSize) {
+            CsvTokenizer row = tokenizer("a,bc,,d\r\n\ne,f\nlast,row", 10, bufferSize);
+
+            assertTrue(row.nextRow());
+            assertEquals(4, row.fieldCount());
+            assertEquals("a", row.string(0));
+            assertEquals("bc", row.string(1));
+            assertTrue(row.isEmpty(2));
+            assertEquals("d", row.string(3));
+            assertTrue(row.isEmpty(4));
+            assertEquals("", row.string(7));
+
+            assertTrue(row.nextRow());
+            assertEquals(1, row.fieldCount());
+            assertTrue(row.isEmpty(0));
+
+            assertTrue(row.nextRow());
+            assertEquals("e", row.string(0));
+            assertEquals("f", row.string(1));
+
+            assertTrue(row.nextRow());
+            assertEquals("last", row.string(0));
+            assertEquals("row", row.string(1));
+
+            assertFalse(row.nextRow());
+        }
+    }
+
+    @Test
+    void onlyTheRequestedFieldsAreLocated() throws IOException {
+        CsvTokenizer row = tokenizer("1,2,3,4,5", 2, 16);
+        assertTrue(row.nextRow());
+        assertEquals(2, row.fieldCount());
+        assertEquals("2", row.string(1));
+        assertTrue(row.isEmpty(2));
+    }
+
+    @Test
+    void regionTokenizerOnlyReadsItsRegion() throws IOException {
+        byte[] bytes = "x,y\nz,w\nu,v\n".getBytes(StandardCharsets.US_ASCII);
+        CsvTokenizer row = new CsvTokenizer(bytes, 4, 8, 2);
+        assertTrue(row.nextRow());
+        assertEquals("z", row.string(0));
+        assertEquals("w", row.string(1));
+        assertFalse(row.nextRow());
+    }
+
+    @Test
+    void numbersAreParsedLikeTheJdk() throws IOException {
+        String[] numbers = {"0", "-0", "12", "-7", "+3", "0.5", "-0.25", "5.710", "1.615", "-0.8518930353430763",
+                "0.004696959812148889", "6.283185307179586", "123456789012345678", "0.000000000000000001",
+                "1.2e5", "1234567890123456789012", "0.1234567890123456789"};
+        CsvTokenizer row = tokenizer(String.join(",", numbers), numbers.length, 8);
+        assertTrue(row.nextRow());
+        for (int i = 0; i < numbers.length; ++i) {
+            assertEquals(Double.parseDouble(numbers[i]), row.parseDouble(i), numbers[i]);
+            assertEquals(Float.parseFloat(numbers[i]), row.parseFloat(i), numbers[i]);
+        }
+        assertEquals(12, row.parseInt(2));
+        assertEquals(-7, row.parseInt(3));
+        assertEquals(3, row.parseInt(4));
+    }
+
+    @Test
+    void invalidNumbersAreRejected() throws IOException {
+        CsvTokenizer row = tokenizer("abc,.,-,1.5,", 5, 8);
+        assertTrue(row.nextRow());
+        assertThrows(NumberFormatException.class, () -> row.parseDouble(0));
+        assertThrows(NumberFormatException.class, () -> row.parseDouble(1));
+        assertThrows(NumberFormatException.class, () -> row.parseFloat(2));
+        assertThrows(NumberFormatException.class, () -> row.parseInt(3));
+        assertThrows(NumberFormatException.class, () -> row.parseInt(4));
+    }
+
+    @Test
+    void wholeHygDatabaseIsParsedLikeTheJdk() throws IOException {
+        List<String[]> expectedRows = new ArrayList<>();
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(hygStream))) {
+            String line;
+            while ((line = reader.readLine()) != null) expectedRows.add(line.split(",", -1));
+        }
+
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            CsvTokenizer row = new CsvTokenizer(hygStream, 64);
+            row.nextRow();  // header
+            for (String[] expected : expectedRows.subList(1, expectedRows.size())) {
+                assertTrue(row.nextRow());
+                assertEquals(expected.length, row.fieldCount());
+                for (int column : new int[]{7, 8, 23, 24}) {  // ra, dec, rarad, decrad
+                    assertEquals(Double.parseDouble(expected[column]), row.parseDouble(column));
+                }
+                for (int column : new int[]{13, 16}) {  // mag, ci
+                    if (!expected[column].isEmpty()) {
+                        assertEquals(Float.parseFloat(expected[column]), row.parseFloat(column));
+                    }
+                }
+                if (!expected[1].isEmpty()) assertEquals(Integer.parseInt(expected[1]), row.parseInt(1));
+                assertEquals(expected[6], row.string(6));
+                assertEquals(expected[29], row.string(29));
+            }
+            assertFalse(row.nextRow());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class DoublePairConcatenationTest {
+    @Test
+    void pairsAreReadInTheOrderOfTheArrays() {
+        double[] a1 = {1, -1, 2, -2};
+        double[] a2 = {};
+        double[] a3 = {3, -3};
+        double[] a4 = {4, -4, 5, -5, 6, -6};
+
+        DoublePairConcatenation concatenation = new DoublePairConcatenation(List.of(a1, a2, a3, a2, a4));
+        assertEquals(6, concatenation.size());
+        for (int i = 0; i < 6; ++i) {
+            assertEquals(i + 1, concatenation.x(i));
+            assertEquals(-(i + 1), concatenation.y(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> concatenation.x(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> concatenation.y(-1));
+    }
+
+    @Test
+    void arraysAreNotCopied() {
+        double[] positions = {0, 0, 1, 1};
+        DoublePairConcatenation concatenation = new DoublePairConcatenation(List.of(new double[]{-1, -1}, positions));
+        positions[2] = 10;
+        assertEquals(10, concatenation.x(2));
+    }
+
+    @Test
+    void constructorFailsOnOddLengths() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DoublePairConcatenation(List.of(new double[]{1, 2}, new double[]{3})));
+    }
+}
@@ -66,4 +66,13 @@ public class EpochTest {
          Assertions.assertEquals(-1.901284052019e-8, J2000.julianCenturiesUntil(when), 1e-9 );
     }
 
+
+    @Test
+    void plusDaysIsTheInverseOfDaysUntil() {
+        Assertions.assertEquals(ZonedDateTime.of(LocalDate.of(2011, Month.MAY, 7), LocalTime.of(12, 0), ZoneOffset.UTC),
+                                J2010.plusDays(492.5));
+        for (double days : new double[]{-896.75, -0.3, 0, 1e-3, 12.345678, 3652.5}) {
+            Assertions.assertEquals(days, J2010.daysUntil(J2010.plusDays(days)), 1e-8);
+        }
+    }
 }
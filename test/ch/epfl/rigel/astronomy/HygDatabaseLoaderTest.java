@@ -2,17 +2,20 @@ package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 import ch.epfl.rigel.internationalization.Translation;
+import ch.epfl.rigel.math.ClosedInterval;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.ThrowingSupplier;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.function.Predicate;
 
 import static ch.epfl.rigel.coordinates.CoordinateAssertions.assertEquals2;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Antonio Jimenez (314363)
@@ -21,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 class HygDatabaseLoaderTest {
     private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
     private static final String TESTER_CATALOGUE_NAME = "/test.txt";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
 
     @Test
     void signatureCheck() {
@@ -124,6 +128,62 @@ class HygDatabaseLoaderTest {
     }
 
 
+    @Test
+    void parallelLoaderGivesTheSameStarsInTheSameOrder() throws IOException {
+        List<Star> expected;
+        List<Star> actual;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            expected = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).stars();
+        }
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            actual = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.PARALLEL).stars();
+        }
+
+        assertSameStars(expected, actual);
+    }
+
+    private static void assertSameStars(List<Star> expected, List<Star> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Star e = expected.get(i);
+            Star a = actual.get(i);
+            assertEquals(e.hipparcosId(), a.hipparcosId());
+            assertEquals(e.name(), a.name());
+            assertEquals(e.magnitude(), a.magnitude());
+            assertEquals(e.colorTemperature(), a.colorTemperature());
+            assertEquals2(e.equatorialPos(), a.equatorialPos(), 0);
+        }
+    }
+
+    private StarCatalogue filteredCatalogue(HygDatabaseLoader loader, StarFilter filter) throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream(AST_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, loader, filter)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    @Test
+    void parallelLoaderFiltersAndReservesTheSameStars() throws IOException {
+        StarFilter filter = StarFilter.limitingMagnitude(5).withDeclinationBand(ClosedInterval.of(-0.5, 1));
+        StarCatalogue expected = filteredCatalogue(HygDatabaseLoader.INSTANCE, filter);
+        StarCatalogue actual = filteredCatalogue(HygDatabaseLoader.PARALLEL, filter);
+
+        // the stars of the asterisms rejected by the filter are added from the reserve
+        assertTrue(expected.stars().stream().anyMatch(star -> !filter.accepts(star)));
+        assertSameStars(expected.stars(), actual.stars());
+        List<Asterism> expectedAsterisms = List.copyOf(expected.asterisms());
+        List<Asterism> actualAsterisms = List.copyOf(actual.asterisms());
+        assertEquals(expectedAsterisms.size(), actualAsterisms.size());
+        for (int a = 0; a < expectedAsterisms.size(); ++a) {
+            assertEquals(expected.asterismIndices(expectedAsterisms.get(a)),
+                         actual.asterismIndices(actualAsterisms.get(a)));
+        }
+    }
+
+
 // //   void dataBaseWorksWithAnyFile() throws IOException {
 //        String[] names = {"/stars_test2.csv", "/stars_test3.csv", "/stars_test4.csv"};
 //        List<List<Star>> starsList =
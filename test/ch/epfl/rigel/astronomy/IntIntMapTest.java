@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class IntIntMapTest {
+    @Test
+    void basicOperationsWork() {
+        IntIntMap map = new IntIntMap(0, -1);
+        assertEquals(-1, map.get(42));
+        map.put(42, 1);
+        map.put(0, 2);
+        map.put(-7, 3);
+        assertEquals(3, map.size());
+        assertEquals(1, map.get(42));
+        assertEquals(2, map.get(0));
+        assertEquals(3, map.get(-7));
+
+        map.putIfAbsent(42, 10);
+        assertEquals(1, map.get(42));
+        map.put(42, 10);
+        assertEquals(10, map.get(42));
+        assertEquals(3, map.size());
+
+        assertEquals(10, map.remove(42));
+        assertEquals(-1, map.remove(42));
+        assertFalse(map.containsKey(42));
+        assertTrue(map.containsKey(0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void behavesLikeAHashMapOnRandomOperations() {
+        Random random = new Random(2020);
+        IntIntMap map = new IntIntMap(4, Integer.MIN_VALUE);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; ++i) {
+            int key = random.nextInt(5_000) * 16;  // keys sharing their low bits
+            int value = random.nextInt();
+            switch (random.nextInt(3)) {
+                case 0:
+                    map.put(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? Integer.MIN_VALUE : removed, map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, Integer.MIN_VALUE), map.get(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void keysDifferingOnlyByTheirHighBitsAreFoundAcrossResizes() {
+        IntIntMap map = new IntIntMap(0, -1);
+        for (int k = 0; k < 4_096; ++k) map.put(k << 20, k);  // keys whose 20 low bits are zero
+        assertEquals(4_096, map.size());
+        for (int k = 0; k < 4_096; ++k) assertEquals(k, map.get(k << 20));
+        for (int k = 0; k < 4_096; k += 2) assertEquals(k, map.remove(k << 20));
+        for (int k = 0; k < 4_096; ++k) assertEquals(k % 2 == 0 ? -1 : k, map.get(k << 20));
+        assertEquals(2_048, map.size());
+    }
+}
@@ -0,0 +1,124 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class InterpolatingModelTest {
+    private static final double MAX_ANGULAR_ERROR = Angle.ofDeg(0.005);
+    private static final double MAX_VALUE_ERROR = 0.01;
+    // the error is only bounded at the middle of the intervals, where it is the largest for smooth motions
+    private static final double TOLERANCE = 1.5;
+
+    private static <O extends CelestialObject> O exact(CelestialObjectModel<O> model, double daysSinceJ2010) {
+        return model.at(daysSinceJ2010, new EclipticToEquatorialConversion(Epoch.J2010.plusDays(daysSinceJ2010)));
+    }
+
+    private static double angularDistance(EquatorialCoordinates a, EquatorialCoordinates b) {
+        double cos = Math.sin(a.dec()) * Math.sin(b.dec())
+                     + Math.cos(a.dec()) * Math.cos(b.dec()) * Math.cos(a.ra() - b.ra());
+        return Math.acos(Math.min(1, cos));
+    }
+
+    private static void assertClose(CelestialObject expected, CelestialObject actual) {
+        // acos loses precision near 0, hence the small additional tolerance
+        assertTrue(angularDistance(expected.equatorialPos(), actual.equatorialPos())
+                   <= TOLERANCE * MAX_ANGULAR_ERROR + 1e-7);
+        assertEquals(expected.angularSize(), actual.angularSize(), TOLERANCE * MAX_ANGULAR_ERROR);
+        assertEquals(expected.magnitude(), actual.magnitude(), TOLERANCE * MAX_VALUE_ERROR);
+        assertEquals(expected.type(), actual.type());
+        assertEquals(expected.identifier(), actual.identifier());
+        assertEquals(expected.name(), actual.name());
+    }
+
+    private static <O extends CelestialObject> void checkAnimation(CelestialObjectModel<O> exactModel,
+                                                                  InterpolatingModel<O> model, double start,
+                                                                  double speed, int frames) {
+        SplittableRandom random = new SplittableRandom(2020);
+        double daysSinceJ2010 = start;
+        for (int frame = 0; frame < frames; ++frame) {
+            daysSinceJ2010 += speed * random.nextDouble(0.5, 1.5);
+            assertClose(exact(exactModel, daysSinceJ2010), model.at(daysSinceJ2010, null));
+        }
+    }
+
+    @Test
+    void interpolatedSunIsCloseToTheExactOne() {
+        checkAnimation(SunModel.SUN, InterpolatingModel.ofSun(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR), -200, 0.7, 1000);
+        checkAnimation(SunModel.SUN, InterpolatingModel.ofSun(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR), 300, -0.7, 1000);
+
+        InterpolatingModel<Sun> model = InterpolatingModel.ofSun(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR);
+        for (double daysSinceJ2010 = 0; daysSinceJ2010 < 50; daysSinceJ2010 += 0.1) {
+            Sun exact = exact(SunModel.SUN, daysSinceJ2010);
+            Sun interpolated = model.at(daysSinceJ2010, null);
+            assertEquals(exact.eclipticPos().lon(), interpolated.eclipticPos().lon(), TOLERANCE * MAX_ANGULAR_ERROR);
+            assertEquals(exact.meanAnomaly(), interpolated.meanAnomaly(), TOLERANCE * MAX_ANGULAR_ERROR);
+        }
+    }
+
+    @Test
+    void interpolatedMoonIsCloseToTheExactOne() {
+        checkAnimation(MoonModel.MOON, InterpolatingModel.ofMoon(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR), 0, 0.05, 2000);
+        checkAnimation(MoonModel.MOON, InterpolatingModel.ofMoon(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR), 0, -0.05, 2000);
+
+        InterpolatingModel<Moon> model = InterpolatingModel.ofMoon(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR);
+        for (double daysSinceJ2010 = 100; daysSinceJ2010 < 130; daysSinceJ2010 += 0.01) {
+            float exactPhase = exact(MoonModel.MOON, daysSinceJ2010).getAttribute(FloatAttribute.Type.PHASE).value();
+            float phase = model.at(daysSinceJ2010, null).getAttribute(FloatAttribute.Type.PHASE).value();
+            assertEquals(exactPhase, phase, TOLERANCE * MAX_VALUE_ERROR);
+        }
+    }
+
+    @Test
+    void interpolatedPlanetsAreCloseToTheExactOnes() {
+        for (PlanetModel planetModel : PlanetModel.ALL) {
+            if (planetModel == PlanetModel.EARTH) continue;
+            checkAnimation(planetModel, InterpolatingModel.ofPlanet(planetModel, MAX_ANGULAR_ERROR, MAX_VALUE_ERROR),
+                           -1000, 1.3, 1000);
+            checkAnimation(planetModel, InterpolatingModel.ofPlanet(planetModel, MAX_ANGULAR_ERROR, MAX_VALUE_ERROR),
+                           1000, -1.3, 1000);
+        }
+    }
+
+    @Test
+    void keyframesAreTheExactObjects() {
+        InterpolatingModel<Planet> model = InterpolatingModel.ofPlanet(PlanetModel.MARS, MAX_ANGULAR_ERROR,
+                                                                       MAX_VALUE_ERROR);
+        Planet first = model.at(42, null);
+        Planet exact = exact(PlanetModel.MARS, 42);
+        assertEquals(exact.equatorialPos().ra(), first.equatorialPos().ra());
+        assertEquals(exact.equatorialPos().dec(), first.equatorialPos().dec());
+        assertEquals(exact.angularSize(), first.angularSize());
+        assertEquals(exact.magnitude(), first.magnitude());
+
+        model.at(45.5, null);
+        assertSame(first, model.at(42, null));
+    }
+
+    @Test
+    void jumpsInTimeAreHandled() {
+        InterpolatingModel<Moon> model = InterpolatingModel.ofMoon(MAX_ANGULAR_ERROR, MAX_VALUE_ERROR);
+        for (double daysSinceJ2010 : new double[]{0, 0.3, 36500, -36500, 12.7, 12.2, 365.25}) {
+            assertClose(exact(MoonModel.MOON, daysSinceJ2010), model.at(daysSinceJ2010, null));
+        }
+    }
+
+    @Test
+    void constructionFailsOnInvalidErrors() {
+        assertThrows(IllegalArgumentException.class, () -> InterpolatingModel.ofSun(0, MAX_VALUE_ERROR));
+        assertThrows(IllegalArgumentException.class, () -> InterpolatingModel.ofMoon(MAX_ANGULAR_ERROR, -1));
+        assertThrows(IllegalArgumentException.class, () -> SolarSystemModels.interpolating(Double.NaN, 1));
+    }
+}
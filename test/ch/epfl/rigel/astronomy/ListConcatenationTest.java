@@ -2,10 +2,12 @@ package ch.epfl.rigel.astronomy;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ListConcatenationTest {
@@ -41,4 +43,46 @@ class ListConcatenationTest {
         }
         assertThrows(IndexOutOfBoundsException.class, () -> concatenation.get(18));
     }
+
+    @Test
+    void emptyListsAreSkipped() {
+        List<Integer> l1 = List.of(1, 2);
+        List<Integer> l2 = List.of(3);
+        List<Integer> empty = List.of();
+
+        ListConcatenation<Integer> concatenation =
+                new ListConcatenation<>(List.of(empty, l1, empty, empty, l2, empty));
+        assertEquals(3, concatenation.size());
+
+        Iterator<Integer> it = concatenation.iterator();
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(i + 1, it.next());
+            assertEquals(i + 1, concatenation.get(i));
+        }
+        assertFalse(it.hasNext());
+        assertThrows(IndexOutOfBoundsException.class, () -> concatenation.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> concatenation.get(-1));
+
+        ListConcatenation<Integer> nothing = new ListConcatenation<>(List.of(empty, empty));
+        assertEquals(0, nothing.size());
+        assertFalse(nothing.iterator().hasNext());
+        assertThrows(IndexOutOfBoundsException.class, () -> nothing.get(0));
+    }
+
+    @Test
+    void getWorksWithManyLists() {
+        List<List<? extends Integer>> lists = new ArrayList<>();
+        int size = 0;
+        for (int k = 0; k < 100; ++k) {
+            List<Integer> list = new ArrayList<>();
+            for (int j = 0; j < k % 7; ++j) list.add(size++);
+            lists.add(list);
+        }
+
+        ListConcatenation<Integer> concatenation = new ListConcatenation<>(lists);
+        assertEquals(size, concatenation.size());
+        for (int i = 0; i < size; ++i) {
+            assertEquals(i, concatenation.get(i));
+        }
+    }
 }
\ No newline at end of file
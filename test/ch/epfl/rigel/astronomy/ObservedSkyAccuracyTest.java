@@ -0,0 +1,85 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the positions of the stars of the whole catalogue computed by the approximate methods to the ones of
+ * {@link ObservedSky.StarProjection#TRIGONOMETRIC}
+ *
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class ObservedSkyAccuracyTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 0, 0, 0, 0, ZoneId.of("UTC"));
+    private static final double FAST_TRIGONOMETRIC_MAX_ERROR = 1e-11;  // in radians, as documented
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = ObservedSkyAccuracyTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    /**
+     * Gives the largest angle on the celestial sphere between the stars at the given projected positions. The
+     * stereographic projection used stretches the angles around a point at distance rho of the origin by
+     * (1 + rho^2) / 2.
+     */
+    private static double maxAngularError(double[] expected, double[] actual) {
+        double maxError = 0;
+        for (int i = 0; i < expected.length / 2; ++i) {
+            double x = expected[2 * i], y = expected[2 * i + 1];
+            double distance = Math.hypot(actual[2 * i] - x, actual[2 * i + 1] - y);
+            maxError = Math.max(maxError, 2 * distance / (1 + x * x + y * y));
+        }
+        return maxError;
+    }
+
+    @Test
+    void fastTrigonometricPositionsAreWithinTheDocumentedError() {
+        GeographicCoordinates[] places = {GeographicCoordinates.ofDeg(6.57, 46.52), GeographicCoordinates.ofDeg(0, 0),
+                                          GeographicCoordinates.ofDeg(-70, -89)};
+        HorizontalCoordinates[] centers = {HorizontalCoordinates.ofDeg(180, 30), HorizontalCoordinates.ofDeg(0, -80),
+                                           HorizontalCoordinates.ofDeg(277, 89), HorizontalCoordinates.ofDeg(90, 0)};
+        for (int hours = 0; hours < 24; hours += 7) {
+            for (GeographicCoordinates where : places) {
+                for (HorizontalCoordinates center : centers) {
+                    StereographicProjection projection = new StereographicProjection(center);
+                    ObservedSky exact = new ObservedSky(WHEN.plusHours(hours), where, projection, catalogue,
+                                                        ObservedSky.StarProjection.TRIGONOMETRIC);
+                    ObservedSky fast = new ObservedSky(WHEN.plusHours(hours), where, projection, catalogue,
+                                                       ObservedSky.StarProjection.FAST_TRIGONOMETRIC);
+                    double error = maxAngularError(exact.starPositions(), fast.starPositions());
+                    assertTrue(error < FAST_TRIGONOMETRIC_MAX_ERROR, "error of " + error + " rad");
+                }
+            }
+        }
+    }
+
+    @Test
+    void fastTrigonometricSkyKeepsTheExactSolarSystem() {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        ObservedSky exact = new ObservedSky(WHEN, where, projection, catalogue);
+        ObservedSky fast = new ObservedSky(WHEN, where, projection, catalogue,
+                                           ObservedSky.StarProjection.FAST_TRIGONOMETRIC);
+        assertArrayEquals(exact.planetPositions(), fast.planetPositions());
+        assertArrayEquals(new double[]{exact.sunPosition().x(), exact.moonPosition().y()},
+                          new double[]{fast.sunPosition().x(), fast.moonPosition().y()});
+    }
+}
@@ -0,0 +1,160 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.internationalization.Translation;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.ClosedInterval;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class ObservedSkyAllocationTest {
+    private static final int STAR_COUNT = 50_000;
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 0, 0, 0, 0, ZoneId.of("UTC"));
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StereographicProjection PROJECTION =
+            new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+    private static final double MARGIN = Angle.ofDeg(1);
+    private static final ClosedInterval X_INTERVAL = ClosedInterval.of(-1, 1);
+    private static final ClosedInterval Y_INTERVAL = ClosedInterval.of(-0.75, 0.75);
+    // small objects describing a frame (sky, star field, conversions, dates), in addition to the sun, the moon and
+    // the planets, which is exceeded if the containers of the planets are allocated for each frame
+    private static final int FRAME_BYTES = 2_560;
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void createCatalogue() {
+        SplittableRandom r = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < STAR_COUNT; ++i) {
+            builder.addStar(new Star(0, Translation.constant("Star " + i),
+                                     EquatorialCoordinates.of(r.nextDouble(0, Angle.TAU),
+                                                              r.nextDouble(-Math.PI / 2, Math.PI / 2)),
+                                     (float) r.nextDouble(-1, 7), 0));
+        }
+        catalogue = builder.build();
+    }
+
+    private static ObservedSky nextFrame(ObservedSky sky, int frame) {
+        return sky.at(WHEN.plusSeconds(10L * frame), WHERE, PROJECTION)
+                  .culled(MARGIN, X_INTERVAL, Y_INTERVAL, 5);
+    }
+
+    @Test
+    void pooledSkyIsEqualToTheAllocatingOne() {
+        StarBufferPool pool = new StarBufferPool(catalogue);
+        ObservedSky pooled = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue,
+                                             ObservedSky.StarProjection.ROTATION_MATRIX, false, pool);
+        for (int frame = 1; frame <= 5; ++frame) {
+            ObservedSky next = nextFrame(pooled, frame);
+            pool.recycle(pooled, next);
+            pooled = next;
+
+            ObservedSky expected = new ObservedSky(WHEN.plusSeconds(10L * frame), WHERE, PROJECTION, catalogue,
+                                                   ObservedSky.StarProjection.ROTATION_MATRIX)
+                    .culled(MARGIN, X_INTERVAL, Y_INTERVAL, 5);
+            assertArrayEquals(expected.starPositions(), pooled.starPositions());
+            assertArrayEquals(expected.planetPositions(), pooled.planetPositions());
+            assertEquals(expected.planets().toString(), pooled.planets().toString());
+            assertEquals(expected.visibleStarCount(), pooled.visibleStarCount());
+            for (int v = 0; v < expected.visibleStarCount(); ++v) {
+                assertEquals(expected.visibleStarIndex(v), pooled.visibleStarIndex(v));
+            }
+        }
+    }
+
+    @Test
+    void arraysSharedWithTheReplacementAreNotRecycled() {
+        StarBufferPool pool = new StarBufferPool(catalogue);
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue,
+                                          ObservedSky.StarProjection.ROTATION_MATRIX, false, pool)
+                .culled(MARGIN, X_INTERVAL, Y_INTERVAL);
+        // only the culling changes, the positions are shared
+        ObservedSky culled = sky.culled(MARGIN, X_INTERVAL, Y_INTERVAL, 3);
+        pool.recycle(sky, culled);
+        double[] positions = culled.starPositions();
+
+        ObservedSky next = culled.at(WHEN.plusHours(1), WHERE, PROJECTION);
+        assertNotSame(culled, next);
+        assertArrayEquals(positions, culled.starPositions());
+
+        ObservedSky other = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue);
+        assertThrows(IllegalArgumentException.class, () -> pool.recycle(other, other));
+    }
+
+    /**
+     * Computes the sun, the moon and the planets of the given frames, as the models create them
+     */
+    private static void computeBodies(int firstFrame, int endFrame) {
+        for (int frame = firstFrame; frame < endFrame; ++frame) {
+            ZonedDateTime when = WHEN.plusSeconds(10L * frame);
+            double daysSinceJ2010 = Epoch.J2010.daysUntil(when);
+            EclipticToEquatorialConversion toEquatorial = new EclipticToEquatorialConversion(when);
+            SolarSystemModels.EXACT.sunModel().at(daysSinceJ2010, toEquatorial);
+            SolarSystemModels.EXACT.moonModel().at(daysSinceJ2010, toEquatorial);
+            for (CelestialObjectModel<Planet> model : SolarSystemModels.EXACT.planetModels()) {
+                model.at(daysSinceJ2010, toEquatorial);
+            }
+        }
+    }
+
+    @Test
+    void steadyAnimationOnlyAllocatesTheCelestialBodies() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        StarBufferPool pool = new StarBufferPool(catalogue);
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue,
+                                          ObservedSky.StarProjection.ROTATION_MATRIX, false, pool);
+        int frame = 0;
+        for (; frame < 50; ++frame) {  // warm-up
+            ObservedSky next = nextFrame(sky, frame);
+            pool.recycle(sky, next);
+            sky = next;
+        }
+
+        int measuredFrames = 100;
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int end = frame + measuredFrames; frame < end; ++frame) {
+            ObservedSky next = nextFrame(sky, frame);
+            pool.recycle(sky, next);
+            sky = next;
+        }
+        long allocatedPerFrame = (allocations.getThreadAllocatedBytes(threadId) - before) / measuredFrames;
+
+        computeBodies(0, 50);  // warm-up
+        before = allocations.getThreadAllocatedBytes(threadId);
+        computeBodies(frame - measuredFrames, frame);
+        long bodiesPerFrame = (allocations.getThreadAllocatedBytes(threadId) - before) / measuredFrames;
+
+        // the immutable sun, moon and planets are still created for each frame, but neither their containers nor
+        // anything sized by the catalogue
+        assertTrue(allocatedPerFrame < bodiesPerFrame + FRAME_BYTES,
+                   "allocated " + allocatedPerFrame + " bytes per frame, " + bodiesPerFrame + " for the bodies");
+    }
+}
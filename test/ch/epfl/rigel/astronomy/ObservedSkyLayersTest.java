@@ -0,0 +1,135 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.internationalization.Translation;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class ObservedSkyLayersTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 0, 0, 0, 0, ZoneId.of("UTC"));
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = ObservedSkyLayersTest.class.getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = ObservedSkyLayersTest.class.getResourceAsStream(AST_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static void assertSameSky(ObservedSky expected, ObservedSky actual) {
+        assertArrayEquals(expected.starPositions(), actual.starPositions());
+        assertArrayEquals(expected.planetPositions(), actual.planetPositions());
+        assertArrayEquals(new double[]{expected.sunPosition().x(), expected.sunPosition().y(),
+                                       expected.moonPosition().x(), expected.moonPosition().y()},
+                          new double[]{actual.sunPosition().x(), actual.sunPosition().y(),
+                                       actual.moonPosition().x(), actual.moonPosition().y()});
+    }
+
+    @Test
+    void skyIsReusedWhenOnlyTheZoneChanges() {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, projection, catalogue);
+
+        ObservedSky sameInstant = sky.at(WHEN.withZoneSameInstant(ZoneId.of("Europe/Zurich")), WHERE, projection);
+        assertSame(sky, sameInstant);
+        assertSame(sky.planets(), sameInstant.planets());
+    }
+
+    @Test
+    void skyIsComputedAgainWhenItsInputsChange() {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, projection, catalogue,
+                                          ObservedSky.StarProjection.ROTATION_MATRIX);
+
+        ZonedDateTime later = WHEN.plusMinutes(5);
+        ObservedSky laterSky = sky.at(later, WHERE, projection);
+        assertNotSame(sky.planets(), laterSky.planets());
+        assertSameSky(new ObservedSky(later, WHERE, projection, catalogue,
+                                      ObservedSky.StarProjection.ROTATION_MATRIX), laterSky);
+
+        StereographicProjection otherProjection = new StereographicProjection(HorizontalCoordinates.ofDeg(90, 10));
+        assertSameSky(new ObservedSky(WHEN, WHERE, otherProjection, catalogue,
+                                      ObservedSky.StarProjection.ROTATION_MATRIX),
+                      sky.at(WHEN, WHERE, otherProjection));
+
+        GeographicCoordinates elsewhere = GeographicCoordinates.ofDeg(-70, -33);
+        assertSameSky(new ObservedSky(WHEN, elsewhere, projection, catalogue,
+                                      ObservedSky.StarProjection.ROTATION_MATRIX),
+                      sky.at(WHEN, elsewhere, projection));
+    }
+
+    @Test
+    void parallelProjectionGivesTheSamePositions() {
+        SplittableRandom r = TestRandomizer.newRandom();
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < 2 * StarField.PARALLEL_THRESHOLD + 1; ++i) {
+            builder.addStar(new Star(0, Translation.constant("Star " + i),
+                                     EquatorialCoordinates.of(r.nextDouble(0, Angle.TAU),
+                                                              r.nextDouble(-Math.PI / 2, Math.PI / 2)),
+                                     (float) r.nextDouble(-1, 7), 0));
+        }
+        StarCatalogue largeCatalogue = builder.build();
+
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+        for (ObservedSky.StarProjection method : ObservedSky.StarProjection.values()) {
+            ObservedSky sequential = new ObservedSky(WHEN, WHERE, projection, largeCatalogue, method, false);
+            ObservedSky parallel = new ObservedSky(WHEN, WHERE, projection, largeCatalogue, method, true);
+            assertArrayEquals(sequential.starPositions(), parallel.starPositions());
+
+            // the parallel mode is kept when the sky is computed again
+            ZonedDateTime later = WHEN.plusHours(1);
+            assertArrayEquals(new ObservedSky(later, WHERE, projection, largeCatalogue, method, false).starPositions(),
+                              parallel.at(later, WHERE, projection).starPositions());
+        }
+    }
+
+    @Test
+    void positionBuffersAreReadOnlyViewsOfThePositions() {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, projection, catalogue);
+
+        DoubleBuffer stars = sky.starPositionBuffer();
+        assertTrue(stars.isReadOnly());
+        double[] starPositions = new double[stars.remaining()];
+        stars.get(starPositions);
+        assertArrayEquals(sky.starPositions(), starPositions);
+        assertThrows(ReadOnlyBufferException.class, () -> sky.starPositionBuffer().put(0, 0));
+
+        DoubleBuffer planets = sky.planetPositionBuffer();
+        assertTrue(planets.isReadOnly());
+        double[] planetPositions = new double[planets.remaining()];
+        planets.get(planetPositions);
+        assertArrayEquals(sky.planetPositions(), planetPositions);
+    }
+}
@@ -0,0 +1,148 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.math.Angle;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class SkyIndexTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = SkyIndexTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    private static EquatorialCoordinates randomPoint(SplittableRandom random) {
+        return EquatorialCoordinates.of(random.nextDouble(0, Angle.TAU), Math.asin(random.nextDouble(-1, 1)));
+    }
+
+    private static boolean isInCone(int star, EquatorialCoordinates center, double radius) {
+        EquatorialCoordinates position = catalogue.stars().get(star).equatorialPos();
+        double cos = Math.sin(center.dec()) * Math.sin(position.dec())
+                     + Math.cos(center.dec()) * Math.cos(position.dec()) * Math.cos(center.ra() - position.ra());
+        return cos >= Math.cos(radius);
+    }
+
+    private static int[] starsWithinByScan(EquatorialCoordinates center, double radius) {
+        return IntStream.range(0, catalogue.starCount()).filter(i -> isInCone(i, center, radius)).toArray();
+    }
+
+    // the stars on the border of the cone may be classified differently because of rounding errors
+    private static boolean isOnBorder(int star, EquatorialCoordinates center, double radius) {
+        return isInCone(star, center, radius + 1e-9) != isInCone(star, center, radius - 1e-9);
+    }
+
+    @Test
+    void cellsContainEachStarOnce() {
+        SkyIndex index = catalogue.skyIndex();
+        int[] stars = new int[catalogue.starCount()];
+        for (int cell = 0; cell < index.cellCount(); ++cell) {
+            assertEquals(index.cellEnd(cell), cell + 1 < index.cellCount() ? index.cellStart(cell + 1)
+                                                                           : catalogue.starCount());
+            for (int s = index.cellStart(cell); s < index.cellEnd(cell); ++s) {
+                ++stars[index.cellStarIndex(s)];
+                if (s > index.cellStart(cell)) {
+                    assertTrue(catalogue.starMagnitude(index.cellStarIndex(s - 1))
+                               <= catalogue.starMagnitude(index.cellStarIndex(s)));
+                }
+            }
+        }
+        for (int count : stars) assertEquals(1, count);
+        assertSame(index, catalogue.skyIndex());
+    }
+
+    @Test
+    void starsWithinAreTheStarsOfTheCone() {
+        SplittableRandom random = new SplittableRandom(2020);
+        for (double radius : new double[]{0, Angle.ofDeg(0.5), Angle.ofDeg(5), Angle.ofDeg(40), Angle.ofDeg(100),
+                                          Math.PI}) {
+            for (int k = 0; k < 10; ++k) {
+                EquatorialCoordinates center = randomPoint(random);
+                int[] expected = starsWithinByScan(center, radius);
+                int[] actual = catalogue.skyIndex().starsWithin(center, radius);
+                int[] difference = IntStream.concat(Arrays.stream(expected), Arrays.stream(actual))
+                                            .filter(i -> Arrays.binarySearch(expected, i) < 0
+                                                         || Arrays.binarySearch(actual, i) < 0)
+                                            .toArray();
+                for (int star : difference) assertTrue(isOnBorder(star, center, radius));
+                for (int i = 1; i < actual.length; ++i) assertTrue(actual[i - 1] < actual[i]);
+            }
+        }
+        assertEquals(catalogue.starCount(),
+                     catalogue.skyIndex().starsWithin(EquatorialCoordinates.of(1, 0.5), Math.PI).length);
+    }
+
+    @Test
+    void cellsWithinContainTheStarsOfTheCone() {
+        SkyIndex index = catalogue.skyIndex();
+        SplittableRandom random = new SplittableRandom(2021);
+        for (int k = 0; k < 20; ++k) {
+            EquatorialCoordinates center = randomPoint(random);
+            double radius = random.nextDouble(0, Angle.ofDeg(60));
+            int[] cells = index.cellsWithin(center, radius);
+            for (int i = 1; i < cells.length; ++i) assertTrue(cells[i - 1] < cells[i]);
+            assertTrue(cells.length < index.cellCount());
+
+            int[] starsOfCells = Arrays.stream(cells)
+                                       .flatMap(c -> IntStream.range(index.cellStart(c), index.cellEnd(c)))
+                                       .map(index::cellStarIndex)
+                                       .sorted()
+                                       .toArray();
+            for (int star : starsWithinByScan(center, radius)) {
+                assertTrue(Arrays.binarySearch(starsOfCells, star) >= 0);
+            }
+        }
+    }
+
+    @Test
+    void brightestStarsWithinAreSortedByMagnitude() {
+        SplittableRandom random = new SplittableRandom(2022);
+        for (int k = 0; k < 20; ++k) {
+            EquatorialCoordinates center = randomPoint(random);
+            double radius = random.nextDouble(0, Angle.ofDeg(30));
+            int count = random.nextInt(0, 50);
+            int[] expected = catalogue.skyIndex().starsWithin(center, radius);
+            int[] brightest = Arrays.stream(expected)
+                                    .boxed()
+                                    .sorted(Comparator.comparingDouble(catalogue::starMagnitude))
+                                    .limit(count)
+                                    .mapToInt(Integer::intValue)
+                                    .toArray();
+            assertArrayEquals(brightest, catalogue.skyIndex().brightestStarsWithin(center, radius, count));
+        }
+        int[] all = catalogue.skyIndex().brightestStarsWithin(EquatorialCoordinates.of(0, 0), Math.PI, 10);
+        for (int rank = 0; rank < 10; ++rank) assertEquals(catalogue.starIndexByMagnitude(rank), all[rank]);
+    }
+
+    @Test
+    void queriesFailOnInvalidArguments() {
+        SkyIndex index = catalogue.skyIndex();
+        EquatorialCoordinates center = EquatorialCoordinates.of(0, 0);
+        assertThrows(IllegalArgumentException.class, () -> index.starsWithin(center, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> index.cellsWithin(center, 4));
+        assertThrows(IllegalArgumentException.class, () -> index.brightestStarsWithin(center, 1, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.cellStart(index.cellCount()));
+    }
+}
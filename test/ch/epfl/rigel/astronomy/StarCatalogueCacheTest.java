@@ -0,0 +1,149 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarCatalogueCacheTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream stream = StarCatalogueCacheTest.class.getResourceAsStream(name)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static StarCatalogue load(StarCatalogueCache cache, byte[] hygData, byte[] asterismData)
+            throws IOException {
+        return cache.load(new ByteArrayInputStream(hygData), new ByteArrayInputStream(asterismData));
+    }
+
+    private static List<String> stars(StarCatalogue catalogue) {
+        List<String> stars = new ArrayList<>();
+        for (Star star : catalogue.stars()) {
+            stars.add(star.hipparcosId() + " " + star.name() + " " + star.equatorialPos().ra() + " "
+                      + star.equatorialPos().dec() + " " + star.magnitude() + " " + star.colorIndex());
+        }
+        return stars;
+    }
+
+    private static Set<List<Integer>> asterisms(StarCatalogue catalogue) {
+        Set<List<Integer>> asterisms = new HashSet<>();
+        for (Asterism asterism : catalogue.asterisms()) asterisms.add(catalogue.asterismIndices(asterism));
+        return asterisms;
+    }
+
+    @Test
+    void cachedCatalogueEqualsTheBuiltCatalogue() throws IOException {
+        byte[] hygData = resource(HYG_CATALOGUE_NAME);
+        byte[] asterismData = resource(AST_CATALOGUE_NAME);
+        Path directory = Files.createTempDirectory("rigel");
+        Path file = directory.resolve("catalogue.cache");
+        try {
+            StarCatalogueCache cache = new StarCatalogueCache(file);
+            StarCatalogue built = load(cache, hygData, asterismData);
+            assertTrue(Files.exists(file));
+            byte[] cacheContent = Files.readAllBytes(file);
+
+            StarCatalogue cached = load(cache, hygData, asterismData);
+            assertEquals(stars(built), stars(cached));
+            assertEquals(asterisms(built), asterisms(cached));
+            for (Asterism asterism : cached.asterisms()) {
+                List<Integer> indices = cached.asterismIndices(asterism);
+                for (int i = 0; i < indices.size(); ++i) {
+                    assertEquals(asterism.stars().get(i), cached.stars().get(indices.get(i)));
+                }
+            }
+            // a warm start does not rewrite the cache
+            assertTrue(Arrays.equals(cacheContent, Files.readAllBytes(file)));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void cacheIsRebuiltWhenTheSourcesChange() throws IOException {
+        byte[] hygData = resource(HYG_CATALOGUE_NAME);
+        byte[] asterismData = resource(AST_CATALOGUE_NAME);
+        String firstAsterism = new String(asterismData).lines().findFirst().orElseThrow();
+        byte[] fewerAsterisms = (firstAsterism + "\n").getBytes();
+        assertNotEquals(StarCatalogueCache.key(hygData, asterismData), StarCatalogueCache.key(hygData, fewerAsterisms));
+
+        Path file = Files.createTempFile("rigel", ".cache");
+        try {
+            StarCatalogueCache cache = new StarCatalogueCache(file);
+            load(cache, hygData, asterismData);
+            StarCatalogue catalogue = load(cache, hygData, fewerAsterisms);
+            assertEquals(1, catalogue.asterisms().size());
+            assertEquals(1, load(cache, hygData, fewerAsterisms).asterisms().size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void corruptedCacheIsIgnored() throws IOException {
+        byte[] hygData = resource(HYG_CATALOGUE_NAME);
+        byte[] asterismData = resource(AST_CATALOGUE_NAME);
+        Path file = Files.createTempFile("rigel", ".cache");
+        try {
+            StarCatalogueCache cache = new StarCatalogueCache(file);
+            StarCatalogue built = load(cache, hygData, asterismData);
+
+            byte[] content = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(content, content.length / 3));
+            assertEquals(stars(built), stars(load(cache, hygData, asterismData)));
+            assertEquals(content.length, Files.size(file));  // the cache was rewritten
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void cacheWithCorruptedCountsIsRejectedBeforeAllocating() throws IOException {
+        byte[] hygData = resource(HYG_CATALOGUE_NAME);
+        byte[] asterismData = resource(AST_CATALOGUE_NAME);
+        long key = StarCatalogueCache.key(hygData, asterismData);
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(hygData), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterismData), AsterismLoader.INSTANCE)
+                .build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StarCatalogueCache.write(catalogue, key, output);
+        byte[] content = output.toByteArray();
+        assertEquals(catalogue.starCount(), StarCatalogueCache.read(ByteBuffer.wrap(content), key).starCount());
+
+        // star count, after the header of the cache and the magic number and version of the stars
+        int starCountPosition = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+        int asterismCountPosition = content.length
+                                    - (catalogue.asterismOffsets().length + catalogue.asterismStarIndices().length + 2)
+                                      * Integer.BYTES;
+        for (int position : new int[]{starCountPosition, asterismCountPosition, asterismCountPosition + 4}) {
+            byte[] corrupted = content.clone();
+            ByteBuffer.wrap(corrupted).putInt(position, Integer.MAX_VALUE);
+            assertThrows(IOException.class, () -> StarCatalogueCache.read(ByteBuffer.wrap(corrupted), key));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.internationalization.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarCatalogueMagnitudeTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static Star star(int hipparcosId, float magnitude) {
+        return new Star(hipparcosId, Translation.constant("s" + hipparcosId), EquatorialCoordinates.of(0, 0),
+                        magnitude, 0);
+    }
+
+    @Test
+    void starsAreSortedByMagnitudeAndThenByIndex() {
+        StarCatalogue catalogue = new StarCatalogue(List.of(star(1, 3), star(2, -1), star(3, 3), star(4, 0.5f)),
+                                                    List.of());
+        int[] ranks = new int[catalogue.starCount()];
+        for (int r = 0; r < ranks.length; ++r) ranks[r] = catalogue.starIndexByMagnitude(r);
+        assertArrayEquals(new int[]{1, 3, 0, 2}, ranks);
+
+        assertEquals(0, catalogue.brighterStarCount(-2));
+        assertEquals(1, catalogue.brighterStarCount(-1));
+        assertEquals(2, catalogue.brighterStarCount(2.9));
+        assertEquals(4, catalogue.brighterStarCount(3));
+        assertEquals(4, catalogue.brighterStarCount(Double.POSITIVE_INFINITY));
+        assertThrows(IndexOutOfBoundsException.class, () -> catalogue.starIndexByMagnitude(4));
+    }
+
+    @Test
+    void brighterStarsAreTheFirstOnes() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = StarCatalogueMagnitudeTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+
+        boolean[] seen = new boolean[catalogue.starCount()];
+        for (int r = 0; r < catalogue.starCount(); ++r) {
+            int index = catalogue.starIndexByMagnitude(r);
+            seen[index] = true;
+            if (r > 0) {
+                assertTrue(catalogue.starMagnitude(catalogue.starIndexByMagnitude(r - 1))
+                           <= catalogue.starMagnitude(index));
+            }
+        }
+        for (boolean s : seen) assertTrue(s);
+
+        int brighterStarCount = catalogue.brighterStarCount(4);
+        for (int r = 0; r < catalogue.starCount(); ++r) {
+            assertEquals(r < brighterStarCount, catalogue.starMagnitude(catalogue.starIndexByMagnitude(r)) <= 4);
+        }
+    }
+}
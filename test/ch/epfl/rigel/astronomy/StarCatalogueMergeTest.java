@@ -0,0 +1,197 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.internationalization.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarCatalogueMergeTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
+
+    private static StarCatalogue baseCatalogue() throws IOException {
+        try (InputStream hygStream = StarCatalogueMergeTest.class.getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = StarCatalogueMergeTest.class.getResourceAsStream(AST_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static Star star(int hipparcosId, String name) {
+        return star(hipparcosId, name, 3);
+    }
+
+    private static Star star(int hipparcosId, String name, float magnitude) {
+        return new Star(hipparcosId, Translation.constant(name), EquatorialCoordinates.of(1, 0.5), magnitude, 0.2f);
+    }
+
+    private static void assertConsistent(StarCatalogue catalogue) {
+        int a = 0;
+        for (Asterism asterism : catalogue.asterisms()) {
+            List<Integer> indices = catalogue.asterismIndices(asterism);
+            assertEquals(asterism.stars().size(), indices.size());
+            for (int i = 0; i < indices.size(); ++i) {
+                assertSame(asterism.stars().get(i), catalogue.stars().get(indices.get(i)));
+                assertEquals(indices.get(i), catalogue.asterismStarIndex(catalogue.asterismStart(a) + i));
+            }
+            ++a;
+        }
+    }
+
+    @Test
+    void derivedCatalogueSharesTheStarsOfTheBase() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        Star newStar = star(999_999, "New");
+        Asterism newAsterism = new Asterism(List.of(base.stars().get(0), newStar));
+        StarCatalogue derived = base.withAdditions(List.of(newStar), List.of(newAsterism));
+
+        assertEquals(base.starCount() + 1, derived.starCount());
+        assertEquals(base.asterismCount() + 1, derived.asterismCount());
+        assertSame(newStar, derived.stars().get(base.starCount()));
+        for (int i = 0; i < base.starCount(); i += 97) assertSame(base.stars().get(i), derived.stars().get(i));
+
+        List<Asterism> baseAsterisms = new ArrayList<>(base.asterisms());
+        List<Asterism> derivedAsterisms = new ArrayList<>(derived.asterisms());
+        assertEquals(baseAsterisms, derivedAsterisms.subList(0, baseAsterisms.size()));
+        assertEquals(List.of(0, base.starCount()), derived.asterismIndices(newAsterism));
+        assertConsistent(derived);
+    }
+
+    @Test
+    void derivedCataloguesDoNotModifyTheirBase() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        int baseCount = base.starCount();
+        int baseAsterismCount = base.asterismCount();
+
+        StarCatalogue first = base.withAdditions(List.of(star(999_998, "First")), List.of());
+        StarCatalogue second = base.withAdditions(List.of(star(999_999, "Second"), star(0, "Third")), List.of());
+
+        assertEquals(baseCount, base.starCount());
+        assertEquals(baseAsterismCount, base.asterismCount());
+        assertEquals("First", first.stars().get(baseCount).name());
+        assertEquals("Second", second.stars().get(baseCount).name());
+        assertEquals("Third", second.stars().get(baseCount + 1).name());
+        assertEquals(baseCount + 1, first.starCount());
+        assertEquals(baseCount + 2, second.starCount());
+        assertConsistent(base);
+        assertConsistent(first);
+        assertConsistent(second);
+    }
+
+    @Test
+    void starsWithAKnownHipparcosIdAreDropped() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        Asterism baseAsterism = base.asterisms().iterator().next();
+        int hipparcosId = baseAsterism.stars().get(0).hipparcosId();
+        int index = base.asterismIndices(baseAsterism).get(0);
+
+        Star duplicate = star(hipparcosId, "Duplicate");
+        Star newStar = star(999_999, "New");
+        Star newDuplicate = star(999_999, "New duplicate");
+        Asterism newAsterism = new Asterism(List.of(duplicate, newDuplicate, newStar));
+        StarCatalogue derived = base.withAdditions(List.of(duplicate, newStar, newDuplicate), List.of(newAsterism));
+
+        assertEquals(base.starCount() + 1, derived.starCount());
+        assertSame(newStar, derived.stars().get(base.starCount()));
+        assertEquals(base.asterismCount() + 1, derived.asterismCount());
+
+        // the asterism refers to the stars kept instead of the duplicates
+        Asterism mergedAsterism = new ArrayList<>(derived.asterisms()).get(base.asterismCount());
+        assertNotSame(newAsterism, mergedAsterism);
+        assertEquals(List.of(index, base.starCount(), base.starCount()), derived.asterismIndices(mergedAsterism));
+        assertSame(base.stars().get(index), mergedAsterism.stars().get(0));
+        assertConsistent(derived);
+
+        // the given asterism, referring to dropped stars, is not in the catalogue
+        assertFalse(derived.asterisms().contains(newAsterism));
+        assertThrows(IllegalArgumentException.class, () -> derived.asterismIndices(newAsterism));
+    }
+
+    @Test
+    void builderCanBeReusedAfterBuilding() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        StarCatalogue.Builder builder = base.toBuilder().addStar(star(999_998, "First"));
+        StarCatalogue first = builder.build();
+        StarCatalogue second = builder.addStar(star(999_998, "First again")).addStar(star(999_999, "Second")).build();
+
+        assertEquals(base.starCount() + 1, first.starCount());
+        assertEquals(base.starCount() + 2, second.starCount());
+        assertEquals("First", second.stars().get(base.starCount()).name());
+        assertEquals("Second", second.stars().get(base.starCount() + 1).name());
+        assertEquals("First", first.stars().get(base.starCount()).name());
+    }
+
+    @Test
+    void derivedCatalogueHasTheUnitVectorsOfACatalogueBuiltFromScratch() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        StarCatalogue derived = base.withAdditions(List.of(star(999_998, "First"), star(999_999, "Second")), List.of());
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (Star star : derived.stars()) builder.addStar(star);
+        StarCatalogue fromScratch = builder.build();
+
+        assertArrayEquals(fromScratch.starUnitVectors(), derived.starUnitVectors());
+        assertArrayEquals(base.starUnitVectors(),
+                          Arrays.copyOf(derived.starUnitVectors(), base.starUnitVectors().length));
+    }
+
+    @Test
+    void derivedCatalogueHasTheMagnitudeOrderOfACatalogueBuiltFromScratch() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        Star first = base.stars().get(0);
+        List<Star> added = List.of(star(999_997, "Bright", -30), star(999_998, "Tie", (float) first.magnitude()),
+                                   star(999_999, "Faint", 30), star(0, "Zero", -0f));
+        StarCatalogue derived = base.withAdditions(added, List.of());
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (Star star : derived.stars()) builder.addStar(star);
+        StarCatalogue fromScratch = builder.build();
+
+        for (int rank = 0; rank < derived.starCount(); ++rank) {
+            assertEquals(fromScratch.starIndexByMagnitude(rank), derived.starIndexByMagnitude(rank));
+        }
+        assertEquals(base.starCount(), derived.starIndexByMagnitude(0));
+        assertEquals(base.starCount() + 2, derived.starIndexByMagnitude(derived.starCount() - 1));
+    }
+
+    @Test
+    void starsCreatedAfterTheStorageWasCopiedAreShared() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        int row = 0;
+        while (base.starTable().createdStar(row) != null) ++row;
+
+        base.toBuilder().addStar(star(999_998, "First"));
+        Star second = star(999_999, "Second");
+        StarCatalogue.Builder builder = base.toBuilder().addStar(second);  // copies the storage shared with the base
+        Star star = base.stars().get(row);
+        assertSame(star, builder.stars().get(row));
+
+        Asterism asterism = new Asterism(List.of(star, second));
+        StarCatalogue derived = builder.addAsterism(asterism).build();
+        assertEquals(List.of(row, base.starCount()), derived.asterismIndices(asterism));
+        assertSame(star, derived.stars().get(row));
+    }
+
+    @Test
+    void withAdditionsFailsOnUnknownAsterismStars() throws IOException {
+        StarCatalogue base = baseCatalogue();
+        Asterism asterism = new Asterism(List.of(star(999_999, "Unknown")));
+        assertThrows(IllegalArgumentException.class, () -> base.withAdditions(List.of(), List.of(asterism)));
+    }
+}
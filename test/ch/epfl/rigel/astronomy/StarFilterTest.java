@@ -0,0 +1,120 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.math.ClosedInterval;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarFilterTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
+
+    private static final StarFilter FILTER = StarFilter.limitingMagnitude(4)
+            .withDeclinationBand(ClosedInterval.of(-Math.PI / 4, Math.PI / 2));
+
+    private static List<Star> allStars() throws IOException {
+        try (InputStream hygStream = StarFilterTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .stars();
+        }
+    }
+
+    private static List<String> names(List<Star> stars) {
+        List<String> names = new ArrayList<>(stars.size());
+        for (Star star : stars) names.add(star.hipparcosId() + " " + star.name());
+        return names;
+    }
+
+    @Test
+    void acceptsWorksOnKnownValues() {
+        assertTrue(FILTER.accepts(0, 4));
+        assertTrue(FILTER.accepts(-Math.PI / 4, -1));
+        assertFalse(FILTER.accepts(0, 4.01));
+        assertFalse(FILTER.accepts(-1, 0));
+        assertTrue(StarFilter.ALL.accepts(-Math.PI / 2, 100));
+    }
+
+    @Test
+    void loadersOnlyKeepAcceptedStars() throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (Star star : allStars()) {
+            if (FILTER.accepts(star)) expected.add(star.hipparcosId() + " " + star.name());
+        }
+
+        for (HygDatabaseLoader loader : HygDatabaseLoader.values()) {
+            try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+                List<Star> stars = new StarCatalogue.Builder()
+                        .loadFrom(hygStream, loader, FILTER)
+                        .stars();
+                assertEquals(expected, names(stars), loader.toString());
+            }
+        }
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            BinaryCatalogueConverter.convert(hygStream, binary);
+        }
+        List<Star> stars = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(binary.toByteArray()), BinaryCatalogueLoader.INSTANCE, FILTER)
+                .stars();
+        assertEquals(expected, names(stars));
+    }
+
+    @Test
+    void asterismsStillContainTheRejectedStars() throws IOException {
+        StarCatalogue unfiltered;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream(AST_CATALOGUE_NAME)) {
+            unfiltered = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        StarCatalogue filtered;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream(AST_CATALOGUE_NAME)) {
+            filtered = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE, StarFilter.limitingMagnitude(2))
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        assertTrue(filtered.stars().size() < unfiltered.stars().size());
+        assertEquals(unfiltered.asterisms().size(), filtered.asterisms().size());
+
+        List<String> expected = new ArrayList<>();
+        for (Asterism asterism : unfiltered.asterisms()) expected.add(names(asterism.stars()).toString());
+        List<String> actual = new ArrayList<>();
+        for (Asterism asterism : filtered.asterisms()) actual.add(names(asterism.stars()).toString());
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void defaultFilteredLoadFiltersTheLoadedStars() throws IOException {
+        StarCatalogue.Loader loader = (inputStream, builder) -> {
+            for (Star star : allStars()) builder.addStar(star);
+        };
+        List<Star> stars = new StarCatalogue.Builder()
+                .loadFrom(InputStream.nullInputStream(), loader, FILTER)
+                .stars();
+        for (Star star : stars) assertTrue(FILTER.accepts(star));
+        assertFalse(stars.isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.ClosedInterval;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarGridTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 0, 0, 0, 0, ZoneId.of("UTC"));
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StereographicProjection PROJECTION =
+            new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = StarGridTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    private static int closestStarByScan(ObservedSky sky, double x, double y, double maxDistance) {
+        double[] positions = sky.starPositions();
+        int closest = -1;
+        double closestDistanceSquared = maxDistance * maxDistance;
+        for (int v = 0; v < sky.visibleStarCount(); ++v) {
+            int i = sky.visibleStarIndex(v);
+            double dx = positions[2 * i] - x, dy = positions[2 * i + 1] - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared < closestDistanceSquared || (closest < 0 && distanceSquared == closestDistanceSquared)) {
+                closest = i;
+                closestDistanceSquared = distanceSquared;
+            }
+        }
+        return closest;
+    }
+
+    private static void checkAgainstScan(ObservedSky sky) {
+        StarGrid grid = sky.visibleStars().grid();
+        double[] positions = sky.starPositions();
+        SplittableRandom random = new SplittableRandom(2020);
+        for (int k = 0; k < 2000; ++k) {
+            double x = random.nextDouble(-3, 3), y = random.nextDouble(-3, 3);
+            double maxDistance = random.nextDouble(0, 0.2);
+            assertEquals(closestStarByScan(sky, x, y, maxDistance), grid.closestStar(x, y, maxDistance));
+        }
+        for (int k = 0; k < 200; ++k) {
+            // exactly on a star, possibly at the same position as other ones
+            int star = sky.visibleStarIndex(random.nextInt(sky.visibleStarCount()));
+            double x = positions[2 * star], y = positions[2 * star + 1];
+            assertEquals(closestStarByScan(sky, x, y, 0), grid.closestStar(x, y, 0));
+            assertEquals(closestStarByScan(sky, x, y, 0.01), grid.closestStar(x, y, 0.01));
+        }
+        for (double maxDistance : new double[]{1, 10, Double.POSITIVE_INFINITY}) {
+            assertEquals(closestStarByScan(sky, 50, -20, maxDistance), grid.closestStar(50, -20, maxDistance));
+        }
+    }
+
+    @Test
+    void gridOfAllTheStarsFindsTheClosestOne() {
+        checkAgainstScan(new ObservedSky(WHEN, WHERE, PROJECTION, catalogue));
+        // the stars close to the zenith are projected far away from the center
+        checkAgainstScan(new ObservedSky(WHEN, WHERE, new StereographicProjection(HorizontalCoordinates.ofDeg(0, -80)),
+                                         catalogue));
+    }
+
+    @Test
+    void gridOfTheVisibleStarsFindsTheClosestOne() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue)
+                .culled(Angle.ofDeg(1), ClosedInterval.of(-0.8, 0.6), ClosedInterval.of(-0.5, 0.7), 5);
+        checkAgainstScan(sky);
+    }
+
+    @Test
+    void gridOfNoStarFindsNothing() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue)
+                .culled(0, ClosedInterval.of(-0.8, 0.6), ClosedInterval.of(-0.5, 0.7), -10);
+        assertEquals(-1, sky.visibleStars().grid().closestStar(0, 0, Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void gridIsBuiltOncePerSky() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue);
+        StarGrid grid = sky.visibleStars().grid();
+        sky.objectClosestTo(CartesianCoordinates.of(0.1, 0.2), 0.05, Set.of(CelestialObjectType.STAR));
+        assertSame(grid, sky.visibleStars().grid());
+    }
+}
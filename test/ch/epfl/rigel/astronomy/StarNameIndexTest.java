@@ -0,0 +1,108 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarNameIndexTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = StarNameIndexTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    private static boolean matches(int star, String prefix) {
+        String name = catalogue.starName(star).toLowerCase(Locale.ROOT);
+        String lowerCasePrefix = prefix.toLowerCase(Locale.ROOT);
+        if (name.startsWith(lowerCasePrefix) && !name.startsWith("? ")) return true;
+        for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+            if (name.startsWith(lowerCasePrefix, i + 1)) return true;
+        }
+        return false;
+    }
+
+    private static int[] brightestStarsWithPrefixByScan(String prefix, int count) {
+        return IntStream.range(0, catalogue.starCount())
+                        .map(catalogue::starIndexByMagnitude)
+                        .filter(i -> matches(i, prefix))
+                        .limit(count)
+                        .toArray();
+    }
+
+    @Test
+    void starsAreFoundByHipparcosId() {
+        StarNameIndex index = catalogue.nameIndex();
+        assertEquals("Rigel", catalogue.starName(index.starWithHipparcosId(24436)));
+        assertEquals("Betelgeuse", catalogue.starName(index.starWithHipparcosId(27989)));
+        for (int i = 0; i < catalogue.starCount(); i += 97) {
+            int hipparcosId = catalogue.starHipparcosId(i);
+            if (hipparcosId != 0) assertEquals(i, index.starWithHipparcosId(hipparcosId));
+        }
+        assertEquals(-1, index.starWithHipparcosId(0));
+        assertEquals(-1, index.starWithHipparcosId(-5));
+        assertSame(index, catalogue.nameIndex());
+    }
+
+    @Test
+    void starsAreFoundByNameIgnoringTheCase() {
+        StarNameIndex index = catalogue.nameIndex();
+        int rigel = index.starWithName("Rigel");
+        assertEquals(24436, catalogue.starHipparcosId(rigel));
+        assertEquals(rigel, index.starWithName("rIGEL"));
+        for (int i = 0; i < catalogue.starCount(); i += 101) {
+            String name = catalogue.starName(i);
+            if (name.startsWith("? ")) continue;
+            int expected = IntStream.range(0, catalogue.starCount())
+                                    .map(catalogue::starIndexByMagnitude)
+                                    .filter(j -> catalogue.starName(j).equalsIgnoreCase(name))
+                                    .findFirst()
+                                    .orElseThrow();
+            assertEquals(expected, index.starWithName(name.toUpperCase(Locale.ROOT)));
+        }
+        assertEquals(-1, index.starWithName("Rige"));
+        assertEquals(-1, index.starWithName("Rigel Kentaurus B and more"));
+        assertEquals(-1, index.starWithName("Ori"));
+        assertEquals(-1, index.starWithName("? Ori"));
+    }
+
+    @Test
+    void brightestStarsWithPrefixAreTheOnesOfAScan() {
+        StarNameIndex index = catalogue.nameIndex();
+        for (String prefix : new String[]{"Rig", "r", "ALP", "Ori", "ori", "Alp Or", "be", "?", "? Ori", "zzz", "o"}) {
+            for (int count : new int[]{0, 1, 5, 40}) {
+                assertArrayEquals(brightestStarsWithPrefixByScan(prefix, count),
+                                  index.brightestStarsWithPrefix(prefix, count), prefix);
+            }
+        }
+        assertEquals("Rigel", catalogue.starName(index.brightestStarsWithPrefix("rige", 1)[0]));
+    }
+
+    @Test
+    void emptyPrefixGivesTheBrightestStars() {
+        int[] brightest = catalogue.nameIndex().brightestStarsWithPrefix("", 10);
+        for (int rank = 0; rank < 10; ++rank) assertEquals(catalogue.starIndexByMagnitude(rank), brightest[rank]);
+    }
+
+    @Test
+    void brightestStarsWithPrefixFailsOnNegativeCount() {
+        assertThrows(IllegalArgumentException.class, () -> catalogue.nameIndex().brightestStarsWithPrefix("a", -1));
+    }
+}
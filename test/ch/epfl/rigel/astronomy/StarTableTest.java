@@ -0,0 +1,107 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.internationalization.Translation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StarTableTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
+
+    @Test
+    void starsAreOnlyCreatedOnDemandAndThenKept() {
+        StarTable table = new StarTable();
+        for (int i = 0; i < 100; ++i) table.add(i, "star " + i, 0.01 * i, 0.005 * i, i / 10f, i / 20f);
+
+        assertEquals(100, table.size());
+        assertNull(table.createdStar(42));
+        Star star = table.star(42);
+        assertSame(star, table.createdStar(42));
+        assertSame(star, table.stars().get(42));
+        assertEquals(42, star.hipparcosId());
+        assertEquals("star 42", star.name());
+        assertEquals(0.42, star.equatorialPos().ra());
+        assertEquals(0.21, star.equatorialPos().dec());
+        assertEquals(4.2f, star.magnitude(), 1e-6);
+        assertEquals(star.colorTemperature(), table.colorTemperature(42));
+        assertNull(table.createdStar(41));
+    }
+
+    @Test
+    void invalidStarsAreRejectedWhenAdded() {
+        StarTable table = new StarTable();
+        assertThrows(IllegalArgumentException.class, () -> table.add(-1, "a", 0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.add(1, "a", 7, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.add(1, "a", 0, 0, 0, 6));
+        assertThrows(NullPointerException.class, () -> table.add(1, null, 0, 0, 0, 0));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void retainKeepsTheOrderAndTheCreatedStars() {
+        StarTable table = new StarTable();
+        StarTable rejected = new StarTable();
+        Star first = new Star(1, Translation.constant("first"), EquatorialCoordinates.of(0, 0), 1, 0);
+        table.add(first);
+        table.add(0, "faint", 0, 0, 6, 0);
+        table.add(3, "bright", 0, 0, 2, 0);
+        table.add(4, "faint with ID", 0, 0, 8, 0);
+
+        table.retain(1, StarFilter.limitingMagnitude(5), rejected);
+        assertEquals(2, table.size());
+        assertSame(first, table.star(0));
+        assertEquals("bright", table.star(1).name());
+        assertEquals(1, rejected.size());
+        assertEquals("faint with ID", rejected.star(0).name());
+    }
+
+    @Test
+    void catalogueCreatesOnlyTheStarsOfTheAsterisms() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream astStream = getClass().getResourceAsStream(AST_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        StarTable table = catalogue.starTable();
+        int created = 0;
+        for (int i = 0; i < table.size(); ++i) {
+            if (table.createdStar(i) != null) ++created;
+        }
+        Set<Star> asterismStars = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Asterism asterism : catalogue.asterisms()) asterismStars.addAll(asterism.stars());
+        assertEquals(table.size(), catalogue.starCount());
+        assertEquals(asterismStars.size(), created);
+
+        int a = 0;
+        for (Asterism asterism : catalogue.asterisms()) {
+            List<Integer> indices = catalogue.asterismIndices(asterism);
+            assertEquals(indices.size(), catalogue.asterismEnd(a) - catalogue.asterismStart(a));
+            for (int i = 0; i < indices.size(); ++i) {
+                assertSame(asterism.stars().get(i), catalogue.stars().get(indices.get(i)));
+                assertEquals(indices.get(i), catalogue.asterismStarIndex(catalogue.asterismStart(a) + i));
+            }
+            ++a;
+        }
+        assertEquals(a, catalogue.asterismCount());
+    }
+}
@@ -0,0 +1,131 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.ClosedInterval;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class VisibleStarsTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 0, 0, 0, 0, ZoneId.of("UTC"));
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StereographicProjection PROJECTION =
+            new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+    private static final double MARGIN = Angle.ofDeg(2);
+    private static final ClosedInterval X_INTERVAL = ClosedInterval.of(-0.8, 0.6);
+    private static final ClosedInterval Y_INTERVAL = ClosedInterval.of(-0.5, 0.7);
+
+    private static StarCatalogue catalogue;
+
+    @BeforeAll
+    static void loadCatalogue() throws IOException {
+        try (InputStream hygStream = VisibleStarsTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    @Test
+    void allStarsAreVisibleIfTheSkyIsNotCulled() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue);
+        assertEquals(sky.starCount(), sky.visibleStarCount());
+        for (int v = 0; v < sky.visibleStarCount(); ++v) assertEquals(v, sky.visibleStarIndex(v));
+    }
+
+    @Test
+    void culledSkyOnlyContainsTheStarsOfTheRegion() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue)
+                .culled(MARGIN, X_INTERVAL, Y_INTERVAL);
+        EquatorialToHorizontalConversion toHorizontal = new EquatorialToHorizontalConversion(WHEN, WHERE);
+        double[] positions = sky.starPositions();
+
+        int v = 0;
+        for (int i = 0; i < sky.starCount(); ++i) {
+            double altitude = toHorizontal.apply(sky.stars().get(i).equatorialPos()).alt();
+            boolean visible = altitude >= -MARGIN
+                              && X_INTERVAL.contains(positions[2 * i]) && Y_INTERVAL.contains(positions[2 * i + 1]);
+            boolean listed = v < sky.visibleStarCount() && sky.visibleStarIndex(v) == i;
+            // the altitude may differ by rounding errors, the stars on the limit are not checked
+            if (Math.abs(altitude + MARGIN) > 1e-9) assertEquals(visible, listed);
+            if (listed) ++v;
+        }
+        assertEquals(sky.visibleStarCount(), v);
+        assertTrue(0 < v && v < sky.starCount());
+    }
+
+    @Test
+    void cullingIsKeptWhenTheSkyIsComputedAgain() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue)
+                .culled(MARGIN, X_INTERVAL, Y_INTERVAL);
+        assertSame(sky, sky.culled(MARGIN, ClosedInterval.of(-0.8, 0.6), ClosedInterval.of(-0.5, 0.7)));
+
+        ZonedDateTime later = WHEN.plusHours(3);
+        ObservedSky laterSky = sky.at(later, WHERE, PROJECTION);
+        ObservedSky expected = new ObservedSky(later, WHERE, PROJECTION, catalogue)
+                .culled(MARGIN, X_INTERVAL, Y_INTERVAL);
+        assertEquals(expected.visibleStarCount(), laterSky.visibleStarCount());
+        for (int v = 0; v < expected.visibleStarCount(); ++v) {
+            assertEquals(expected.visibleStarIndex(v), laterSky.visibleStarIndex(v));
+        }
+    }
+
+    @Test
+    void culledStarsAreNotPicked() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue);
+        double[] positions = sky.starPositions();
+        int star = 0;
+        while (X_INTERVAL.contains(positions[2 * star]) && Y_INTERVAL.contains(positions[2 * star + 1])) ++star;
+        CartesianCoordinates point = CartesianCoordinates.of(positions[2 * star], positions[2 * star + 1]);
+
+        Optional<CelestialObject> closest = sky.objectClosestTo(point, 1e-9, Set.of(CelestialObjectType.STAR));
+        assertSame(sky.stars().get(star), closest.orElseThrow());
+
+        ObservedSky culledSky = sky.culled(MARGIN, X_INTERVAL, Y_INTERVAL);
+        assertFalse(culledSky.objectClosestTo(point, 1e-9, Set.of(CelestialObjectType.STAR)).isPresent());
+    }
+
+    @Test
+    void cullingFailsOnInvalidMargin() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue);
+        assertThrows(IllegalArgumentException.class, () -> sky.culled(-0.1, X_INTERVAL, Y_INTERVAL));
+        assertThrows(IndexOutOfBoundsException.class, () -> sky.visibleStarIndex(sky.starCount()));
+    }
+
+    @Test
+    void faintStarsAreCulledByTheLimitingMagnitude() {
+        ObservedSky sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue).culled(MARGIN, X_INTERVAL, Y_INTERVAL);
+        ObservedSky brightSky = sky.culled(MARGIN, X_INTERVAL, Y_INTERVAL, 3.5);
+
+        int b = 0;
+        for (int v = 0; v < sky.visibleStarCount(); ++v) {
+            int index = sky.visibleStarIndex(v);
+            if (sky.starMagnitude(index) <= 3.5) assertEquals(index, brightSky.visibleStarIndex(b++));
+        }
+        assertEquals(brightSky.visibleStarCount(), b);
+        assertTrue(0 < b && b < sky.visibleStarCount());
+
+        assertEquals(0, sky.culled(MARGIN, X_INTERVAL, Y_INTERVAL, -5).visibleStarCount());
+        assertSame(sky, sky.culled(MARGIN, X_INTERVAL, Y_INTERVAL, Double.POSITIVE_INFINITY));
+    }
+}
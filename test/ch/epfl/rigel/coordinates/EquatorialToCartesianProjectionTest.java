@@ -0,0 +1,71 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+public class EquatorialToCartesianProjectionTest {
+    @Test
+    void applyMatchesTheConversionFollowedByTheProjection() {
+        SplittableRandom r = TestRandomizer.newRandom();
+        int count = 1000;
+        double[] ra = new double[count];
+        double[] dec = new double[count];
+        for (int i = 0; i < count; ++i) {
+            ra[i] = r.nextDouble(0, Angle.TAU);
+            dec[i] = r.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+        double[] vectors = new double[3 * count];
+        EquatorialToCartesianProjection.unitVectors(ra, dec, vectors, count);
+
+        for (int k = 0; k < TestRandomizer.RANDOM_ITERATIONS; ++k) {
+            ZonedDateTime when = ZonedDateTime.of(r.nextInt(1900, 2100), r.nextInt(1, 13), r.nextInt(1, 29),
+                                                  r.nextInt(24), r.nextInt(60), 0, 0, ZoneId.of("UTC"));
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(r.nextDouble(-180, 180),
+                                                                      r.nextDouble(-89, 89));
+            StereographicProjection projection = new StereographicProjection(
+                    HorizontalCoordinates.of(r.nextDouble(0, Angle.TAU), r.nextDouble(-1.5, 1.5)));
+            EquatorialToHorizontalConversion toHorizontal = new EquatorialToHorizontalConversion(when, where);
+
+            double[] positions = new double[2 * count];
+            new EquatorialToCartesianProjection(when, where, projection).apply(vectors, positions, count);
+            for (int i = 0; i < count; ++i) {
+                CartesianCoordinates expected =
+                        projection.apply(toHorizontal.apply(EquatorialCoordinates.of(ra[i], dec[i])));
+                double scale = Math.max(1, Math.hypot(expected.x(), expected.y()));
+                assertEquals(expected.x(), positions[2 * i], 1e-9 * scale);
+                assertEquals(expected.y(), positions[2 * i + 1], 1e-9 * scale);
+            }
+        }
+    }
+
+    @Test
+    void applyOnlyWritesTheGivenRange() {
+        double[] vectors = new double[3 * 4];
+        EquatorialToCartesianProjection.unitVectors(new double[]{0, 1, 2, 3}, new double[]{0, 0.1, 0.2, 0.3},
+                                                    vectors, 4);
+        EquatorialToCartesianProjection projection = new EquatorialToCartesianProjection(
+                ZonedDateTime.of(2020, 3, 20, 12, 0, 0, 0, ZoneId.of("UTC")), GeographicCoordinates.ofDeg(6.57, 46.52),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45)));
+
+        double[] all = new double[2 * 4];
+        projection.apply(vectors, all, 4);
+        double[] part = new double[2 * 4];
+        projection.apply(vectors, part, 1, 3);
+        for (int i = 0; i < part.length; ++i) assertEquals(i >= 2 && i < 6 ? all[i] : 0, part[i]);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> projection.apply(vectors, new double[6], 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> projection.apply(vectors, all, 3, 2));
+    }
+}
@@ -2,16 +2,20 @@ package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.astronomy.SiderealTime;
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
 
 import static ch.epfl.rigel.coordinates.CoordinateAssertions.assertEquals2;
 import static java.lang.Math.asin;
 import static java.lang.Math.atan2;
 import static java.lang.Math.cos;
 import static java.lang.Math.sin;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
 /**
@@ -60,4 +64,29 @@ public class EquatorialToHorizontalConversionTest {
         eqc = EquatorialCoordinates.of(Angle.ofDeg(90.0), Angle.ofDeg(0.0));
         assertEquals2(equatorialToHorizontal(when, where, eqc), converter.apply(eqc), 1e-9);
     }
+
+    @Test
+    void batchApplyGivesTheSameResultsAsApply() {
+        SplittableRandom r = TestRandomizer.newRandom();
+        int count = TestRandomizer.RANDOM_ITERATIONS;
+        ZonedDateTime when = ZonedDateTime.of(2020, 4, 1, 21, 30, 0, 0, ZoneId.of("UTC+2"));
+        EquatorialToHorizontalConversion converter =
+                new EquatorialToHorizontalConversion(when, GeographicCoordinates.ofDeg(6.57, 46.52));
+        double[] ra = new double[count];
+        double[] dec = new double[count];
+        for (int i = 0; i < count; ++i) {
+            ra[i] = r.nextDouble(0, Angle.TAU);
+            dec[i] = r.nextDouble(-Math.PI / 2, Math.PI / 2);
+        }
+
+        double[] azAlt = new double[2 * count];
+        converter.apply(ra, dec, azAlt, count);
+        for (int i = 0; i < count; ++i) {
+            HorizontalCoordinates expected = converter.apply(EquatorialCoordinates.of(ra[i], dec[i]));
+            assertEquals(expected.az(), azAlt[2 * i]);
+            assertEquals(expected.alt(), azAlt[2 * i + 1]);
+        }
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> converter.apply(ra, dec, new double[2 * count - 1], count));
+    }
 }
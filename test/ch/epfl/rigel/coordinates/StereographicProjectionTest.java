@@ -8,6 +8,7 @@ import java.util.function.Supplier;
 
 import static ch.epfl.rigel.coordinates.CoordinateAssertions.assertEquals2;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author Antonio Jimenez (314363)
@@ -189,4 +190,29 @@ public class StereographicProjectionTest {
         xy = CartesianCoordinates.of(19254, -174258);
         assertEquals2(HorizontalCoordinates.of(5.686810391711612, 0.8525751611921659), projection.inverseApply(xy), 1e-9);
     }
+
+    @Test
+    void batchApplyGivesTheSameResultsAsApply() {
+        SplittableRandom r = TestRandomizer.newRandom();
+        int count = TestRandomizer.RANDOM_ITERATIONS;
+        StereographicProjection projection =
+                new StereographicProjection(HorizontalCoordinates.of(r.nextDouble(0, 6.28), r.nextDouble(-1.5, 1.5)));
+        double[] azAlt = new double[2 * count + 2];
+        for (int i = 0; i < count; ++i) {
+            azAlt[2 * i] = r.nextDouble(0, 6.28);
+            azAlt[2 * i + 1] = r.nextDouble(-1.5, 1.5);
+        }
+
+        double[] xy = new double[2 * count];
+        projection.apply(azAlt, xy, count);
+        for (int i = 0; i < count; ++i) {
+            CartesianCoordinates expected = projection.apply(HorizontalCoordinates.of(azAlt[2 * i], azAlt[2 * i + 1]));
+            assertEquals(expected.x(), xy[2 * i]);
+            assertEquals(expected.y(), xy[2 * i + 1]);
+        }
+
+        projection.apply(azAlt, azAlt, count);  // in place
+        for (int i = 0; i < 2 * count; ++i) assertEquals(xy[i], azAlt[i]);
+        assertThrows(IndexOutOfBoundsException.class, () -> projection.apply(new double[4], new double[2], 2));
+    }
 }
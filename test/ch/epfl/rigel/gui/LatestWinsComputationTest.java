@@ -0,0 +1,68 @@
+package ch.epfl.rigel.gui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class LatestWinsComputationTest {
+    @Test
+    void inputsSubmittedDuringAComputationAreDroppedButTheLatest() {
+        Queue<Runnable> worker = new ArrayDeque<>();
+        List<Integer> computed = new ArrayList<>();
+        List<String> published = new ArrayList<>();
+        LatestWinsComputation<Integer, String> computation = new LatestWinsComputation<>(i -> {
+            computed.add(i);
+            return "r" + i;
+        }, published::add, worker::add, Runnable::run);
+
+        computation.submit(1);
+        computation.submit(2);
+        computation.submit(3);
+        assertEquals(1, worker.size());  // a single task computes all the inputs
+        worker.remove().run();
+        assertEquals(List.of(3), computed);
+        assertEquals(List.of("r3"), published);
+
+        computation.submit(4);
+        assertEquals(1, worker.size());
+        worker.remove().run();
+        assertEquals(List.of(3, 4), computed);
+        assertEquals(List.of("r3", "r4"), published);
+        assertTrue(worker.isEmpty());
+    }
+
+    @Test
+    void latestInputIsAlwaysPublishedLast() throws InterruptedException {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        ExecutorService publishingExecutor = Executors.newSingleThreadExecutor();
+        List<Integer> published = new ArrayList<>();
+        CountDownLatch lastPublished = new CountDownLatch(1);
+        LatestWinsComputation<Integer, Integer> computation = new LatestWinsComputation<>(i -> i, i -> {
+            published.add(i);
+            if (i == 10_000) lastPublished.countDown();
+        }, worker, publishingExecutor);
+
+        for (int i = 0; i <= 10_000; ++i) computation.submit(i);
+
+        assertTrue(lastPublished.await(10, TimeUnit.SECONDS));
+        worker.shutdown();
+        publishingExecutor.shutdown();
+
+        assertEquals(10_000, published.get(published.size() - 1));
+        for (int i = 1; i < published.size(); ++i) assertTrue(published.get(i - 1) < published.get(i));
+    }
+}
@@ -0,0 +1,116 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.CelestialObject;
+import ch.epfl.rigel.astronomy.CelestialObjectType;
+import ch.epfl.rigel.astronomy.HygDatabaseLoader;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.geometry.Point2D;
+import javafx.scene.transform.Transform;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class ObjectPickerTest {
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 0, 0, 0, 0, ZoneId.of("UTC"));
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StereographicProjection PROJECTION =
+            new StereographicProjection(HorizontalCoordinates.ofDeg(180, 30));
+    private static final Transform PLANE_TO_CANVAS = Transform.affine(1300, 0, 0, -1300, 400, 300);
+    private static final double MAX_DISTANCE_PX = 10;
+
+    private static ObservedSky sky;
+
+    private final ObjectProperty<ObservedSky> skyProperty = new SimpleObjectProperty<>(sky);
+    private final ObjectProperty<Transform> planeToCanvas = new SimpleObjectProperty<>(PLANE_TO_CANVAS);
+    private final ObjectProperty<Set<CelestialObjectType>> visibleTypes =
+            new SimpleObjectProperty<>(Set.of(CelestialObjectType.values()));
+    private final ObjectProperty<Point2D> mousePosition = new SimpleObjectProperty<>(new Point2D(0, 0));
+    private int pulseRequests;
+    private final ObjectPicker picker = new ObjectPicker(skyProperty, planeToCanvas, visibleTypes, mousePosition,
+                                                         MAX_DISTANCE_PX, () -> ++pulseRequests);
+
+    @BeforeAll
+    static void computeSky() throws IOException {
+        try (InputStream hygStream = ObjectPickerTest.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            StarCatalogue catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                                                                 .build();
+            sky = new ObservedSky(WHEN, WHERE, PROJECTION, catalogue);
+        }
+    }
+
+    private static CelestialObject expectedObject(ObservedSky sky, Transform planeToCanvas, Point2D mouse,
+                                                  Set<CelestialObjectType> visibleTypes) throws Exception {
+        Point2D point = planeToCanvas.inverseTransform(mouse);
+        double maxDistance = planeToCanvas.inverseDeltaTransform(MAX_DISTANCE_PX, 0).getX();
+        return sky.objectClosestTo(CartesianCoordinates.of(point.getX(), point.getY()), maxDistance, visibleTypes)
+                  .orElse(null);
+    }
+
+    @Test
+    void mouseEventsAreCoalescedUntilThePulse() throws Exception {
+        assertEquals(1, pulseRequests);
+        picker.pulse();
+
+        for (int x = 100; x < 500; ++x) mousePosition.set(new Point2D(x, 0.5 * x));
+        assertEquals(2, pulseRequests);
+        picker.pulse();
+        Point2D mouse = new Point2D(499, 249.5);
+        assertSame(expectedObject(sky, PLANE_TO_CANVAS, mouse, visibleTypes.get()),
+                   picker.pickedObjectProperty().get());
+
+        // nothing changed, the next pulse does nothing
+        picker.pulse();
+        mousePosition.set(new Point2D(300, 200));
+        skyProperty.set(sky.at(WHEN.plusHours(1), WHERE, PROJECTION));
+        assertEquals(3, pulseRequests);
+    }
+
+    @Test
+    void pickedObjectIsTheClosestToTheMouse() throws Exception {
+        double[] positions = sky.starPositions();
+        for (int star = 0; star < 2000; star += 37) {
+            Point2D starOnCanvas = PLANE_TO_CANVAS.transform(positions[2 * star], positions[2 * star + 1]);
+            Point2D mouse = starOnCanvas.add(3, -2);
+            mousePosition.set(mouse);
+            picker.pulse();
+            assertSame(expectedObject(sky, PLANE_TO_CANVAS, mouse, visibleTypes.get()),
+                       picker.pickedObjectProperty().get());
+        }
+
+        Transform zoomed = Transform.affine(2600, 0, 0, -2600, 400, 300);
+        planeToCanvas.set(zoomed);
+        visibleTypes.set(Set.of(CelestialObjectType.STAR));
+        picker.pulse();
+        assertSame(expectedObject(sky, zoomed, mousePosition.get(), visibleTypes.get()),
+                   picker.pickedObjectProperty().get());
+    }
+
+    @Test
+    void nothingIsPickedFarFromTheObjects() {
+        mousePosition.set(new Point2D(400, 300));
+        visibleTypes.set(Set.of());
+        picker.pulse();
+        assertNull(picker.pickedObjectProperty().get());
+    }
+}
@@ -0,0 +1,31 @@
+package ch.epfl.rigel.gui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class StartupTimerTest {
+    @Test
+    void reportContainsThePhasesInTheOrderTheyEnded() throws InterruptedException {
+        StartupTimer timer = new StartupTimer();
+        long first = timer.start();
+        long second = timer.start();
+        timer.end("second", second);
+
+        Thread thread = new Thread(() -> timer.end("first", first), "other thread");
+        thread.start();
+        thread.join();
+
+        String[] lines = timer.report().split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("second "));
+        assertTrue(lines[1].startsWith("first "));
+        assertTrue(lines[1].endsWith("other thread)"));
+        assertTrue(lines[2].startsWith("total "));
+    }
+}
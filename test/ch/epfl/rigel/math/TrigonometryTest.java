@@ -0,0 +1,76 @@
+package ch.epfl.rigel.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static java.lang.Math.PI;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Antonio Jimenez (314363)
+ * @author Alexis Horner (315780)
+ */
+class TrigonometryTest {
+    private static final Trigonometry FAST = Trigonometry.FAST;
+
+    @Test
+    void exactFunctionsAreTheOnesOfMath() {
+        SplittableRandom random = new SplittableRandom(2020);
+        for (int k = 0; k < 10_000; ++k) {
+            double x = random.nextDouble(-10, 10), v = random.nextDouble(-1, 1), y = random.nextDouble(-10, 10);
+            assertEquals(Math.sin(x), Trigonometry.EXACT.sin(x));
+            assertEquals(Math.cos(x), Trigonometry.EXACT.cos(x));
+            assertEquals(Math.asin(v), Trigonometry.EXACT.asin(v));
+            assertEquals(Math.atan2(y, x), Trigonometry.EXACT.atan2(y, x));
+        }
+    }
+
+    @Test
+    void fastSineAndCosineAreAccurate() {
+        SplittableRandom random = new SplittableRandom(2021);
+        for (int k = 0; k < 1_000_000; ++k) {
+            double x = k < 500_000 ? random.nextDouble(-4 * PI, 4 * PI) : random.nextDouble(-0x1p20, 0x1p20);
+            assertEquals(Math.sin(x), FAST.sin(x), Trigonometry.FAST_MAX_ERROR);
+            assertEquals(Math.cos(x), FAST.cos(x), Trigonometry.FAST_MAX_ERROR);
+        }
+        // around the limits of the quadrants
+        for (int q = -8; q <= 8; ++q) {
+            for (double x = q * PI / 4 - 1e-6; x <= q * PI / 4 + 1e-6; x += 1e-8) {
+                assertEquals(Math.sin(x), FAST.sin(x), Trigonometry.FAST_MAX_ERROR);
+                assertEquals(Math.cos(x), FAST.cos(x), Trigonometry.FAST_MAX_ERROR);
+            }
+        }
+        assertEquals(Math.sin(1e9), FAST.sin(1e9));
+        assertTrue(Double.isNaN(FAST.cos(Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    void fastArcSineIsAccurate() {
+        SplittableRandom random = new SplittableRandom(2022);
+        for (int k = 0; k < 1_000_000; ++k) {
+            double v = random.nextDouble(-1, 1);
+            assertEquals(Math.asin(v), FAST.asin(v), Trigonometry.FAST_MAX_ERROR);
+        }
+        for (double v : new double[]{-1, -0.5, 0, 0.5, 1, Math.nextDown(1.0), Math.nextUp(-1.0)}) {
+            assertEquals(Math.asin(v), FAST.asin(v), Trigonometry.FAST_MAX_ERROR);
+        }
+        assertTrue(Double.isNaN(FAST.asin(1.5)));
+        assertTrue(Double.isNaN(FAST.asin(Double.NaN)));
+    }
+
+    @Test
+    void fastArcTangentIsAccurate() {
+        SplittableRandom random = new SplittableRandom(2023);
+        for (int k = 0; k < 1_000_000; ++k) {
+            double scale = Math.pow(10, random.nextInt(-5, 6));
+            double y = scale * random.nextDouble(-1, 1), x = scale * random.nextDouble(-1, 1);
+            assertEquals(Math.atan2(y, x), FAST.atan2(y, x), Trigonometry.FAST_MAX_ERROR);
+        }
+        double[] values = {-2, -1, -0.0, 0, 1, 2, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double y : values) {
+            for (double x : values) assertEquals(Math.atan2(y, x), FAST.atan2(y, x), Trigonometry.FAST_MAX_ERROR);
+        }
+    }
+}